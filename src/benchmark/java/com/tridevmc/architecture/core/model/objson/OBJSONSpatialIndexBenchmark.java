@@ -0,0 +1,184 @@
+package com.tridevmc.architecture.core.model.objson;
+
+import com.tridevmc.architecture.core.ArchitectureLog;
+import com.tridevmc.architecture.core.math.ITrans3;
+import com.tridevmc.architecture.core.math.IVector3;
+import com.tridevmc.architecture.core.model.mesh.IFace;
+import com.tridevmc.architecture.core.model.mesh.IPolygon;
+import com.tridevmc.architecture.core.model.mesh.PolygonData;
+import com.tridevmc.architecture.core.physics.AABB;
+import com.tridevmc.architecture.core.physics.AABBTreeSelector;
+import com.tridevmc.architecture.core.physics.IAABBTree;
+import com.tridevmc.architecture.core.physics.Ray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Entry point used by the <code>benchmarkSpatialIndex</code> Gradle task, runs {@link AABBTreeSelector} over the mesh of every
+ * compiled model and times box, ray and nearest polygon queries against every kind of structure.
+ * <p>
+ * Prints the average time taken to run every query against a model with each kind, grouped by the number of polygons in the
+ * mesh, followed by how often the selector picked the fastest kind. Used to pick the limit in {@link AABBTreeSelector}.
+ * <p>
+ * Arguments: the root directory of the compiled models.
+ */
+public class OBJSONSpatialIndexBenchmark {
+
+    private static final int[] SIZE_BUCKETS = {0, 9, 17, 33, 65, 129, 257, 513, Integer.MAX_VALUE};
+    private static final int ROUNDS = 3;
+
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: OBJSONSpatialIndexBenchmark <compiled models dir>");
+        }
+        var modelsDir = Paths.get(args[0]);
+
+        List<Path> models;
+        try (Stream<Path> files = Files.walk(modelsDir)) {
+            models = files.filter(p -> p.toString().endsWith(".objson" + OBJSONBinary.EXTENSION_SUFFIX)).sorted().toList();
+        }
+
+        var queries = new Queries(16, new Random(0));
+        var results = new ArrayList<Result>();
+        // The first round only warms up the JIT, its timings are thrown away.
+        for (var round = 0; round <= ROUNDS; round++) {
+            for (var m = 0; m < models.size(); m++) {
+                OBJSONData data;
+                try (InputStream in = Files.newInputStream(models.get(m))) {
+                    data = OBJSONBinary.read(in);
+                }
+                var mesh = new OBJSON(data, ITrans3.BLOCK_CENTER, 16).mesh();
+                var polygons = mesh.getFaceStream().flatMap(IFace::getPolygonStream).toList();
+                if (round == 0) {
+                    results.add(new Result(polygons.size(), AABBTreeSelector.choose(polygons.size()).kind()));
+                }
+                for (var kind : AABBTreeSelector.Kind.values()) {
+                    var tree = AABBTreeSelector.build(polygons, IPolygon::getAABB, kind);
+                    var nanos = queries.run(tree);
+                    if (round > 0) {
+                        results.get(m).micros.merge(kind, nanos / 1e3 / ROUNDS, Double::sum);
+                    }
+                }
+            }
+        }
+
+        ArchitectureLog.info("Average microseconds to run every query against a model, by polygon count, {} models:", results.size());
+        ArchitectureLog.info(String.format("%-10s %6s %10s %10s %8s", "polygons", "models", "list", "bvh", "picked"));
+        for (var b = 0; b + 1 < SIZE_BUCKETS.length; b++) {
+            var lower = SIZE_BUCKETS[b];
+            var upper = SIZE_BUCKETS[b + 1];
+            var bucket = results.stream().filter(r -> r.size >= lower && r.size < upper).toList();
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            var averages = new EnumMap<AABBTreeSelector.Kind, Double>(AABBTreeSelector.Kind.class);
+            for (var kind : AABBTreeSelector.Kind.values()) {
+                averages.put(kind, bucket.stream().mapToDouble(r -> r.micros.get(kind)).average().orElse(0));
+            }
+            var picked = bucket.stream().mapToDouble(r -> r.micros.get(r.picked)).average().orElse(0);
+            ArchitectureLog.info(String.format("%-10s %6d %10.1f %10.1f %8.1f",
+                    upper == Integer.MAX_VALUE ? lower + "+" : lower + "-" + (upper - 1), bucket.size(),
+                    averages.get(AABBTreeSelector.Kind.LIST), averages.get(AABBTreeSelector.Kind.BVH), picked));
+        }
+
+        var fastest = 0;
+        double pickedTotal = 0, bvhTotal = 0, bestTotal = 0;
+        for (var result : results) {
+            var best = result.micros.values().stream().mapToDouble(Double::doubleValue).min().orElse(0);
+            // Timings within a few percent of each other are noise rather than a wrong pick.
+            if (result.micros.get(result.picked) <= best * 1.05D) {
+                fastest++;
+            }
+            pickedTotal += result.micros.get(result.picked);
+            bvhTotal += result.micros.get(AABBTreeSelector.Kind.BVH);
+            bestTotal += best;
+        }
+        ArchitectureLog.info("Picked the fastest kind for {} of {} models, {} ms total against {} ms for always using a BVH and {} ms for the best pick",
+                fastest, results.size(), "%.1f".formatted(pickedTotal / 1e3), "%.1f".formatted(bvhTotal / 1e3), "%.1f".formatted(bestTotal / 1e3));
+    }
+
+    private static final class Result {
+        private final int size;
+        private final AABBTreeSelector.Kind picked;
+        private final EnumMap<AABBTreeSelector.Kind, Double> micros = new EnumMap<>(AABBTreeSelector.Kind.class);
+
+        private Result(int size, AABBTreeSelector.Kind picked) {
+            this.size = size;
+            this.picked = picked;
+        }
+    }
+
+    /**
+     * A fixed set of queries shaped like the ones made by the voxelizer, one box per voxel of the block and one ray per column of
+     * voxels along X, along with a set of randomly placed rays and points.
+     */
+    private static final class Queries {
+        private final List<AABB> boxes = new ArrayList<>();
+        private final List<Ray> rays = new ArrayList<>();
+        private final double[] points;
+
+        private Queries(int resolution, Random random) {
+            var step = 1D / resolution;
+            for (var x = 0; x < resolution; x++) {
+                for (var y = 0; y < resolution; y++) {
+                    for (var z = 0; z < resolution; z++) {
+                        this.boxes.add(new AABB(x * step, y * step, z * step, (x + 1) * step, (y + 1) * step, (z + 1) * step));
+                    }
+                }
+            }
+            for (var y = 0; y < resolution; y++) {
+                for (var z = 0; z < resolution; z++) {
+                    this.rays.add(new Ray(IVector3.ofImmutable(-step, (y + 0.5) * step, (z + 0.5) * step), IVector3.ofImmutable(1 + 2 * step, 0, 0)));
+                }
+            }
+            for (var i = 0; i < 256; i++) {
+                this.rays.add(new Ray(IVector3.ofImmutable(random.nextDouble(), random.nextDouble(), random.nextDouble()),
+                        IVector3.ofImmutable(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble() - 0.5)));
+            }
+            this.points = new double[256 * 3];
+            for (var i = 0; i < this.points.length; i++) {
+                this.points[i] = random.nextDouble() * 1.5D - 0.25D;
+            }
+        }
+
+        private double run(IAABBTree<IPolygon<PolygonData>> tree) {
+            var start = System.nanoTime();
+            // The polygons are tested as well as found, so a structure that hands back fewer of them gets the credit for it.
+            for (var box : this.boxes) {
+                tree.forEachIntersecting(box, polygon -> {
+                    if (polygon.intersect(box)) {
+                        sink++;
+                    }
+                });
+            }
+            for (var ray : this.rays) {
+                tree.forEachAlongRay(ray, polygon -> {
+                    if (polygon.intersect(ray) != null) {
+                        sink++;
+                    }
+                });
+            }
+            for (var i = 0; i < this.points.length; i += 3) {
+                var x = this.points[i];
+                var y = this.points[i + 1];
+                var z = this.points[i + 2];
+                if (tree.findNearest(x, y, z, polygon -> polygon.distanceSquaredTo(x, y, z)) != null) {
+                    sink++;
+                }
+            }
+            return System.nanoTime() - start;
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.tridevmc.architecture.core.physics;
+
+import com.tridevmc.architecture.core.ArchitectureLog;
+import com.tridevmc.architecture.core.math.ITrans3;
+import com.tridevmc.architecture.core.model.mesh.IFace;
+import com.tridevmc.architecture.core.model.mesh.IPolygon;
+import com.tridevmc.architecture.core.model.mesh.PolygonData;
+import com.tridevmc.architecture.core.model.objson.OBJSON;
+import com.tridevmc.architecture.core.model.objson.OBJSONBinary;
+import com.tridevmc.architecture.core.model.objson.OBJSONData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Entry point used by the <code>benchmarkBVHTree</code> Gradle task, builds an {@link AABBTree}, a {@link BVHTree} and a
+ * {@link PackedBVHTree} over the polygons of every compiled model and compares them.
+ * <p>
+ * Every tree is searched with one box per voxel of the block and the results are checked against testing the bounds of every
+ * polygon, any difference fails the task. Prints the depth of each kind of tree along with the time taken to build all of them
+ * and to run every search against them.
+ * <p>
+ * Arguments: the root directory of the compiled models.
+ */
+public class BVHTreeBenchmark {
+
+    private static final int RESOLUTION = 16;
+    private static final int ROUNDS = 5;
+
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: BVHTreeBenchmark <compiled models dir>");
+        }
+        var modelsDir = Paths.get(args[0]);
+
+        List<Path> models;
+        try (Stream<Path> files = Files.walk(modelsDir)) {
+            models = files.filter(p -> p.toString().endsWith(".objson" + OBJSONBinary.EXTENSION_SUFFIX)).sorted().toList();
+        }
+
+        var meshes = new ArrayList<List<IPolygon<PolygonData>>>();
+        for (var model : models) {
+            OBJSONData data;
+            try (InputStream in = Files.newInputStream(model)) {
+                data = OBJSONBinary.read(in);
+            }
+            meshes.add(new OBJSON(data, ITrans3.BLOCK_CENTER, RESOLUTION).mesh().getFaceStream().flatMap(IFace::getPolygonStream).toList());
+        }
+
+        var boxes = new ArrayList<AABB>();
+        var step = 1D / RESOLUTION;
+        for (var x = 0; x < RESOLUTION; x++) {
+            for (var y = 0; y < RESOLUTION; y++) {
+                for (var z = 0; z < RESOLUTION; z++) {
+                    boxes.add(new AABB(x * step, y * step, z * step, (x + 1) * step, (y + 1) * step, (z + 1) * step));
+                }
+            }
+        }
+
+        var kinds = List.<Kind>of(
+                new Kind("insertion order", polygons -> new AABBTree<>(polygons, IPolygon::getAABB)),
+                new Kind("binned SAH", polygons -> BVHTree.build(polygons, IPolygon::getAABB)),
+                new Kind("packed SAH", polygons -> PackedBVHTree.build(polygons, IPolygon::getAABB))
+        );
+
+        var mismatches = 0;
+        for (var polygons : meshes) {
+            for (var kind : kinds) {
+                var tree = kind.builder.apply(polygons);
+                var depth = depth(tree);
+                kind.maxDepth = Math.max(kind.maxDepth, depth);
+                kind.totalDepth += depth;
+                for (var box : boxes) {
+                    Set<IPolygon<PolygonData>> found = Collections.newSetFromMap(new IdentityHashMap<>());
+                    tree.forEachIntersecting(box, found::add);
+                    Set<IPolygon<PolygonData>> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+                    for (var polygon : polygons) {
+                        if (polygon.getAABB().intersects(box)) {
+                            expected.add(polygon);
+                        }
+                    }
+                    if (!found.equals(expected)) {
+                        mismatches++;
+                    }
+                }
+            }
+        }
+        ArchitectureLog.info("Searched {} boxes in each tree of {} models, {} searches differed from testing every polygon",
+                boxes.size(), meshes.size(), mismatches);
+        if (mismatches > 0) {
+            throw new IllegalStateException("A tree disagreed with testing the bounds of every polygon");
+        }
+
+        // The first round only warms up the JIT, its timings are thrown away.
+        for (var round = 0; round <= ROUNDS; round++) {
+            for (var kind : kinds) {
+                var trees = new ArrayList<IAABBTree<IPolygon<PolygonData>>>(meshes.size());
+                var start = System.nanoTime();
+                for (var polygons : meshes) {
+                    trees.add(kind.builder.apply(polygons));
+                }
+                var built = System.nanoTime();
+                for (var tree : trees) {
+                    for (var box : boxes) {
+                        tree.forEachIntersecting(box, polygon -> sink++);
+                    }
+                }
+                var searched = System.nanoTime();
+                if (round > 0) {
+                    kind.buildMillis += (built - start) / 1e6 / ROUNDS;
+                    kind.searchMillis += (searched - built) / 1e6 / ROUNDS;
+                }
+            }
+        }
+
+        ArchitectureLog.info(String.format("%-16s %10s %10s %10s %10s", "tree", "max depth", "avg depth", "build ms", "search ms"));
+        for (var kind : kinds) {
+            ArchitectureLog.info(String.format("%-16s %10d %10.1f %10.1f %10.1f", kind.name, kind.maxDepth,
+                    (double) kind.totalDepth / meshes.size(), kind.buildMillis, kind.searchMillis));
+        }
+    }
+
+    private static int depth(IAABBTree<?> tree) {
+        if (tree instanceof AABBTree<?> aabbTree) {
+            return depth(aabbTree.getRoot());
+        } else if (tree instanceof BVHTree<?> bvhTree) {
+            return bvhTree.getDepth();
+        }
+        return ((PackedBVHTree<?>) tree).getDepth();
+    }
+
+    private static int depth(AABBTree<?>.Node node) {
+        if (node == null) {
+            return 0;
+        }
+        return 1 + Math.max(depth(node.getLeft()), depth(node.getRight()));
+    }
+
+    private static final class Kind {
+        private final String name;
+        private final Function<List<IPolygon<PolygonData>>, IAABBTree<IPolygon<PolygonData>>> builder;
+        private int maxDepth;
+        private long totalDepth;
+        private double buildMillis;
+        private double searchMillis;
+
+        private Kind(String name, Function<List<IPolygon<PolygonData>>, IAABBTree<IPolygon<PolygonData>>> builder) {
+            this.name = name;
+            this.builder = builder;
+        }
+    }
+
+}
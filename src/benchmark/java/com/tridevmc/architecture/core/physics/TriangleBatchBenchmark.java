@@ -0,0 +1,193 @@
+package com.tridevmc.architecture.core.physics;
+
+import com.tridevmc.architecture.core.ArchitectureLog;
+import com.tridevmc.architecture.core.math.ITrans3;
+import com.tridevmc.architecture.core.model.mesh.IMesh;
+import com.tridevmc.architecture.core.model.mesh.IPolygon;
+import com.tridevmc.architecture.core.model.mesh.PolygonData;
+import com.tridevmc.architecture.core.model.objson.OBJSON;
+import com.tridevmc.architecture.core.model.objson.OBJSONBinary;
+import com.tridevmc.architecture.core.model.objson.OBJSONData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Entry point used by the <code>benchmarkTriangleBatch</code> Gradle task, checks that {@link TriangleBatch} gives the same answer
+ * as testing every polygon on its own for the mesh of every compiled model, then times both.
+ * <p>
+ * The check runs one box per voxel of the block, the same boxes shrunk the way the voxelizer shrinks them, and a set of boxes
+ * placed on the grid lines of the block so their faces touch the faces, edges and vertices of the models. Every polygon is tested
+ * against every box with each available {@link TriangleBatch.Kernel}, and {@link TriangleBatch#anyIntersecting(IAABB, IAABB)} is
+ * checked against the tree of the mesh. Any difference fails the task.
+ * <p>
+ * Prints how many triangles per second are tested by calling {@link IPolygon#intersect(IAABB)} on each polygon and by each kernel,
+ * followed by the time taken to run the voxelizer's search through the tree of each mesh and through the batch. The vector kernel
+ * is only checked and timed when the JVM is started with <code>--add-modules jdk.incubator.vector</code>, as the Gradle task does.
+ * <p>
+ * Arguments: the root directory of the compiled models.
+ */
+public class TriangleBatchBenchmark {
+
+    private static final int RESOLUTION = 16;
+    private static final int ROUNDS = 5;
+
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: TriangleBatchBenchmark <compiled models dir>");
+        }
+        var modelsDir = Paths.get(args[0]);
+
+        List<Path> models;
+        try (Stream<Path> files = Files.walk(modelsDir)) {
+            models = files.filter(p -> p.toString().endsWith(".objson" + OBJSONBinary.EXTENSION_SUFFIX)).sorted().toList();
+        }
+
+        var meshes = new ArrayList<IMesh<String, PolygonData>>();
+        for (var model : models) {
+            OBJSONData data;
+            try (InputStream in = Files.newInputStream(model)) {
+                data = OBJSONBinary.read(in);
+            }
+            meshes.add(new OBJSON(data, ITrans3.BLOCK_CENTER, RESOLUTION).mesh());
+        }
+
+        var boxes = createBoxes(new Random(0));
+        var kernels = Arrays.stream(TriangleBatch.Kernel.values()).filter(TriangleBatch.Kernel::isAvailable).toList();
+        long polygonTests = 0, polygonMismatches = 0, anyTests = 0, anyMismatches = 0;
+        for (var mesh : meshes) {
+            var batch = TriangleBatch.of(mesh);
+            var tree = mesh.getAABBTree();
+            var hits = new boolean[batch.size()];
+            for (var box : boxes) {
+                for (var kernel : kernels) {
+                    batch.intersect(box, 0, batch.size(), hits, kernel);
+                    for (var i = 0; i < batch.size(); i++) {
+                        polygonTests++;
+                        if (hits[i] != batch.getPolygon(i).intersect(box)) {
+                            polygonMismatches++;
+                        }
+                    }
+                }
+                var searchBox = searchBox(box);
+                anyTests++;
+                if (batch.anyIntersecting(searchBox, box) != tree.anyIntersecting(searchBox, p -> p.intersect(box))) {
+                    anyMismatches++;
+                }
+            }
+        }
+        ArchitectureLog.info("Checked {} polygon tests with the {} kernels and {} searches over {} models, {} and {} differed from the polygons",
+                polygonTests, kernels, anyTests, meshes.size(), polygonMismatches, anyMismatches);
+        if (polygonMismatches > 0 || anyMismatches > 0) {
+            throw new IllegalStateException("TriangleBatch disagreed with the polygons of the mesh");
+        }
+        if (!TriangleBatch.Kernel.VECTOR.isAvailable()) {
+            ArchitectureLog.warn("The vector kernel is not available, run with --add-modules jdk.incubator.vector to check and time it");
+        }
+
+        // Every box against every polygon of every mesh, the rate of each way of running the test on its own.
+        var batches = meshes.stream().map(TriangleBatch::of).toList();
+        var triangles = (double) batches.stream().mapToInt(TriangleBatch::size).sum() * boxes.size();
+        var polygonSeconds = time(() -> {
+            for (var batch : batches) {
+                for (var box : boxes) {
+                    for (var i = 0; i < batch.size(); i++) {
+                        if (batch.getPolygon(i).intersect(box)) {
+                            sink++;
+                        }
+                    }
+                }
+            }
+        });
+        ArchitectureLog.info("{} million triangles per second testing each polygon on its own",
+                "%.1f".formatted(triangles / polygonSeconds / 1e6));
+        for (var kernel : kernels) {
+            var kernelSeconds = time(() -> {
+                for (var batch : batches) {
+                    var hits = new boolean[batch.size()];
+                    for (var box : boxes) {
+                        sink += batch.intersect(box, 0, batch.size(), hits, kernel);
+                    }
+                }
+            });
+            ArchitectureLog.info("{} million triangles per second through the {} kernel",
+                    "%.1f".formatted(triangles / kernelSeconds / 1e6), kernel);
+        }
+
+        // The query the voxelizer makes, where the tree rejects most polygons before either test runs.
+        var searchSeconds = time(() -> {
+            for (var mesh : meshes) {
+                var tree = mesh.getAABBTree();
+                for (var box : boxes) {
+                    if (tree.anyIntersecting(searchBox(box), p -> p.intersect(box))) {
+                        sink++;
+                    }
+                }
+            }
+        });
+        var batchSearchSeconds = time(() -> {
+            for (var batch : batches) {
+                for (var box : boxes) {
+                    if (batch.anyIntersecting(searchBox(box), box)) {
+                        sink++;
+                    }
+                }
+            }
+        });
+        ArchitectureLog.info("Average milliseconds to search every model with {} boxes, {} through the tree, {} through the batch with the {} kernel",
+                boxes.size(), "%.1f".formatted(searchSeconds * 1e3), "%.1f".formatted(batchSearchSeconds * 1e3), TriangleBatch.Kernel.getDefault());
+    }
+
+    /**
+     * Runs the given work once to warm up the JIT and then a number of times more, giving the average time taken in seconds.
+     */
+    private static double time(Runnable work) {
+        work.run();
+        var start = System.nanoTime();
+        for (var round = 0; round < ROUNDS; round++) {
+            work.run();
+        }
+        return (System.nanoTime() - start) / 1e9 / ROUNDS;
+    }
+
+    /**
+     * The box the voxelizer searches the tree with, shrunk by a fraction of a voxel so polygons on the faces of the voxel aren't tested.
+     */
+    private static IAABB searchBox(AABB box) {
+        return box.deflate(1D / (RESOLUTION * 32));
+    }
+
+    private static List<AABB> createBoxes(Random random) {
+        var boxes = new ArrayList<AABB>();
+        var step = 1D / RESOLUTION;
+        for (var x = 0; x < RESOLUTION; x++) {
+            for (var y = 0; y < RESOLUTION; y++) {
+                for (var z = 0; z < RESOLUTION; z++) {
+                    var box = new AABB(x * step, y * step, z * step, (x + 1) * step, (y + 1) * step, (z + 1) * step);
+                    boxes.add(box);
+                    boxes.add(box.deflate(1D / (RESOLUTION * 32)));
+                }
+            }
+        }
+        // Boxes snapped to a finer grid, so their faces land exactly on the planes most of the models are built from.
+        for (var i = 0; i < 4096; i++) {
+            var minX = random.nextInt(64) / 64D;
+            var minY = random.nextInt(64) / 64D;
+            var minZ = random.nextInt(64) / 64D;
+            boxes.add(new AABB(minX, minY, minZ, minX + (1 + random.nextInt(8)) / 64D,
+                    minY + (1 + random.nextInt(8)) / 64D, minZ + (1 + random.nextInt(8)) / 64D));
+        }
+        return boxes;
+    }
+
+}
@@ -26,8 +26,11 @@ package com.tridevmc.architecture.common;
 
 import com.tridevmc.architecture.client.proxy.ClientProxy;
 import com.tridevmc.architecture.common.proxy.CommonProxy;
+import com.tridevmc.architecture.legacy.client.render.model.objson.OBJSONVoxelPrecomputer;
 import com.tridevmc.compound.network.core.CompoundNetwork;
+import net.minecraft.data.DataGenerator;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.data.event.GatherDataEvent;
 import net.minecraftforge.fml.DistExecutor;
 import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.common.Mod;
@@ -51,6 +54,7 @@ public class ArchitectureMod {
 
         FMLJavaModLoadingContext loadingContext = FMLJavaModLoadingContext.get();
         loadingContext.getModEventBus().addListener(this::onSetup);
+        loadingContext.getModEventBus().addListener(this::onGatherData);
         loadingContext.getModEventBus().register(CONTENT);
         loadingContext.getModEventBus().register(PROXY);
         MinecraftForge.EVENT_BUS.register(CONTENT);
@@ -63,5 +67,10 @@ public class ArchitectureMod {
         CompoundNetwork.createNetwork(ModLoadingContext.get().getActiveContainer(), "network");
     }
 
+    public void onGatherData(GatherDataEvent e) {
+        DataGenerator generator = e.getGenerator();
+        generator.addProvider(e.includeServer(), new OBJSONVoxelPrecomputer(generator.getPackOutput()));
+    }
+
 }
 
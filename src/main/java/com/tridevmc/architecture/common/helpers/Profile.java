@@ -25,7 +25,7 @@
 package com.tridevmc.architecture.common.helpers;
 
 import com.tridevmc.architecture.common.shape.EnumShape;
-import com.tridevmc.architecture.legacy.math.LegacyTrans3;
+import com.tridevmc.architecture.core.math.Orientation;
 import net.minecraft.core.Direction;
 
 import java.util.HashMap;
@@ -36,7 +36,7 @@ public class Profile {
     protected static Map<Object, Object> opposites = new HashMap<>();
 
     public static Object getProfileGlobal(EnumShape shape, int side, int turn, Direction globalFace) {
-        Direction localFace = LegacyTrans3.sideTurnRotations[side][turn].it(globalFace);
+        Direction localFace = Orientation.of(side, turn).inverseTransformDirection(globalFace);
         return shape.behaviour.profileForLocalFace(shape, localFace);
     }
 
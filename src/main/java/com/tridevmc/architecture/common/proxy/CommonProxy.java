@@ -24,23 +24,52 @@
 
 package com.tridevmc.architecture.common.proxy;
 
-import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.tridevmc.architecture.common.shape.EnumShape;
+import com.tridevmc.architecture.common.shape.behaviour.ShapeBehaviourModel;
 import com.tridevmc.architecture.legacy.client.render.model.objson.LegacyOBJSON;
 import com.tridevmc.architecture.core.ArchitectureLog;
+import com.tridevmc.architecture.core.model.VoxelCache;
+import com.tridevmc.architecture.core.model.VoxelizerPool;
 import com.tridevmc.architecture.common.ArchitectureMod;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.AddReloadListenerEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
+import net.minecraftforge.fml.loading.FMLPaths;
 import net.minecraftforge.fml.loading.progress.StartupMessageManager;
 
-import java.util.Map;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CommonProxy {
 
-    private final Map<ResourceLocation, LegacyOBJSON> modelCache = Maps.newHashMap();
+    /**
+     * The maximum number of threads used to load models during the warm-up phase, the voxelizers parallelize internally
+     * so there's little to gain from going much wider than this.
+     */
+    private static final int WARM_UP_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
 
-    public void setup(FMLCommonSetupEvent e) {
+    // Holds the in-flight or completed load for each model, so concurrent requests for the same model share a single load.
+    private final ConcurrentMap<ResourceLocation, CompletableFuture<LegacyOBJSON>> modelCache = new ConcurrentHashMap<>();
+
+    public CommonProxy() {
+        // Models are voxelized as soon as they're first requested, which can happen before setup, so the cache has to be ready up front.
+        VoxelCache.setDirectory(FMLPaths.GAMEDIR.get().resolve(ArchitectureMod.MOD_ID).resolve("voxel_cache"));
+    }
 
+    public void setup(FMLCommonSetupEvent e) {
+        // The proxy is also registered on the mod bus, which doesn't accept this event, so it's added directly to the forge bus.
+        MinecraftForge.EVENT_BUS.addListener(this::onAddReloadListeners);
+        this.warmUpModels();
     }
 
     public void registerHandlers() {
@@ -50,22 +79,112 @@ public class CommonProxy {
     public void registerCustomRenderers() {
     }
 
+    private void onAddReloadListeners(AddReloadListenerEvent e) {
+        // Anything still being voxelized belongs to the resources being replaced, loads that get cancelled start over, see loadOBJSON.
+        VoxelizerPool.cancel();
+    }
+
+    /**
+     * Gets the model with the given name, loading and voxelizing it on the calling thread if no other thread has already started to.
+     *
+     * @param name The path of the model, relative to the objson directory.
+     * @return The loaded model.
+     */
     public LegacyOBJSON getCachedOBJSON(String name) {
+        try {
+            return this.getOBJSONAsync(name, Runnable::run).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the model with the given name, starting a load on the given executor if no other thread has already started to.
+     *
+     * @param name     The path of the model, relative to the objson directory.
+     * @param executor The executor to load the model on if it isn't loaded or loading yet.
+     * @return A future that completes once the model has been loaded and voxelized.
+     */
+    public CompletableFuture<LegacyOBJSON> getOBJSONAsync(String name, Executor executor) {
         ResourceLocation loc = this.modelLocation(name);
-        LegacyOBJSON model = this.modelCache.get(loc);
-        if (model == null) {
-            long t0 = System.nanoTime();
-            model = LegacyOBJSON.fromResource(loc);
-            this.modelCache.put(loc, model);
-            long t1 = System.nanoTime();
-            String msg = String.format("Loaded and cached '%s' in %s nanos.", name, t1 - t0);
-            StartupMessageManager.addModMessage(msg);
-            ArchitectureLog.info(msg);
+        var existing = this.modelCache.get(loc);
+        if (existing != null) {
+            return existing;
+        }
+
+        var future = new CompletableFuture<LegacyOBJSON>();
+        existing = this.modelCache.putIfAbsent(loc, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        // We won the race, so we're responsible for the load. Failed loads are evicted so a later request can try again.
+        executor.execute(() -> {
+            try {
+                future.complete(this.loadOBJSON(name, loc));
+            } catch (Throwable t) {
+                this.modelCache.remove(loc, future);
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    private LegacyOBJSON loadOBJSON(String name, ResourceLocation loc) {
+        long t0 = System.nanoTime();
+        LegacyOBJSON model = LegacyOBJSON.fromResource(loc);
+        while (true) {
+            try {
+                model.getVoxelized();
+                break;
+            } catch (CancellationException | RejectedExecutionException e) {
+                // A reload cancelled the pool while this model was being voxelized, but something is still waiting on the model,
+                // so start over on a fresh pool rather than letting the cancellation reach the thread waiting on it.
+                ArchitectureLog.debug("Voxelization of '{}' was cancelled by a reload, retrying", name);
+            }
         }
-        model.getVoxelized();
+        long t1 = System.nanoTime();
+        String msg = String.format("Loaded and cached '%s' in %s nanos.", name, t1 - t0);
+        StartupMessageManager.addModMessage(msg);
+        ArchitectureLog.info(msg);
         return model;
     }
 
+    /**
+     * Loads every shape model in parallel so they don't have to be loaded lazily on render or server threads later on.
+     */
+    private void warmUpModels() {
+        var names = Arrays.stream(EnumShape.values())
+                .filter(s -> s.behaviour instanceof ShapeBehaviourModel)
+                .map(s -> ((ShapeBehaviourModel) s.behaviour).getModelName())
+                .distinct()
+                .toList();
+
+        var pool = Executors.newFixedThreadPool(WARM_UP_THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("ArchitectureCraft Model Loader %d")
+                .setDaemon(true)
+                .build());
+        try {
+            long t0 = System.nanoTime();
+            var loaded = new AtomicInteger();
+            var futures = names.stream().map(name -> this.getOBJSONAsync(name, pool).whenComplete((model, t) -> {
+                if (t != null) {
+                    ArchitectureLog.error(String.format("Failed to load model '%s' during warm-up", name), t);
+                }
+                StartupMessageManager.addModMessage(String.format("Loading ArchitectureCraft models (%s/%s)", loaded.incrementAndGet(), names.size()));
+            })).toArray(CompletableFuture[]::new);
+
+            // Failures have already been logged, anything that failed will be retried when it's next requested.
+            CompletableFuture.allOf(futures).exceptionally(t -> null).join();
+            ArchitectureLog.info("Warmed up {} models in {} ms", names.size(), (System.nanoTime() - t0) / 1_000_000);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     public ResourceLocation modelLocation(String path) {
         return new ResourceLocation(ArchitectureMod.MOD_ID, path);
     }
@@ -0,0 +1,482 @@
+package com.tridevmc.architecture.core.math;
+
+import com.tridevmc.architecture.core.math.floating.IVector3F;
+import com.tridevmc.architecture.core.math.floating.IVector3FImmutable;
+import com.tridevmc.architecture.core.math.floating.IVector3FMutable;
+import com.tridevmc.architecture.core.math.integer.IVector3i;
+import com.tridevmc.architecture.core.math.integer.IVector3iImmutable;
+import com.tridevmc.architecture.core.math.integer.IVector3iMutable;
+import com.tridevmc.architecture.core.model.mesh.CullFace;
+import net.minecraft.core.Direction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * One of the 24 axis-aligned rotations a block can be placed in, a side the block is attached to and a turn around that side.
+ * <p>
+ * Each orientation matches the rotation in {@link IMatrix4#getSideTurnRotation(int, int)} with the same side and turn, and the
+ * ordinal of an orientation is <code>side * 4 + turn</code>, the same index used by {@link IMatrix4#SIDE_TURN_ROTATIONS}.
+ * <p>
+ * Every axis-aligned rotation just swaps and negates the axes of a vector, so rather than multiplying by a matrix each orientation
+ * stores which axis each component is taken from and its sign. Combining two orientations, inverting one and transforming a
+ * direction or cull face are all looked up in tables built once when the class is loaded.
+ * <p>
+ * For code that expects an {@link ITrans3}, {@link #asTrans()} returns the same instance every time it's called for an
+ * orientation. Those instances compare and hash by matrix like any other immutable transform, but only hash their matrix once,
+ * which keeps them cheap cache keys.
+ */
+public enum Orientation {
+    DOWN_0, DOWN_90, DOWN_180, DOWN_270,
+    UP_0, UP_90, UP_180, UP_270,
+    NORTH_0, NORTH_90, NORTH_180, NORTH_270,
+    SOUTH_0, SOUTH_90, SOUTH_180, SOUTH_270,
+    WEST_0, WEST_90, WEST_180, WEST_270,
+    EAST_0, EAST_90, EAST_180, EAST_270;
+
+    /**
+     * The orientation that leaves everything as it is, attached to the bottom of the block with no turn.
+     */
+    public static final Orientation IDENTITY = DOWN_0;
+
+    private static final Orientation[] VALUES = values();
+    private static final int COUNT = VALUES.length;
+
+    // For each orientation and each axis of the result, the axis of the input it's taken from and whether it's negated.
+    private static final int[] AXES = new int[COUNT * 3];
+    private static final int[] SIGNS = new int[COUNT * 3];
+
+    // Orientations by their axes and signs, see getKey.
+    private static final Orientation[] BY_KEY = new Orientation[1 << 9];
+
+    private static final Orientation[] COMPOSITIONS = new Orientation[COUNT * COUNT];
+    private static final Orientation[] INVERSES = new Orientation[COUNT];
+    private static final Direction[] DIRECTIONS = new Direction[COUNT * 6];
+    private static final Direction[] INVERSE_DIRECTIONS = new Direction[COUNT * 6];
+    private static final ITrans3Immutable[] TRANSFORMS = new ITrans3Immutable[COUNT];
+
+    static {
+        for (var orientation : VALUES) {
+            var matrix = IMatrix4.SIDE_TURN_ROTATIONS.get(orientation.ordinal());
+            for (var row = 0; row < 3; row++) {
+                for (var column = 0; column < 3; column++) {
+                    var value = Math.round(matrix.get(row, column));
+                    if (value != 0) {
+                        AXES[orientation.ordinal() * 3 + row] = column;
+                        SIGNS[orientation.ordinal() * 3 + row] = (int) value;
+                    }
+                }
+            }
+            var key = getKey(AXES, SIGNS, orientation.ordinal() * 3);
+            if (BY_KEY[key] != null) {
+                throw new IllegalStateException("%s and %s are the same rotation".formatted(BY_KEY[key], orientation));
+            }
+            BY_KEY[key] = orientation;
+            TRANSFORMS[orientation.ordinal()] = new Trans3.Oriented(orientation);
+        }
+
+        var axes = new int[3];
+        var signs = new int[3];
+        for (var first : VALUES) {
+            for (var second : VALUES) {
+                // Applying second after first takes each component from the axis second picks out of the result of first.
+                for (var axis = 0; axis < 3; axis++) {
+                    var from = second.getAxis(axis);
+                    axes[axis] = first.getAxis(from);
+                    signs[axis] = second.getSign(axis) * first.getSign(from);
+                }
+                COMPOSITIONS[first.ordinal() * COUNT + second.ordinal()] = lookup(axes, signs);
+            }
+
+            // The inverse of a rotation is its transpose, the component taken from an axis is put back in that axis.
+            for (var axis = 0; axis < 3; axis++) {
+                axes[first.getAxis(axis)] = axis;
+                signs[first.getAxis(axis)] = first.getSign(axis);
+            }
+            INVERSES[first.ordinal()] = lookup(axes, signs);
+        }
+
+        for (var orientation : VALUES) {
+            for (var direction : Direction.values()) {
+                DIRECTIONS[orientation.ordinal() * 6 + direction.ordinal()] = Direction.getNearest(
+                        orientation.transformX(direction.getStepX(), direction.getStepY(), direction.getStepZ()),
+                        orientation.transformY(direction.getStepX(), direction.getStepY(), direction.getStepZ()),
+                        orientation.transformZ(direction.getStepX(), direction.getStepY(), direction.getStepZ())
+                );
+            }
+        }
+        for (var orientation : VALUES) {
+            var inverse = orientation.inverse();
+            System.arraycopy(DIRECTIONS, inverse.ordinal() * 6, INVERSE_DIRECTIONS, orientation.ordinal() * 6, 6);
+        }
+    }
+
+    private static int getKey(int[] axes, int[] signs, int offset) {
+        var key = 0;
+        for (var axis = 0; axis < 3; axis++) {
+            key |= (axes[offset + axis] << 1 | (signs[offset + axis] < 0 ? 1 : 0)) << (axis * 3);
+        }
+        return key;
+    }
+
+    private static Orientation lookup(int[] axes, int[] signs) {
+        var orientation = BY_KEY[getKey(axes, signs, 0)];
+        if (orientation == null) {
+            throw new IllegalStateException("No orientation with axes %s and signs %s".formatted(Arrays.toString(axes), Arrays.toString(signs)));
+        }
+        return orientation;
+    }
+
+    /**
+     * Gets the orientation for the given side and turn.
+     *
+     * @param side The side of the block the orientation is attached to, the same index as {@link Direction#get3DDataValue()}.
+     * @param turn The number of quarter turns around that side, between 0 and 3.
+     * @return The orientation.
+     * @throws IllegalArgumentException If the side or turn is out of range.
+     */
+    @NotNull
+    public static Orientation of(int side, int turn) {
+        if (side < 0 || side >= 6 || turn < 0 || turn >= 4) {
+            throw new IllegalArgumentException("Invalid side %s and turn %s, expected a side between 0 and 5 and a turn between 0 and 3".formatted(side, turn));
+        }
+        return VALUES[side * 4 + turn];
+    }
+
+    /**
+     * Gets the orientation for the given side and turn.
+     *
+     * @param side The side of the block the orientation is attached to.
+     * @param turn The number of quarter turns around that side, between 0 and 3.
+     * @return The orientation.
+     * @throws IllegalArgumentException If the turn is out of range.
+     */
+    @NotNull
+    public static Orientation of(@NotNull Direction side, int turn) {
+        return of(side.get3DDataValue(), turn);
+    }
+
+    /**
+     * Gets the orientation with the given index, as returned by {@link #ordinal()}.
+     *
+     * @param index The index of the orientation.
+     * @return The orientation.
+     * @throws IllegalArgumentException If the index is out of range.
+     */
+    @NotNull
+    public static Orientation fromIndex(int index) {
+        if (index < 0 || index >= COUNT) {
+            throw new IllegalArgumentException("Invalid orientation index %s, expected a value between 0 and %s".formatted(index, COUNT - 1));
+        }
+        return VALUES[index];
+    }
+
+    /**
+     * Finds the orientation that rotates the same way as the given transform.
+     * <p>
+     * Transforms returned by {@link #asTrans()} are matched without looking at their matrix, anything else matches if it's a
+     * rotation from one of the 24 orientations with no translation or scale.
+     *
+     * @param trans The transform to match.
+     * @return The matching orientation, or null if the transform isn't one of the 24 rotations.
+     */
+    @Nullable
+    public static Orientation fromTrans(@NotNull ITrans3 trans) {
+        if (trans instanceof Trans3.Oriented oriented) {
+            return oriented.orientation();
+        }
+        var matrix = trans.matrix();
+        if (!isZero(matrix.m03()) || !isZero(matrix.m13()) || !isZero(matrix.m23())
+                || !isZero(matrix.m30()) || !isZero(matrix.m31()) || !isZero(matrix.m32()) || !isZero(matrix.m33() - 1)) {
+            return null;
+        }
+        var axes = new int[3];
+        var signs = new int[3];
+        for (var row = 0; row < 3; row++) {
+            for (var column = 0; column < 3; column++) {
+                var value = matrix.get(row, column);
+                if (isZero(value)) {
+                    continue;
+                }
+                if (signs[row] != 0 || !isZero(Math.abs(value) - 1)) {
+                    return null;
+                }
+                axes[row] = column;
+                signs[row] = value < 0 ? -1 : 1;
+            }
+            if (signs[row] == 0) {
+                return null;
+            }
+        }
+        return BY_KEY[getKey(axes, signs, 0)];
+    }
+
+    private static boolean isZero(double value) {
+        return Math.abs(value) < 1E-6;
+    }
+
+    /**
+     * Gets the side of the block this orientation is attached to.
+     *
+     * @return The side, the same index as {@link Direction#get3DDataValue()}.
+     */
+    public int getSide() {
+        return this.ordinal() >> 2;
+    }
+
+    /**
+     * Gets the number of quarter turns around the side this orientation is attached to.
+     *
+     * @return The turn, between 0 and 3.
+     */
+    public int getTurn() {
+        return this.ordinal() & 3;
+    }
+
+    private int getAxis(int axis) {
+        return AXES[this.ordinal() * 3 + axis];
+    }
+
+    private int getSign(int axis) {
+        return SIGNS[this.ordinal() * 3 + axis];
+    }
+
+    /**
+     * Gets the orientation that has the same effect as applying this orientation and then the given one.
+     *
+     * @param then The orientation to apply after this one.
+     * @return The combined orientation.
+     */
+    @NotNull
+    public Orientation then(@NotNull Orientation then) {
+        return COMPOSITIONS[this.ordinal() * COUNT + then.ordinal()];
+    }
+
+    /**
+     * Gets the orientation that undoes this one.
+     *
+     * @return The inverse orientation.
+     */
+    @NotNull
+    public Orientation inverse() {
+        return INVERSES[this.ordinal()];
+    }
+
+    /**
+     * Gets the interned transform that rotates the same way as this orientation.
+     * <p>
+     * The returned transform is the same instance every time, and is only equal to the transform of the same orientation.
+     *
+     * @return The transform.
+     */
+    @NotNull
+    public ITrans3Immutable asTrans() {
+        return TRANSFORMS[this.ordinal()];
+    }
+
+    /**
+     * Gets the rotation matrix of this orientation.
+     *
+     * @return The matrix.
+     */
+    @NotNull
+    public IMatrix4Immutable getMatrix() {
+        return IMatrix4.SIDE_TURN_ROTATIONS.get(this.ordinal());
+    }
+
+    private double pick(int axis, double x, double y, double z) {
+        var offset = this.ordinal() * 3 + axis;
+        var from = AXES[offset];
+        // Adding zero turns a negated zero back into a positive one, matching what multiplying by the matrix gives.
+        return SIGNS[offset] * (from == 0 ? x : from == 1 ? y : z) + 0D;
+    }
+
+    private double transformX(double x, double y, double z) {
+        return this.pick(0, x, y, z);
+    }
+
+    private double transformY(double x, double y, double z) {
+        return this.pick(1, x, y, z);
+    }
+
+    private double transformZ(double x, double y, double z) {
+        return this.pick(2, x, y, z);
+    }
+
+    private int pick(int axis, int x, int y, int z) {
+        var offset = this.ordinal() * 3 + axis;
+        var from = AXES[offset];
+        return SIGNS[offset] * (from == 0 ? x : from == 1 ? y : z);
+    }
+
+    /**
+     * Transforms the given direction by this orientation.
+     *
+     * @param direction The direction to transform.
+     * @return The transformed direction.
+     */
+    @NotNull
+    public Direction transformDirection(@NotNull Direction direction) {
+        return DIRECTIONS[this.ordinal() * 6 + direction.ordinal()];
+    }
+
+    /**
+     * Transforms the given direction by the inverse of this orientation, turning a direction in the world into one relative to
+     * the block.
+     *
+     * @param direction The direction to transform.
+     * @return The transformed direction.
+     */
+    @NotNull
+    public Direction inverseTransformDirection(@NotNull Direction direction) {
+        return INVERSE_DIRECTIONS[this.ordinal() * 6 + direction.ordinal()];
+    }
+
+    /**
+     * Transforms the given cull face by this orientation, {@link CullFace#NONE} is left as is.
+     *
+     * @param face The cull face to transform.
+     * @return The transformed cull face.
+     */
+    @NotNull
+    public CullFace transformCullFace(@NotNull CullFace face) {
+        if (face == CullFace.NONE) {
+            return CullFace.NONE;
+        }
+        return CullFace.fromIndex(DIRECTIONS[this.ordinal() * 6 + face.getIndex()].get3DDataValue());
+    }
+
+    /**
+     * Transforms the given position vector by this orientation, storing the result in the given vector.
+     *
+     * @param position The vector to transform.
+     * @return The given vector.
+     */
+    @NotNull
+    public IVector3Mutable transformPos(@NotNull IVector3Mutable position) {
+        var x = position.x();
+        var y = position.y();
+        var z = position.z();
+        return position.set(this.transformX(x, y, z), this.transformY(x, y, z), this.transformZ(x, y, z));
+    }
+
+    /**
+     * Transforms the given position vector by this orientation, storing the result in a new vector.
+     *
+     * @param position The vector to transform.
+     * @return The new vector.
+     */
+    @NotNull
+    public IVector3Immutable transformPosImmutable(@NotNull IVector3 position) {
+        var x = position.x();
+        var y = position.y();
+        var z = position.z();
+        return IVector3Immutable.of(this.transformX(x, y, z), this.transformY(x, y, z), this.transformZ(x, y, z));
+    }
+
+    /**
+     * Transforms the given position vector by this orientation, storing the result in the given vector.
+     *
+     * @param position The vector to transform.
+     * @return The given vector.
+     */
+    @NotNull
+    public IVector3FMutable transformPos(@NotNull IVector3FMutable position) {
+        double x = position.x();
+        double y = position.y();
+        double z = position.z();
+        return position.set((float) this.transformX(x, y, z), (float) this.transformY(x, y, z), (float) this.transformZ(x, y, z));
+    }
+
+    /**
+     * Transforms the given position vector by this orientation, storing the result in a new vector.
+     *
+     * @param position The vector to transform.
+     * @return The new vector.
+     */
+    @NotNull
+    public IVector3FImmutable transformPosImmutable(@NotNull IVector3F position) {
+        double x = position.x();
+        double y = position.y();
+        double z = position.z();
+        return IVector3FImmutable.of((float) this.transformX(x, y, z), (float) this.transformY(x, y, z), (float) this.transformZ(x, y, z));
+    }
+
+    /**
+     * Transforms the given integer vector by this orientation, like an offset between two block positions, storing the result in
+     * the given vector.
+     *
+     * @param position The vector to transform.
+     * @return The given vector.
+     */
+    @NotNull
+    public IVector3iMutable transformPos(@NotNull IVector3iMutable position) {
+        var x = position.x();
+        var y = position.y();
+        var z = position.z();
+        return position.set(this.pick(0, x, y, z), this.pick(1, x, y, z), this.pick(2, x, y, z));
+    }
+
+    /**
+     * Transforms the given integer vector by this orientation, like an offset between two block positions, storing the result in
+     * a new vector.
+     *
+     * @param position The vector to transform.
+     * @return The new vector.
+     */
+    @NotNull
+    public IVector3iImmutable transformPosImmutable(@NotNull IVector3i position) {
+        var x = position.x();
+        var y = position.y();
+        var z = position.z();
+        return IVector3iImmutable.of(this.pick(0, x, y, z), this.pick(1, x, y, z), this.pick(2, x, y, z));
+    }
+
+    /**
+     * Transforms the given normal vector by this orientation, storing the result in the given vector.
+     * <p>
+     * Rotations keep the length of a vector, so unlike {@link ITrans3#transformNormal(IVector3Mutable)} the result isn't
+     * normalized again.
+     *
+     * @param normal The vector to transform.
+     * @return The given vector.
+     */
+    @NotNull
+    public IVector3Mutable transformNormal(@NotNull IVector3Mutable normal) {
+        return this.transformPos(normal);
+    }
+
+    /**
+     * Transforms the given normal vector by this orientation, storing the result in a new vector.
+     *
+     * @param normal The vector to transform.
+     * @return The new vector.
+     */
+    @NotNull
+    public IVector3Immutable transformNormalImmutable(@NotNull IVector3 normal) {
+        return this.transformPosImmutable(normal);
+    }
+
+    /**
+     * Transforms the given normal vector by this orientation, storing the result in the given vector.
+     *
+     * @param normal The vector to transform.
+     * @return The given vector.
+     */
+    @NotNull
+    public IVector3FMutable transformNormal(@NotNull IVector3FMutable normal) {
+        return this.transformPos(normal);
+    }
+
+    /**
+     * Transforms the given normal vector by this orientation, storing the result in a new vector.
+     *
+     * @param normal The vector to transform.
+     * @return The new vector.
+     */
+    @NotNull
+    public IVector3FImmutable transformNormalImmutable(@NotNull IVector3F normal) {
+        return this.transformPosImmutable(normal);
+    }
+}
@@ -1,7 +1,125 @@
 package com.tridevmc.architecture.core.math;
 
+import com.tridevmc.architecture.core.math.floating.IVector3F;
+import com.tridevmc.architecture.core.math.floating.IVector3FImmutable;
+import com.tridevmc.architecture.core.math.floating.IVector3FMutable;
+import com.tridevmc.architecture.core.model.mesh.CullFace;
+import net.minecraft.core.Direction;
+import org.jetbrains.annotations.NotNull;
+
 record Trans3(IMatrix4Immutable matrix) implements ITrans3Immutable {
     record Mutable(IMatrix4Mutable matrix) implements ITrans3Mutable {
 
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ITrans3Immutable trans)) return false;
+        return this.matrix.equals(trans.matrix());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.matrix.hashCode();
+    }
+
+    /**
+     * The transform of an {@link Orientation}, only created once per orientation by {@link Orientation#asTrans()}.
+     * <p>
+     * Transforms skip the matrix entirely, but equality and hashing still come from the matrix so an oriented transform equals
+     * any other immutable transform with the same matrix. The hash of the matrix is worked out once when the transform is created.
+     *
+     * @param orientation The orientation of the transform.
+     * @param matrixHash  The hash of the matrix of the orientation.
+     */
+    record Oriented(Orientation orientation, int matrixHash) implements ITrans3Immutable {
+
+        Oriented(Orientation orientation) {
+            this(orientation, orientation.getMatrix().hashCode());
+        }
+
+        @Override
+        public IMatrix4Immutable matrix() {
+            return this.orientation.getMatrix();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o instanceof Oriented oriented) return this.orientation == oriented.orientation;
+            if (!(o instanceof ITrans3Immutable trans)) return false;
+            return this.matrix().equals(trans.matrix());
+        }
+
+        @Override
+        public int hashCode() {
+            return this.matrixHash;
+        }
+
+        @Override
+        public boolean isIdentity() {
+            return this.orientation == Orientation.IDENTITY;
+        }
+
+        @Override
+        @NotNull
+        public IVector3Mutable transformPos(@NotNull IVector3Mutable position) {
+            return this.orientation.transformPos(position);
+        }
+
+        @Override
+        @NotNull
+        public IVector3Immutable transformPosImmutable(@NotNull IVector3 position) {
+            return this.orientation.transformPosImmutable(position);
+        }
+
+        @Override
+        @NotNull
+        public IVector3FMutable transformPos(@NotNull IVector3FMutable position) {
+            return this.orientation.transformPos(position);
+        }
+
+        @Override
+        @NotNull
+        public IVector3FImmutable transformPosImmutable(@NotNull IVector3F position) {
+            return this.orientation.transformPosImmutable(position);
+        }
+
+        @Override
+        @NotNull
+        public IVector3Mutable transformNormal(@NotNull IVector3Mutable normal) {
+            return this.orientation.transformNormal(normal);
+        }
+
+        @Override
+        @NotNull
+        public IVector3Immutable transformNormalImmutable(@NotNull IVector3 normal) {
+            return this.orientation.transformNormalImmutable(normal);
+        }
+
+        @Override
+        @NotNull
+        public IVector3FMutable transformNormal(@NotNull IVector3FMutable normal) {
+            return this.orientation.transformNormal(normal);
+        }
+
+        @Override
+        @NotNull
+        public IVector3FImmutable transformNormalImmutable(@NotNull IVector3F normal) {
+            return this.orientation.transformNormalImmutable(normal);
+        }
+
+        @Override
+        @NotNull
+        public Direction transformDirection(@NotNull Direction direction) {
+            return this.orientation.transformDirection(direction);
+        }
+
+        @Override
+        @NotNull
+        public CullFace transformCullFace(@NotNull CullFace face) {
+            return this.orientation.transformCullFace(face);
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package com.tridevmc.architecture.core.model;
+
+import com.google.common.hash.HashCode;
+import com.tridevmc.architecture.core.ArchitectureLog;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Provides access to the voxelization results computed at build time and shipped alongside the models in the jar.
+ * <p>
+ * Each entry records the hash of the model it was computed from and the version of the voxelizer that produced it,
+ * entries that don't match the model that was actually loaded (e.g. because it was overridden) are ignored so the
+ * caller can fall back to voxelizing the model itself.
+ */
+public class PrecomputedVoxels {
+
+    /**
+     * The suffix appended to the source path of a model to find its precomputed voxels.
+     */
+    public static final String SUFFIX = ".voxels";
+
+    private static final int MAGIC = 0x564F5842;
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Gets the path of the precomputed voxels for the model at the given source path.
+     *
+     * @param sourcePath The path of the OBJSON source file.
+     * @return The path of the precomputed voxels.
+     */
+    public static String getPrecomputedPath(String sourcePath) {
+        return sourcePath + SUFFIX;
+    }
+
+    /**
+     * Attempts to load the precomputed voxels for the model at the given source path.
+     *
+     * @param sourcePath       The path of the OBJSON source file.
+     * @param sourceHash       The hash of the model data that was loaded.
+     * @param voxelizerVersion The version of the voxelizer that would otherwise be used.
+     * @param resolution       The resolution the model would otherwise be voxelized at.
+     * @return The precomputed voxels, or null if there are none that match the given model.
+     */
+    @Nullable
+    public static VoxelBoxes load(@NotNull String sourcePath, @NotNull HashCode sourceHash, int voxelizerVersion, int resolution) {
+        var path = getPrecomputedPath(sourcePath);
+        var in = PrecomputedVoxels.class.getResourceAsStream(path);
+        if (in == null) {
+            return null;
+        }
+        try (in) {
+            var boxes = read(in, sourceHash, voxelizerVersion);
+            if (boxes == null || boxes.resolution() != resolution) {
+                ArchitectureLog.debug("Ignoring stale precomputed voxels for '{}'", sourcePath);
+                return null;
+            }
+            return boxes;
+        } catch (IOException e) {
+            ArchitectureLog.warn("Failed to read precomputed voxels for '{}', ignoring them", sourcePath);
+            return null;
+        }
+    }
+
+    /**
+     * Reads an entry written with {@link #write(OutputStream, HashCode, int, VoxelBoxes)}.
+     *
+     * @param in               The stream to read from, the stream is not closed.
+     * @param sourceHash       The hash the entry is expected to have been computed from.
+     * @param voxelizerVersion The version of the voxelizer the entry is expected to have been computed with.
+     * @return The boxes stored in the entry, or null if the entry doesn't match the given hash and version.
+     * @throws IOException If the stream could not be read or does not contain precomputed voxels.
+     */
+    @Nullable
+    public static VoxelBoxes read(@NotNull InputStream in, @NotNull HashCode sourceHash, int voxelizerVersion) throws IOException {
+        var data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readUnsignedByte() != FORMAT_VERSION) {
+            throw new IOException("Invalid precomputed voxels header");
+        }
+        var hash = new byte[data.readUnsignedByte()];
+        data.readFully(hash);
+        if (data.readInt() != voxelizerVersion || !Arrays.equals(hash, sourceHash.asBytes())) {
+            return null;
+        }
+        return VoxelBoxes.read(data);
+    }
+
+    /**
+     * Writes an entry for the given voxels.
+     *
+     * @param out              The stream to write to, the stream is not closed.
+     * @param sourceHash       The hash of the model data the voxels were computed from.
+     * @param voxelizerVersion The version of the voxelizer the voxels were computed with.
+     * @param boxes            The voxels to write.
+     * @throws IOException If the stream could not be written to.
+     */
+    public static void write(@NotNull OutputStream out, @NotNull HashCode sourceHash, int voxelizerVersion, @NotNull VoxelBoxes boxes) throws IOException {
+        var data = new DataOutputStream(out);
+        var hash = sourceHash.asBytes();
+        data.writeInt(MAGIC);
+        data.writeByte(FORMAT_VERSION);
+        data.writeByte(hash.length);
+        data.write(hash);
+        data.writeInt(voxelizerVersion);
+        boxes.write(data);
+        data.flush();
+    }
+
+}
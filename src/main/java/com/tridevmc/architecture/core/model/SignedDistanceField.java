@@ -0,0 +1,358 @@
+package com.tridevmc.architecture.core.model;
+
+import com.google.common.base.MoreObjects;
+import com.tridevmc.architecture.core.math.IVector3;
+import com.tridevmc.architecture.core.math.IVector3Immutable;
+import com.tridevmc.architecture.core.model.mesh.IMesh;
+import com.tridevmc.architecture.core.model.mesh.IPolygonData;
+import com.tridevmc.architecture.core.physics.AABB;
+import com.tridevmc.architecture.core.physics.IAABB;
+import com.tridevmc.architecture.core.physics.WindingNumber;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The signed distance from a mesh sampled on a regular grid, negative inside the mesh and positive outside of it.
+ * <p>
+ * Samples sit on the corners of a grid of cubes with the given number of cubes per 1 unit of length, covering the bounds of
+ * the mesh plus a margin of {@link #PADDING} cubes on each side. Values in between samples are found by trilinear interpolation,
+ * so once built any inside test or distance query is a handful of array reads instead of a search through the polygons of the mesh.
+ * <p>
+ * Fields are built with {@link #of(IMesh, int)}, which also keeps them in the {@link VoxelCache} next to the voxels of the mesh.
+ */
+public final class SignedDistanceField {
+
+    /**
+     * The version of the way fields are built, bump this whenever a change would produce different samples so cached fields are discarded.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The number of cubes added around the bounds of the mesh, so the surface never lies on the edge of the grid.
+     */
+    public static final int PADDING = 2;
+
+    private final int resolution;
+    private final int originX, originY, originZ;
+    private final int sizeX, sizeY, sizeZ;
+    private final float[] distances;
+
+    /**
+     * Creates a field from existing samples.
+     *
+     * @param resolution The number of cubes per 1 unit of length.
+     * @param originX    The X coordinate of the first sample, in cubes.
+     * @param originY    The Y coordinate of the first sample, in cubes.
+     * @param originZ    The Z coordinate of the first sample, in cubes.
+     * @param sizeX      The number of samples along the X axis.
+     * @param sizeY      The number of samples along the Y axis.
+     * @param sizeZ      The number of samples along the Z axis.
+     * @param distances  The samples, X varies fastest followed by Y and then Z.
+     */
+    public SignedDistanceField(int resolution, int originX, int originY, int originZ, int sizeX, int sizeY, int sizeZ, @NotNull float[] distances) {
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("Resolution must be positive, got %s".formatted(resolution));
+        }
+        if (sizeX < 2 || sizeY < 2 || sizeZ < 2) {
+            throw new IllegalArgumentException("A field needs at least 2 samples along each axis, got %s x %s x %s".formatted(sizeX, sizeY, sizeZ));
+        }
+        if (distances.length != sizeX * sizeY * sizeZ) {
+            throw new IllegalArgumentException("Expected %s samples, got %s".formatted(sizeX * sizeY * sizeZ, distances.length));
+        }
+        this.resolution = resolution;
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.distances = distances;
+    }
+
+    /**
+     * Gets the field of the given mesh from the cache, building and caching it if it isn't there.
+     *
+     * @param mesh       The mesh to build the field of.
+     * @param resolution The number of cubes per 1 unit of length, 32 is plenty for the shapes of a single block.
+     * @return The field of the mesh.
+     */
+    public static SignedDistanceField of(@NotNull IMesh<?, ? extends IPolygonData<?>> mesh, int resolution) {
+        var key = VoxelCache.createKey("core/sdf", VoxelCache.hashMesh(mesh), resolution, VERSION);
+        var cached = VoxelCache.get(key, SignedDistanceField::read);
+        if (cached != null) {
+            return cached;
+        }
+        var field = build(mesh, resolution);
+        VoxelCache.put(key, field::write);
+        return field;
+    }
+
+    /**
+     * Builds the field of the given mesh, the distance of each sample comes from the nearest polygon in the tree of the mesh
+     * and its sign from the winding number of the mesh.
+     *
+     * @param mesh       The mesh to build the field of.
+     * @param resolution The number of cubes per 1 unit of length.
+     * @return The field of the mesh.
+     */
+    public static <I, D extends IPolygonData<D>> SignedDistanceField build(@NotNull IMesh<I, D> mesh, int resolution) {
+        var bounds = mesh.getBounds();
+        var originX = (int) Math.floor(bounds.minX() * resolution) - PADDING;
+        var originY = (int) Math.floor(bounds.minY() * resolution) - PADDING;
+        var originZ = (int) Math.floor(bounds.minZ() * resolution) - PADDING;
+        var sizeX = (int) Math.ceil(bounds.maxX() * resolution) + PADDING - originX + 1;
+        var sizeY = (int) Math.ceil(bounds.maxY() * resolution) + PADDING - originY + 1;
+        var sizeZ = (int) Math.ceil(bounds.maxZ() * resolution) + PADDING - originZ + 1;
+
+        var tree = mesh.getAABBTree();
+        var windingNumber = WindingNumber.of(mesh);
+        var distances = new float[sizeX * sizeY * sizeZ];
+        var spacing = 1D / resolution;
+        var i = 0;
+        for (var z = 0; z < sizeZ; z++) {
+            for (var y = 0; y < sizeY; y++) {
+                var inside = false;
+                var previousDistance = 0D;
+                for (var x = 0; x < sizeX; x++) {
+                    var px = (double) (originX + x) / resolution;
+                    var py = (double) (originY + y) / resolution;
+                    var pz = (double) (originZ + z) / resolution;
+                    var nearest = tree.findNearest(px, py, pz, p -> p.distanceSquaredTo(px, py, pz));
+                    var distance = nearest == null ? Double.POSITIVE_INFINITY : Math.sqrt(nearest.distanceSquaredTo(px, py, pz));
+                    // Nothing lies within the distance of the previous sample, so if that reaches this sample the surface can't
+                    // be between them and the sign carries over without another winding number query.
+                    if (x == 0 || previousDistance <= spacing) {
+                        inside = windingNumber.isInside(px, py, pz);
+                    }
+                    previousDistance = distance;
+                    distances[i++] = (float) (inside ? -distance : distance);
+                }
+            }
+        }
+        return new SignedDistanceField(resolution, originX, originY, originZ, sizeX, sizeY, sizeZ, distances);
+    }
+
+    /**
+     * Gets the signed distance from the mesh at the given point.
+     * <p>
+     * Points outside the grid are measured to the closest point on the edge of the grid, plus the distance sampled there.
+     * That's never less than the true distance, but can be a fair bit more for points far from the grid.
+     *
+     * @param x The X coordinate of the point.
+     * @param y The Y coordinate of the point.
+     * @param z The Z coordinate of the point.
+     * @return The interpolated distance, negative inside the mesh and positive outside of it.
+     */
+    public double sample(double x, double y, double z) {
+        var gx = this.toGrid(x, this.originX, this.sizeX);
+        var gy = this.toGrid(y, this.originY, this.sizeY);
+        var gz = this.toGrid(z, this.originZ, this.sizeZ);
+        var outsideX = (gx - (x * this.resolution - this.originX)) / this.resolution;
+        var outsideY = (gy - (y * this.resolution - this.originY)) / this.resolution;
+        var outsideZ = (gz - (z * this.resolution - this.originZ)) / this.resolution;
+
+        var ix = cell(gx, this.sizeX);
+        var iy = cell(gy, this.sizeY);
+        var iz = cell(gz, this.sizeZ);
+        var tx = gx - ix;
+        var ty = gy - iy;
+        var tz = gz - iz;
+        var i = this.getIndex(ix, iy, iz);
+        var strideY = this.sizeX;
+        var strideZ = this.sizeX * this.sizeY;
+        var c00 = lerp(this.distances[i], this.distances[i + 1], tx);
+        var c10 = lerp(this.distances[i + strideY], this.distances[i + strideY + 1], tx);
+        var c01 = lerp(this.distances[i + strideZ], this.distances[i + strideZ + 1], tx);
+        var c11 = lerp(this.distances[i + strideZ + strideY], this.distances[i + strideZ + strideY + 1], tx);
+        var inside = lerp(lerp(c00, c10, ty), lerp(c01, c11, ty), tz);
+        return inside + Math.sqrt(outsideX * outsideX + outsideY * outsideY + outsideZ * outsideZ);
+    }
+
+    /**
+     * Gets the signed distance from the mesh at the given point.
+     *
+     * @param point The point.
+     * @return The interpolated distance, negative inside the mesh and positive outside of it.
+     * @see #sample(double, double, double)
+     */
+    public double sample(@NotNull IVector3 point) {
+        return this.sample(point.x(), point.y(), point.z());
+    }
+
+    /**
+     * Gets the gradient of the field at the given point, the derivative of the trilinear interpolation within the cube the point is in.
+     * <p>
+     * Away from the middle of the mesh the gradient points away from the nearest surface and has a length close to one,
+     * points outside the grid use the gradient at the closest point on its edge.
+     *
+     * @param x The X coordinate of the point.
+     * @param y The Y coordinate of the point.
+     * @param z The Z coordinate of the point.
+     * @return The gradient of the field.
+     */
+    public IVector3Immutable gradient(double x, double y, double z) {
+        var gx = this.toGrid(x, this.originX, this.sizeX);
+        var gy = this.toGrid(y, this.originY, this.sizeY);
+        var gz = this.toGrid(z, this.originZ, this.sizeZ);
+        var ix = cell(gx, this.sizeX);
+        var iy = cell(gy, this.sizeY);
+        var iz = cell(gz, this.sizeZ);
+        var tx = gx - ix;
+        var ty = gy - iy;
+        var tz = gz - iz;
+        var i = this.getIndex(ix, iy, iz);
+        var strideY = this.sizeX;
+        var strideZ = this.sizeX * this.sizeY;
+        double d000 = this.distances[i], d100 = this.distances[i + 1];
+        double d010 = this.distances[i + strideY], d110 = this.distances[i + strideY + 1];
+        double d001 = this.distances[i + strideZ], d101 = this.distances[i + strideZ + 1];
+        double d011 = this.distances[i + strideZ + strideY], d111 = this.distances[i + strideZ + strideY + 1];
+
+        var dx = lerp(lerp(d100 - d000, d110 - d010, ty), lerp(d101 - d001, d111 - d011, ty), tz);
+        var dy = lerp(lerp(d010 - d000, d110 - d100, tx), lerp(d011 - d001, d111 - d101, tx), tz);
+        var dz = lerp(lerp(d001 - d000, d101 - d100, tx), lerp(d011 - d010, d111 - d110, tx), ty);
+        return IVector3.ofImmutable(dx * this.resolution, dy * this.resolution, dz * this.resolution);
+    }
+
+    /**
+     * Gets the gradient of the field at the given point.
+     *
+     * @param point The point.
+     * @return The gradient of the field.
+     * @see #gradient(double, double, double)
+     */
+    public IVector3Immutable gradient(@NotNull IVector3 point) {
+        return this.gradient(point.x(), point.y(), point.z());
+    }
+
+    /**
+     * Checks if the given point is inside the mesh according to the field.
+     *
+     * @param x The X coordinate of the point.
+     * @param y The Y coordinate of the point.
+     * @param z The Z coordinate of the point.
+     * @return True if the interpolated distance at the point is negative, false otherwise.
+     */
+    public boolean isInside(double x, double y, double z) {
+        return this.sample(x, y, z) < 0;
+    }
+
+    /**
+     * Checks if the surface of the mesh might pass through the given box, using a single sample at its center.
+     * <p>
+     * Interpolating between samples of a closed mesh is off by at most the diagonal of a cube, as no sample is further than that
+     * from the point, so boxes are only rejected when the distance at their center is larger than that plus half their own diagonal. Meshes with holes can be off by more
+     * where the sign of the samples flips across a hole. A result of false means the box is certainly entirely
+     * inside or entirely outside the mesh, which {@link #isInside(double, double, double)} at its center tells apart.
+     *
+     * @param box The box to check.
+     * @return True if the surface might pass through the box, false if it certainly doesn't.
+     */
+    public boolean mayIntersectSurface(@NotNull IAABB box) {
+        var bounds = this.getBounds();
+        if (!bounds.contains(box.centerX(), box.centerY(), box.centerZ())) {
+            // Samples outside the grid are only an upper bound on the distance, but the mesh never comes closer than the padding to its edge.
+            var padding = (double) PADDING / this.resolution;
+            return box.intersects(bounds.deflate(padding * 2));
+        }
+        var halfDiagonal = Math.sqrt(box.getXSize() * box.getXSize() + box.getYSize() * box.getYSize() + box.getZSize() * box.getZSize()) / 2;
+        var tolerance = Math.sqrt(3) / this.resolution;
+        return Math.abs(this.sample(box.centerX(), box.centerY(), box.centerZ())) <= halfDiagonal + tolerance;
+    }
+
+    /**
+     * Gets the bounds covered by the samples of this field.
+     *
+     * @return The bounds of the grid.
+     */
+    public AABB getBounds() {
+        double res = this.resolution;
+        return new AABB(this.originX / res, this.originY / res, this.originZ / res,
+                (this.originX + this.sizeX - 1) / res, (this.originY + this.sizeY - 1) / res, (this.originZ + this.sizeZ - 1) / res);
+    }
+
+    public int getResolution() {
+        return this.resolution;
+    }
+
+    /**
+     * Converts a coordinate to a position on the grid in samples, clamped to the edges of the grid.
+     */
+    private double toGrid(double value, int origin, int size) {
+        return Math.max(0, Math.min(size - 1, value * this.resolution - origin));
+    }
+
+    /**
+     * Gets the index of the cube containing the given position on the grid, the last sample belongs to the cube before it.
+     */
+    private static int cell(double position, int size) {
+        return Math.min((int) position, size - 2);
+    }
+
+    private static double lerp(double from, double to, double t) {
+        return from + (to - from) * t;
+    }
+
+    private int getIndex(int x, int y, int z) {
+        return (z * this.sizeY + y) * this.sizeX + x;
+    }
+
+    /**
+     * Writes this field to the given output.
+     *
+     * @param out The output to write to.
+     * @throws IOException If the output could not be written to.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(this.resolution);
+        out.writeInt(this.originX);
+        out.writeInt(this.originY);
+        out.writeInt(this.originZ);
+        out.writeInt(this.sizeX);
+        out.writeInt(this.sizeY);
+        out.writeInt(this.sizeZ);
+        for (var distance : this.distances) {
+            out.writeFloat(distance);
+        }
+    }
+
+    /**
+     * Reads a field previously written with {@link #write(DataOutput)}.
+     *
+     * @param in The input to read from.
+     * @return The field that was read.
+     * @throws IOException If the input could not be read from.
+     */
+    public static SignedDistanceField read(DataInput in) throws IOException {
+        var resolution = in.readInt();
+        var originX = in.readInt();
+        var originY = in.readInt();
+        var originZ = in.readInt();
+        var sizeX = in.readInt();
+        var sizeY = in.readInt();
+        var sizeZ = in.readInt();
+        if (sizeX < 2 || sizeY < 2 || sizeZ < 2 || (long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE) {
+            throw new IOException("Invalid field size %s x %s x %s".formatted(sizeX, sizeY, sizeZ));
+        }
+        var distances = new float[sizeX * sizeY * sizeZ];
+        for (var i = 0; i < distances.length; i++) {
+            distances[i] = in.readFloat();
+        }
+        try {
+            return new SignedDistanceField(resolution, originX, originY, originZ, sizeX, sizeY, sizeZ, distances);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("resolution", this.resolution)
+                .add("size", "%s x %s x %s".formatted(this.sizeX, this.sizeY, this.sizeZ))
+                .toString();
+    }
+}
@@ -0,0 +1,200 @@
+package com.tridevmc.architecture.core.model;
+
+import com.google.common.base.MoreObjects;
+import com.tridevmc.architecture.core.physics.AABB;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact list of boxes produced by voxelizing a mesh, stored as integer voxel coordinates.
+ * <p>
+ * Used to move voxelization results between the voxelizers, the precomputed data shipped in the jar and the on-disk cache.
+ *
+ * @param resolution The resolution of the voxel grid, in terms of voxels per 1 unit of length.
+ * @param coords     The coordinates of the boxes, six values per box in the order minX, minY, minZ, maxX, maxY, maxZ.
+ */
+public record VoxelBoxes(int resolution, int[] coords) {
+
+    public VoxelBoxes {
+        if (coords.length % 6 != 0) {
+            throw new IllegalArgumentException("Box coordinates must be a multiple of 6, got " + coords.length);
+        }
+    }
+
+    /**
+     * Gets the number of boxes in this list.
+     *
+     * @return The number of boxes.
+     */
+    public int size() {
+        return this.coords.length / 6;
+    }
+
+    /**
+     * Checks if this list contains no boxes.
+     *
+     * @return True if there are no boxes, false otherwise.
+     */
+    public boolean isEmpty() {
+        return this.coords.length == 0;
+    }
+
+    /**
+     * Gets the box at the given index, scaled back into model space.
+     *
+     * @param index The index of the box.
+     * @return The box at the given index.
+     */
+    public AABB getBox(int index) {
+        var i = index * 6;
+        double scale = this.resolution;
+        return new AABB(
+                this.coords[i] / scale, this.coords[i + 1] / scale, this.coords[i + 2] / scale,
+                this.coords[i + 3] / scale, this.coords[i + 4] / scale, this.coords[i + 5] / scale
+        );
+    }
+
+    /**
+     * Converts this list into boxes in model space.
+     *
+     * @return The boxes in model space.
+     */
+    public List<AABB> toAABBs() {
+        var out = new ArrayList<AABB>(this.size());
+        for (var i = 0; i < this.size(); i++) {
+            out.add(this.getBox(i));
+        }
+        return out;
+    }
+
+    /**
+     * Writes this list to the given output.
+     *
+     * @param out The output to write to.
+     * @throws IOException If the output could not be written to.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(this.resolution);
+        out.writeInt(this.size());
+        for (var coord : this.coords) {
+            out.writeInt(coord);
+        }
+    }
+
+    /**
+     * Reads a list previously written with {@link #write(DataOutput)}.
+     *
+     * @param in The input to read from.
+     * @return The list that was read.
+     * @throws IOException If the input could not be read from.
+     */
+    public static VoxelBoxes read(DataInput in) throws IOException {
+        var resolution = in.readInt();
+        var coords = new int[in.readInt() * 6];
+        for (var i = 0; i < coords.length; i++) {
+            coords[i] = in.readInt();
+        }
+        return new VoxelBoxes(resolution, coords);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VoxelBoxes that)) return false;
+        return this.resolution == that.resolution && Arrays.equals(this.coords, that.coords);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.resolution + Arrays.hashCode(this.coords);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("resolution", this.resolution)
+                .add("boxes", this.size())
+                .toString();
+    }
+
+    /**
+     * Builder for {@link VoxelBoxes} instances.
+     */
+    public static class Builder {
+        private final int resolution;
+        private final IntArrayList coords = new IntArrayList();
+
+        /**
+         * Creates a new builder for boxes at the given resolution.
+         *
+         * @param resolution The resolution of the voxel grid, in terms of voxels per 1 unit of length.
+         */
+        public Builder(int resolution) {
+            this.resolution = resolution;
+        }
+
+        /**
+         * Adds a box in voxel coordinates.
+         *
+         * @param minX The minimum X coordinate of the box, in voxels.
+         * @param minY The minimum Y coordinate of the box, in voxels.
+         * @param minZ The minimum Z coordinate of the box, in voxels.
+         * @param maxX The maximum X coordinate of the box, in voxels.
+         * @param maxY The maximum Y coordinate of the box, in voxels.
+         * @param maxZ The maximum Z coordinate of the box, in voxels.
+         * @return This builder.
+         */
+        public Builder addVoxelBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            this.coords.add(minX);
+            this.coords.add(minY);
+            this.coords.add(minZ);
+            this.coords.add(maxX);
+            this.coords.add(maxY);
+            this.coords.add(maxZ);
+            return this;
+        }
+
+        /**
+         * Adds a box in model space, snapping its bounds to the voxel grid.
+         *
+         * @param minX The minimum X coordinate of the box.
+         * @param minY The minimum Y coordinate of the box.
+         * @param minZ The minimum Z coordinate of the box.
+         * @param maxX The maximum X coordinate of the box.
+         * @param maxY The maximum Y coordinate of the box.
+         * @param maxZ The maximum Z coordinate of the box.
+         * @return This builder.
+         */
+        public Builder addBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            return this.addVoxelBox(
+                    (int) Math.round(minX * this.resolution), (int) Math.round(minY * this.resolution), (int) Math.round(minZ * this.resolution),
+                    (int) Math.round(maxX * this.resolution), (int) Math.round(maxY * this.resolution), (int) Math.round(maxZ * this.resolution)
+            );
+        }
+
+        /**
+         * Adds a box in model space, snapping its bounds to the voxel grid.
+         *
+         * @param box The box to add.
+         * @return This builder.
+         */
+        public Builder addBox(AABB box) {
+            return this.addBox(box.minX(), box.minY(), box.minZ(), box.maxX(), box.maxY(), box.maxZ());
+        }
+
+        /**
+         * Builds a new {@link VoxelBoxes} instance.
+         *
+         * @return The new list of boxes.
+         */
+        public VoxelBoxes build() {
+            return new VoxelBoxes(this.resolution, this.coords.toIntArray());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.tridevmc.architecture.core.model;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.tridevmc.architecture.core.ArchitectureLog;
+import com.tridevmc.architecture.core.model.mesh.IMesh;
+import com.tridevmc.architecture.core.model.mesh.IPolygonData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent on-disk cache of voxelization results, used for models that have no precomputed voxels such as
+ * models supplied or overridden at runtime.
+ * <p>
+ * Entries are keyed by a hash of the model content, the voxel resolution and the version of the voxelizer that produced them,
+ * so any change to one of those simply results in a different key. Each entry also carries a checksum of its contents,
+ * entries that fail validation are deleted and treated as missing.
+ * <p>
+ * The cache is disabled until a directory has been set with {@link #setDirectory(Path)}.
+ */
+public class VoxelCache {
+
+    private static final int MAGIC = 0x56435848;
+    private static final int FORMAT_VERSION = 1;
+    private static final String EXTENSION = ".voxels";
+
+    private static volatile Path directory;
+
+    /**
+     * Sets the directory the cache is stored in, or disables the cache if null.
+     *
+     * @param directory The directory to store the cache in.
+     */
+    public static void setDirectory(@Nullable Path directory) {
+        VoxelCache.directory = directory;
+    }
+
+    /**
+     * Creates the key used to store the voxels for a model.
+     *
+     * @param voxelizer        The name of the voxelizer producing the voxels, keeps different voxelizers from sharing entries.
+     * @param modelHash        The hash of the model content.
+     * @param resolution       The resolution of the voxel grid.
+     * @param voxelizerVersion The version of the voxelizer.
+     * @return The key for the entry.
+     */
+    public static HashCode createKey(@NotNull String voxelizer, @NotNull HashCode modelHash, int resolution, int voxelizerVersion) {
+        return Hashing.sha256().newHasher()
+                .putInt(FORMAT_VERSION)
+                .putString(voxelizer, StandardCharsets.UTF_8)
+                .putBytes(modelHash.asBytes())
+                .putInt(resolution)
+                .putInt(voxelizerVersion)
+                .hash();
+    }
+
+    /**
+     * Hashes the geometry of the given mesh, for meshes that weren't loaded from a single blob of model data.
+     *
+     * @param mesh The mesh to hash.
+     * @return The hash of the positions of every polygon in the mesh.
+     */
+    public static HashCode hashMesh(@NotNull IMesh<?, ? extends IPolygonData<?>> mesh) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        mesh.getFaceStream().forEach(face -> face.getPolygonStream().forEach(poly -> {
+            hasher.putInt(poly.getVertices().size());
+            for (var vertex : poly.getVertices()) {
+                hasher.putDouble(vertex.getX()).putDouble(vertex.getY()).putDouble(vertex.getZ());
+            }
+        }));
+        return hasher.hash();
+    }
+
+    /**
+     * Gets the voxels stored for the given key.
+     *
+     * @param key The key created with {@link #createKey(String, HashCode, int, int)}.
+     * @return The stored voxels, or null if the cache is disabled or has no valid entry for the key.
+     */
+    @Nullable
+    public static VoxelBoxes get(@NotNull HashCode key) {
+        return get(key, VoxelBoxes::read);
+    }
+
+    /**
+     * Gets the data stored for the given key, for entries holding something other than voxels such as a {@link SignedDistanceField}.
+     *
+     * @param key    The key created with {@link #createKey(String, HashCode, int, int)}.
+     * @param reader Reads the data back in the same format it was written in by {@link #put(HashCode, EntryWriter)}.
+     * @param <T>    The type of data stored.
+     * @return The stored data, or null if the cache is disabled or has no valid entry for the key.
+     */
+    @Nullable
+    public static <T> T get(@NotNull HashCode key, @NotNull EntryReader<T> reader) {
+        var file = getFile(key);
+        if (file == null) {
+            return null;
+        }
+
+        try (var in = new DataInputStream(Files.newInputStream(file))) {
+            var fileSize = Files.size(file);
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != FORMAT_VERSION) {
+                throw new IOException("Invalid voxel cache header");
+            }
+            var keyBytes = new byte[in.readUnsignedByte()];
+            in.readFully(keyBytes);
+            var payloadLength = in.readInt();
+            var checksum = in.readLong();
+            // The length comes from the file, so it's checked against what's actually left before anything is allocated for it.
+            var remaining = fileSize - (4 + 1 + 1 + keyBytes.length + 4 + 8);
+            if (payloadLength < 0 || payloadLength > remaining) {
+                throw new IOException("Invalid voxel cache payload length " + payloadLength);
+            }
+            var payload = new byte[payloadLength];
+            in.readFully(payload);
+
+            var crc = new CRC32();
+            crc.update(payload);
+            if (!Arrays.equals(keyBytes, key.asBytes()) || crc.getValue() != checksum) {
+                throw new IOException("Voxel cache entry failed validation");
+            }
+            return reader.read(new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            ArchitectureLog.warn("Discarding invalid voxel cache entry {}: {}", file, e.getMessage());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given voxels under the given key, failures are logged and otherwise ignored.
+     *
+     * @param key   The key created with {@link #createKey(String, HashCode, int, int)}.
+     * @param boxes The voxels to store.
+     */
+    public static void put(@NotNull HashCode key, @NotNull VoxelBoxes boxes) {
+        put(key, boxes::write);
+    }
+
+    /**
+     * Stores the data written by the given writer under the given key, failures are logged and otherwise ignored.
+     *
+     * @param key    The key created with {@link #createKey(String, HashCode, int, int)}.
+     * @param writer Writes the data to store.
+     */
+    public static void put(@NotNull HashCode key, @NotNull EntryWriter writer) {
+        var file = getFile(key);
+        if (file == null) {
+            return;
+        }
+
+        try {
+            var payload = new ByteArrayOutputStream();
+            writer.write(new DataOutputStream(payload));
+            var payloadBytes = payload.toByteArray();
+            var crc = new CRC32();
+            crc.update(payloadBytes);
+            var keyBytes = key.asBytes();
+
+            // Write to a temporary file first so concurrent readers never see a partially written entry.
+            Files.createDirectories(file.getParent());
+            var temp = Files.createTempFile(file.getParent(), key.toString(), ".tmp");
+            try {
+                try (var out = new DataOutputStream(Files.newOutputStream(temp))) {
+                    out.writeInt(MAGIC);
+                    out.writeByte(FORMAT_VERSION);
+                    out.writeByte(keyBytes.length);
+                    out.write(keyBytes);
+                    out.writeInt(payloadBytes.length);
+                    out.writeLong(crc.getValue());
+                    out.write(payloadBytes);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            ArchitectureLog.warn("Failed to write voxel cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    @Nullable
+    private static Path getFile(HashCode key) {
+        var dir = directory;
+        if (dir == null) {
+            return null;
+        }
+        var name = key.toString();
+        // Spread the entries over a few subdirectories to keep any single directory small.
+        return dir.resolve(name.substring(0, 2)).resolve(name + EXTENSION);
+    }
+
+    /**
+     * Reads the data of a cache entry.
+     *
+     * @param <T> The type of data read.
+     */
+    @FunctionalInterface
+    public interface EntryReader<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Writes the data of a cache entry.
+     */
+    @FunctionalInterface
+    public interface EntryWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.tridevmc.architecture.core.model;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.BitSet;
+
+/**
+ * A dense grid of occupied voxels, backed by a bitset with X as the fastest changing axis.
+ * <p>
+ * Used to merge the voxels found by a voxelizer into as few boxes as possible before they're handed out as collision shapes.
+ */
+public class VoxelGrid {
+
+    private final int originX, originY, originZ;
+    private final int sizeX, sizeY, sizeZ;
+    private final BitSet bits;
+
+    /**
+     * Creates a new empty grid.
+     *
+     * @param originX The X coordinate of the first voxel in the grid, in voxels.
+     * @param originY The Y coordinate of the first voxel in the grid, in voxels.
+     * @param originZ The Z coordinate of the first voxel in the grid, in voxels.
+     * @param sizeX   The number of voxels along the X axis.
+     * @param sizeY   The number of voxels along the Y axis.
+     * @param sizeZ   The number of voxels along the Z axis.
+     */
+    public VoxelGrid(int originX, int originY, int originZ, int sizeX, int sizeY, int sizeZ) {
+        if (sizeX < 0 || sizeY < 0 || sizeZ < 0) {
+            throw new IllegalArgumentException("Grid size must not be negative, got %sx%sx%s".formatted(sizeX, sizeY, sizeZ));
+        }
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.bits = new BitSet(sizeX * sizeY * sizeZ);
+    }
+
+    /**
+     * Checks if the voxel at the given coordinates is occupied.
+     *
+     * @param x The X coordinate of the voxel, in voxels.
+     * @param y The Y coordinate of the voxel, in voxels.
+     * @param z The Z coordinate of the voxel, in voxels.
+     * @return True if the voxel is occupied, false otherwise.
+     */
+    public boolean get(int x, int y, int z) {
+        return this.bits.get(this.index(x, y, z));
+    }
+
+    /**
+     * Sets whether the voxel at the given coordinates is occupied.
+     *
+     * @param x        The X coordinate of the voxel, in voxels.
+     * @param y        The Y coordinate of the voxel, in voxels.
+     * @param z        The Z coordinate of the voxel, in voxels.
+     * @param occupied True if the voxel is occupied, false otherwise.
+     */
+    public void set(int x, int y, int z, boolean occupied) {
+        this.bits.set(this.index(x, y, z), occupied);
+    }
+
+    /**
+     * Checks if the given coordinates are within the bounds of the grid.
+     *
+     * @param x The X coordinate of the voxel, in voxels.
+     * @param y The Y coordinate of the voxel, in voxels.
+     * @param z The Z coordinate of the voxel, in voxels.
+     * @return True if the grid has a voxel at the given coordinates, false otherwise.
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= this.originX && y >= this.originY && z >= this.originZ
+                && x < this.originX + this.sizeX && y < this.originY + this.sizeY && z < this.originZ + this.sizeZ;
+    }
+
+    /**
+     * Voxelizes every row of the grid in parallel on the {@link VoxelizerPool}, marking the voxels reported by the given function as occupied.
+     *
+     * @param rows The function used to voxelize each row of the grid, may be called from several threads at once.
+     * @throws java.util.concurrent.CancellationException If the voxelization was cancelled through {@link VoxelizerPool#cancel()}.
+     */
+    public void voxelize(VoxelSlabTask.RowVoxelizer rows) {
+        this.bits.or(VoxelizerPool.getPool().invoke(new VoxelSlabTask(this, rows)));
+    }
+
+    /**
+     * Voxelizes every layer of the grid in parallel on the {@link VoxelizerPool}, marking the voxels reported by the given function as occupied.
+     *
+     * @param layers The function used to voxelize each layer of the grid, may be called from several threads at once.
+     * @throws java.util.concurrent.CancellationException If the voxelization was cancelled through {@link VoxelizerPool#cancel()}.
+     */
+    public void voxelizeLayers(VoxelSlabTask.LayerVoxelizer layers) {
+        this.bits.or(VoxelizerPool.getPool().invoke(new VoxelSlabTask(this, layers)));
+    }
+
+    /**
+     * Marks every voxel whose index is set in the given bitset as occupied.
+     *
+     * @param occupied The voxels to mark as occupied, indexed as returned by {@link #getIndex(int, int, int)}.
+     */
+    public void setAll(BitSet occupied) {
+        this.bits.or(occupied);
+    }
+
+    /**
+     * Gets the index of the voxel at the given coordinates, X is the fastest changing axis followed by Y and then Z.
+     *
+     * @param x The X coordinate of the voxel, in voxels.
+     * @param y The Y coordinate of the voxel, in voxels.
+     * @param z The Z coordinate of the voxel, in voxels.
+     * @return The index of the voxel.
+     */
+    public int getIndex(int x, int y, int z) {
+        return this.index(x, y, z);
+    }
+
+    public int getOriginX() {
+        return this.originX;
+    }
+
+    public int getOriginY() {
+        return this.originY;
+    }
+
+    public int getOriginZ() {
+        return this.originZ;
+    }
+
+    public int getSizeX() {
+        return this.sizeX;
+    }
+
+    public int getSizeY() {
+        return this.sizeY;
+    }
+
+    public int getSizeZ() {
+        return this.sizeZ;
+    }
+
+    /**
+     * Gets the total number of voxels in the grid, occupied or not.
+     *
+     * @return The number of voxels.
+     */
+    public int size() {
+        return this.sizeX * this.sizeY * this.sizeZ;
+    }
+
+    /**
+     * Gets the number of occupied voxels in the grid.
+     *
+     * @return The number of occupied voxels.
+     */
+    public int count() {
+        return this.bits.cardinality();
+    }
+
+    /**
+     * Merges the occupied voxels into boxes using greedy meshing, each box is first grown along X, then across Y and finally across Z.
+     * <p>
+     * The result covers exactly the occupied voxels with no overlaps, and only depends on the contents of the grid.
+     *
+     * @param resolution The resolution of the voxel grid, in terms of voxels per 1 unit of length.
+     * @return The merged boxes, in voxel coordinates.
+     */
+    public VoxelBoxes toBoxes(int resolution) {
+        var builder = new VoxelBoxes.Builder(resolution);
+        var remaining = (BitSet) this.bits.clone();
+        for (var start = remaining.nextSetBit(0); start >= 0; start = remaining.nextSetBit(start + 1)) {
+            var x0 = start % this.sizeX;
+            var y0 = (start / this.sizeX) % this.sizeY;
+            var z0 = start / (this.sizeX * this.sizeY);
+
+            // Sweep along X until we leave the current row or hit an empty voxel.
+            var rowEnd = start - x0 + this.sizeX;
+            var x1 = Math.min(remaining.nextClearBit(start), rowEnd) - (start - x0);
+
+            var y1 = y0 + 1;
+            while (y1 < this.sizeY && this.isRunSet(remaining, x0, x1, y1, z0)) {
+                y1++;
+            }
+
+            var z1 = z0 + 1;
+            while (z1 < this.sizeZ && this.isLayerSet(remaining, x0, x1, y0, y1, z1)) {
+                z1++;
+            }
+
+            for (var z = z0; z < z1; z++) {
+                for (var y = y0; y < y1; y++) {
+                    var rowStart = this.localIndex(0, y, z);
+                    remaining.clear(rowStart + x0, rowStart + x1);
+                }
+            }
+            builder.addVoxelBox(
+                    this.originX + x0, this.originY + y0, this.originZ + z0,
+                    this.originX + x1, this.originY + y1, this.originZ + z1
+            );
+        }
+        return builder.build();
+    }
+
+    private boolean isRunSet(BitSet bits, int x0, int x1, int y, int z) {
+        var rowStart = this.localIndex(0, y, z);
+        return bits.nextClearBit(rowStart + x0) >= rowStart + x1;
+    }
+
+    private boolean isLayerSet(BitSet bits, int x0, int x1, int y0, int y1, int z) {
+        for (var y = y0; y < y1; y++) {
+            if (!this.isRunSet(bits, x0, x1, y, z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(int x, int y, int z) {
+        if (!this.contains(x, y, z)) {
+            throw new IndexOutOfBoundsException("Voxel (%s, %s, %s) is outside of the grid".formatted(x, y, z));
+        }
+        return this.localIndex(x - this.originX, y - this.originY, z - this.originZ);
+    }
+
+    private int localIndex(int x, int y, int z) {
+        return (z * this.sizeY + y) * this.sizeX + x;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("origin", "(%s, %s, %s)".formatted(this.originX, this.originY, this.originZ))
+                .add("size", "%sx%sx%s".formatted(this.sizeX, this.sizeY, this.sizeZ))
+                .add("occupied", this.count())
+                .toString();
+    }
+}
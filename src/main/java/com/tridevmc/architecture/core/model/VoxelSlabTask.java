@@ -0,0 +1,124 @@
+package com.tridevmc.architecture.core.model;
+
+import java.io.Serial;
+import java.util.BitSet;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Voxelizes a {@link VoxelGrid} by recursively splitting it into slabs of Z layers, each slab produces the bits of the
+ * voxels it contains and the results are combined as the tasks are joined.
+ * <p>
+ * Slabs cover whole layers so the work for one slab never touches voxels belonging to another.
+ */
+public class VoxelSlabTask extends RecursiveTask<BitSet> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of voxels below which a slab is processed directly instead of being split any further.
+     */
+    private static final int SLAB_THRESHOLD = 512;
+
+    private final VoxelGrid grid;
+    private final LayerVoxelizer layers;
+    private final int generation;
+    private final int zStart, zEnd;
+
+    /**
+     * Creates a task covering the entire grid.
+     *
+     * @param grid The grid to voxelize, only its dimensions are used.
+     * @param rows The function used to voxelize each row of the grid.
+     */
+    public VoxelSlabTask(VoxelGrid grid, RowVoxelizer rows) {
+        this(grid, (z, occupied) -> {
+            for (var y = grid.getOriginY(); y < grid.getOriginY() + grid.getSizeY(); y++) {
+                var row = y;
+                rows.voxelizeRow(row, z, x -> occupied.accept(x, row));
+            }
+        });
+    }
+
+    /**
+     * Creates a task covering the entire grid.
+     *
+     * @param grid   The grid to voxelize, only its dimensions are used.
+     * @param layers The function used to voxelize each layer of the grid.
+     */
+    public VoxelSlabTask(VoxelGrid grid, LayerVoxelizer layers) {
+        this(grid, layers, VoxelizerPool.getGeneration(), 0, grid.getSizeZ());
+    }
+
+    private VoxelSlabTask(VoxelGrid grid, LayerVoxelizer layers, int generation, int zStart, int zEnd) {
+        this.grid = grid;
+        this.layers = layers;
+        this.generation = generation;
+        this.zStart = zStart;
+        this.zEnd = zEnd;
+    }
+
+    @Override
+    protected BitSet compute() {
+        var layers = this.zEnd - this.zStart;
+        if (layers <= 1 || layers * this.grid.getSizeX() * this.grid.getSizeY() <= SLAB_THRESHOLD) {
+            return this.computeSlab();
+        }
+
+        var mid = this.zStart + layers / 2;
+        var lower = new VoxelSlabTask(this.grid, this.layers, this.generation, this.zStart, mid);
+        var upper = new VoxelSlabTask(this.grid, this.layers, this.generation, mid, this.zEnd);
+        lower.fork();
+        var bits = upper.compute();
+        bits.or(lower.join());
+        return bits;
+    }
+
+    private BitSet computeSlab() {
+        var bits = new BitSet();
+        for (var z = this.zStart; z < this.zEnd; z++) {
+            VoxelizerPool.checkCancelled(this.generation);
+            var layerStart = z * this.grid.getSizeY() * this.grid.getSizeX() - this.grid.getOriginY() * this.grid.getSizeX() - this.grid.getOriginX();
+            this.layers.voxelizeLayer(this.grid.getOriginZ() + z, (x, y) -> bits.set(layerStart + y * this.grid.getSizeX() + x));
+        }
+        return bits;
+    }
+
+    /**
+     * Voxelizes a single row of voxels running along the X axis.
+     */
+    @FunctionalInterface
+    public interface RowVoxelizer {
+        /**
+         * Voxelizes the row at the given Y and Z coordinates.
+         *
+         * @param y        The Y coordinate of the row, in voxels.
+         * @param z        The Z coordinate of the row, in voxels.
+         * @param occupied Accepts the X coordinate of each voxel in the row that is occupied, in voxels.
+         */
+        void voxelizeRow(int y, int z, IntConsumer occupied);
+    }
+
+    /**
+     * Voxelizes a whole layer of voxels at once, for voxelizers that share work between the rows of a layer.
+     */
+    @FunctionalInterface
+    public interface LayerVoxelizer {
+        /**
+         * Voxelizes the layer at the given Z coordinate.
+         *
+         * @param z        The Z coordinate of the layer, in voxels.
+         * @param occupied Accepts the X and Y coordinates of each voxel in the layer that is occupied, in voxels.
+         */
+        void voxelizeLayer(int z, VoxelConsumer occupied);
+    }
+
+    /**
+     * Accepts the coordinates of a voxel within a layer.
+     */
+    @FunctionalInterface
+    public interface VoxelConsumer {
+        void accept(int x, int y);
+    }
+}
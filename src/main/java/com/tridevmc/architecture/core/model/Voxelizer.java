@@ -1,51 +1,95 @@
 package com.tridevmc.architecture.core.model;
 
-import com.google.common.collect.Lists;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.tridevmc.architecture.core.ArchitectureLog;
 import com.tridevmc.architecture.core.math.IVector3;
 import com.tridevmc.architecture.core.math.integer.IVector3i;
 import com.tridevmc.architecture.legacy.math.LegacyVector3;
 import com.tridevmc.architecture.legacy.math.LegacyVector3i;
+import com.tridevmc.architecture.core.model.mesh.IFace;
 import com.tridevmc.architecture.core.model.mesh.IMesh;
 import com.tridevmc.architecture.core.model.mesh.IPolygonData;
 import com.tridevmc.architecture.core.physics.AABB;
-import com.tridevmc.architecture.core.physics.Ray;
-import it.unimi.dsi.fastutil.objects.ObjectDoubleImmutablePair;
+import com.tridevmc.architecture.core.physics.FlatAABB;
+import com.tridevmc.architecture.core.physics.IAABB;
+import com.tridevmc.architecture.core.physics.RayPacket;
+import com.tridevmc.architecture.core.physics.WindingNumber;
 
+import java.io.Serial;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
 
 /**
  * Performs a series of collision tests on a given mesh to create a voxelized representation of it.
  */
 public class Voxelizer {
 
-    private static final ExecutorService POOL = Executors.newWorkStealingPool();
+    /**
+     * The version of the voxelization algorithm, bump this whenever a change would produce different results
+     * so that cached voxels are discarded.
+     * <ul>
+     *     <li>2: voxels are merged into boxes with greedy meshing.</li>
+     *     <li>3: rays cast for inside tests span the whole mesh, they were unit length and missed anything over a block away.</li>
+     *     <li>4: inside tests use the winding number of the mesh.</li>
+     *     <li>5: the winding number is only reused across a stretch of voxels when the mesh is closed.</li>
+     * </ul>
+     */
+    public static final int VERSION = 5;
+
+    /**
+     * How close to a whole number the winding number has to be at both ends of a stretch for {@link Mode#COLUMN} to reuse it for the voxels in between.
+     */
+    private static final double STRETCH_TOLERANCE = 0.1;
+
+    /**
+     * The number of steps per unit of length that vertex positions are snapped to when the edges of a mesh are matched up.
+     */
+    private static final double POSITION_PRECISION = 4096;
+
     private static final IVector3 xNormal = IVector3.UNIT_X;
     private static final IVector3 yNormal = IVector3.UNIT_Y;
     private static final IVector3 zNormal = IVector3.UNIT_Z;
 
     private final IMesh<?, ? extends IPolygonData<?>> mesh;
+    private final Mode mode;
     private final int blockResolution;
     private final double resolution;
     private final IVector3i min, max;
-    private final boolean[][][] voxels;
+    private final Supplier<WindingNumber> windingNumber;
+    private final Supplier<Boolean> closed;
     private List<AABB> simplifiedVoxels;
+    private long voxelizeNanos = -1;
 
     /**
-     * Creates a new voxelizer for the given mesh.
+     * Creates a new voxelizer for the given mesh, using the default {@link Mode#COLUMN} mode.
      *
      * @param mesh            The mesh to voxelize.
      * @param blockResolution The resolution of the voxel grid, in terms of voxels per 1 unit of length.
      */
     public Voxelizer(IMesh<?, ?> mesh, int blockResolution) {
+        this(mesh, blockResolution, Mode.COLUMN);
+    }
+
+    /**
+     * Creates a new voxelizer for the given mesh.
+     *
+     * @param mesh            The mesh to voxelize.
+     * @param blockResolution The resolution of the voxel grid, in terms of voxels per 1 unit of length.
+     * @param mode            The algorithm used to determine which voxels are occupied.
+     */
+    public Voxelizer(IMesh<?, ?> mesh, int blockResolution, Mode mode) {
         this.mesh = mesh;
+        this.mode = mode;
         this.blockResolution = blockResolution;
         this.resolution = 1.0D / blockResolution;
+        this.windingNumber = Suppliers.memoize(() -> WindingNumber.of(this.mesh));
+        this.closed = Suppliers.memoize(() -> isClosed(this.mesh));
 
         var minXBounds = this.mesh.getBounds().minX();
         var minYBounds = this.mesh.getBounds().minY();
@@ -63,8 +107,6 @@ public class Voxelizer {
 
         this.min = IVector3i.ofImmutable(minX, minY, minZ);
         this.max = IVector3i.ofImmutable(maxX, maxY, maxZ);
-
-        this.voxels = new boolean[maxX - minX + 1][maxY - minY + 1][maxZ - minZ + 1];
     }
 
     /**
@@ -74,115 +116,367 @@ public class Voxelizer {
      */
     public List<AABB> voxelize() {
         if (this.simplifiedVoxels == null) {
-            // Create a list of all the voxels that are intersected by the mesh, do this with a thread pool to speed up the process.
-            var futures = new ArrayList<Future<AABB>>(this.totalVoxels());
-            for (var x = this.min.x(); x <= this.max.x(); x++) {
-                for (var y = this.min.y(); y <= this.max.y(); y++) {
-                    for (var z = this.min.z(); z <= this.max.z(); z++) {
-                        var box = this.getBoxForOffset(x, y, z);
-                        futures.add(POOL.submit(() -> this.isBoxValidVoxel(box) ? box : null));
-                    }
-                }
+            var cacheKey = VoxelCache.createKey("core/" + this.mode.name(), VoxelCache.hashMesh(this.mesh), this.blockResolution, VERSION);
+            var cached = VoxelCache.get(cacheKey);
+            if (cached != null) {
+                this.simplifiedVoxels = cached.toAABBs();
+                return this.simplifiedVoxels;
             }
 
-            var resolvedVoxels = futures.stream().map(f -> {
-                try {
-                    return f.get();
-                } catch (Exception e) {
-                    ArchitectureLog.error("Failed to voxelize mesh {}, throwing exception", this.mesh);
-                    throw new RuntimeException("Failed to voxelize mesh " + this.mesh, e);
-                }
-            }).filter(Objects::nonNull).toList();
-
-            // Simplify the list of voxels while still preserving the shape we've created.
-            var simplified = new ArrayList<AABB>();
-            for (var voxel : resolvedVoxels) {
-                var merged = false;
-                for (var i = 0; i < simplified.size(); i++) {
-                    var other = simplified.get(i);
-                    if (voxel.isAdjacent(other)) {
-                        simplified.set(i, voxel.union(other));
-                        merged = true;
-                        break;
-                    }
+            var t0 = System.nanoTime();
+            var grid = new VoxelGrid(this.min.x(), this.min.y(), this.min.z(),
+                    this.max.x() - this.min.x() + 1, this.max.y() - this.min.y() + 1, this.max.z() - this.min.z() + 1);
+            this.voxelize(grid);
+
+            // Merge the voxels into as few boxes as we can while still preserving the shape we've created.
+            var boxes = grid.toBoxes(this.blockResolution);
+            this.simplifiedVoxels = boxes.toAABBs();
+            this.voxelizeNanos = System.nanoTime() - t0;
+            ArchitectureLog.debug("Voxelized mesh into {} boxes in {} ms", boxes.size(), this.voxelizeNanos / 1_000_000D);
+            VoxelCache.put(cacheKey, boxes);
+        }
+
+        return this.simplifiedVoxels;
+    }
+
+    /**
+     * Fills the given grid using the mode of this voxelizer.
+     *
+     * @param grid The grid to fill, may cover any part of the voxels spanned by the mesh.
+     */
+    private void voxelize(VoxelGrid grid) {
+        var x0 = grid.getOriginX();
+        var x1 = grid.getOriginX() + grid.getSizeX();
+        switch (this.mode) {
+            case PER_VOXEL -> grid.voxelize((y, z, occupied) -> this.voxelizeRowPerVoxel(x0, x1, y, z, occupied));
+            case COLUMN -> grid.voxelizeLayers((z, occupied) -> this.voxelizeColumns(x0, x1, grid.getOriginY(), grid.getOriginY() + grid.getSizeY(), z, occupied));
+            case OCTREE -> grid.setAll(VoxelizerPool.getPool().invoke(new OctreeCell(grid, VoxelizerPool.getGeneration(),
+                    x0, grid.getOriginY(), grid.getOriginZ(), x1, grid.getOriginY() + grid.getSizeY(), grid.getOriginZ() + grid.getSizeZ())));
+        }
+    }
+
+    /**
+     * Gets the time the last voxelization of the mesh took, excluding any time spent loading it from the cache.
+     *
+     * @return The time in nanoseconds, or -1 if the mesh hasn't been voxelized by this voxelizer.
+     */
+    public long getVoxelizeNanos() {
+        return this.voxelizeNanos;
+    }
+
+    /**
+     * Voxelizes a row by testing each voxel on its own, finding the winding number of the mesh for every voxel
+     * that doesn't intersect the surface.
+     */
+    private void voxelizeRowPerVoxel(int x0, int x1, int y, int z, IntConsumer occupied) {
+        var box = new FlatAABB.Mutable();
+        var scratch = new FlatAABB.Mutable();
+        for (var x = x0; x < x1; x++) {
+            if (this.isBoxValidVoxel(this.setBoxForOffset(box, x, y, z), scratch)) {
+                occupied.accept(x);
+            }
+        }
+    }
+
+    /**
+     * Voxelizes a layer as a set of columns, one per row. Surface voxels are found with the polygon/box intersection test,
+     * then for a closed mesh a single packet of rays is cast through every row that still has more than one voxel left to
+     * classify. The crossings of each ray split its row into stretches that the surface never passes through, so the inside
+     * test is usually only made at the two ends of each stretch.
+     * <p>
+     * Produces the same voxels as {@link #voxelizeRowPerVoxel(int, int, int, int, IntConsumer)}, the inside test is only skipped
+     * for the voxels in between the ends of a stretch when the mesh is closed.
+     */
+    private void voxelizeColumns(int x0, int x1, int y0, int y1, int z, VoxelSlabTask.VoxelConsumer occupied) {
+        var width = x1 - x0;
+        var pending = new BitSet(width * (y1 - y0));
+        var rowPending = new int[y1 - y0];
+        var box = new FlatAABB.Mutable();
+        var scratch = new FlatAABB.Mutable();
+        for (var y = y0; y < y1; y++) {
+            for (var x = x0; x < x1; x++) {
+                this.setBoxForOffset(box, x, y, z);
+                if (this.doesBoxIntersect(box, scratch)) {
+                    occupied.accept(x, y);
+                    continue;
                 }
-                if (!merged) {
-                    simplified.add(voxel);
+                pending.set((y - y0) * width + x - x0);
+                rowPending[y - y0]++;
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // A row with a single voxel left is a stretch on its own, and every voxel of a mesh with holes is tested on its own
+        // anyway, so only rows with more than one voxel left in a closed mesh need a ray to split them.
+        var closed = this.closed.get();
+        var meshBounds = this.mesh.getBounds();
+        var rayOrigins = new double[(y1 - y0) * 3];
+        var rayCount = 0;
+        var rowRays = new int[y1 - y0];
+        for (var y = y0; y < y1; y++) {
+            rowRays[y - y0] = -1;
+            if (closed && rowPending[y - y0] > 1) {
+                rowRays[y - y0] = rayCount;
+                rayOrigins[rayCount * 3] = meshBounds.minX() - 1;
+                rayOrigins[rayCount * 3 + 1] = (y + 0.5D) * this.resolution;
+                rayOrigins[rayCount * 3 + 2] = (z + 0.5D) * this.resolution;
+                rayCount++;
+            }
+        }
+        RayPacket packet = null;
+        RayPacket.Hits<?> crossings = null;
+        if (rayCount > 0) {
+            // The mesh is only searched along the length of the direction, so it has to span the whole mesh rather than being a unit vector.
+            packet = new RayPacket(IVector3.ofImmutable(meshBounds.maxX() - meshBounds.minX() + 2, 0, 0), Arrays.copyOf(rayOrigins, rayCount * 3));
+            crossings = packet.intersect(this.mesh);
+        }
+
+        var stretch = new int[width];
+        var stretchSize = 0;
+        var stretchRow = -1;
+        var stretchCrossing = -1;
+        var crossing = 0;
+        for (var i = pending.nextSetBit(0); i >= 0; i = pending.nextSetBit(i + 1)) {
+            var row = i / width;
+            var ray = rowRays[row];
+            if (row != stretchRow) {
+                crossing = ray < 0 ? 0 : crossings.getStart(ray);
+            }
+            if (ray >= 0) {
+                var centerX = (x0 + i % width + 0.5D) * this.resolution;
+                while (crossing < crossings.getEnd(ray) && packet.getOriginX(ray) + crossings.getDistance(crossing) * packet.getDirection().x() < centerX) {
+                    crossing++;
                 }
             }
+            if (row != stretchRow || crossing != stretchCrossing) {
+                this.voxelizeStretch(stretch, stretchSize, x0, y0, width, z, occupied);
+                stretchSize = 0;
+                stretchRow = row;
+                stretchCrossing = crossing;
+            }
+            stretch[stretchSize++] = i;
+        }
+        this.voxelizeStretch(stretch, stretchSize, x0, y0, width, z, occupied);
+    }
 
-            this.simplifiedVoxels = simplified;
+    /**
+     * Classifies the voxels of a stretch of a row that no crossing of the row's ray passes through. The winding number of a
+     * closed mesh is a whole number everywhere off its surface and only changes where the surface is crossed, so when it's close
+     * to the same whole number at both ends of the stretch those two tests cover every voxel in between. The winding number of a
+     * mesh with holes can rise and fall again anywhere along the stretch, so every voxel in it is tested on its own.
+     */
+    private void voxelizeStretch(int[] stretch, int size, int x0, int y0, int width, int z, VoxelSlabTask.VoxelConsumer occupied) {
+        if (size == 0) {
+            return;
+        }
+        var windingNumber = this.windingNumber.get();
+        var y = y0 + stretch[0] / width;
+        var centerY = (y + 0.5D) * this.resolution;
+        var centerZ = (z + 0.5D) * this.resolution;
+        var firstX = x0 + stretch[0] % width;
+        var first = windingNumber.at((firstX + 0.5D) * this.resolution, centerY, centerZ);
+        if (first > 0.5) {
+            occupied.accept(firstX, y);
         }
+        if (size == 1) {
+            return;
+        }
+        var lastX = x0 + stretch[size - 1] % width;
+        var last = windingNumber.at((lastX + 0.5D) * this.resolution, centerY, centerZ);
+        if (last > 0.5) {
+            occupied.accept(lastX, y);
+        }
+        var reuse = this.closed.get() && Math.rint(first) == Math.rint(last)
+                && Math.abs(first - Math.rint(first)) < STRETCH_TOLERANCE && Math.abs(last - Math.rint(last)) < STRETCH_TOLERANCE;
+        for (var s = 1; s < size - 1; s++) {
+            var x = x0 + stretch[s] % width;
+            if (reuse ? first > 0.5 : windingNumber.isInside((x + 0.5D) * this.resolution, centerY, centerZ)) {
+                occupied.accept(x, y);
+            }
+        }
+    }
 
-        return this.simplifiedVoxels;
+    /**
+     * Checks if the given mesh is closed, every edge of every polygon has to be matched by an edge running the other way
+     * between the same positions. Edges shared by two polygons of the same face cancel out the same way.
+     * <p>
+     * Meshes with T-junctions or inconsistently wound polygons count as open, which only costs speed rather than accuracy.
+     *
+     * @param mesh The mesh to check.
+     * @return True if the mesh has no holes, false otherwise.
+     */
+    private static boolean isClosed(IMesh<?, ? extends IPolygonData<?>> mesh) {
+        var edges = new HashMap<List<Long>, Integer>();
+        mesh.getFaceStream().flatMap(IFace::getPolygonStream).forEach(polygon -> {
+            var vertices = polygon.getVertices();
+            for (var i = 0; i < vertices.size(); i++) {
+                var from = getPositionKey(vertices.get(i).getPos());
+                var to = getPositionKey(vertices.get((i + 1) % vertices.size()).getPos());
+                if (from != to) {
+                    edges.merge(from < to ? List.of(from, to) : List.of(to, from), from < to ? 1 : -1, Integer::sum);
+                }
+            }
+        });
+        return edges.values().stream().allMatch(count -> count == 0);
+    }
+
+    /**
+     * Creates a key identifying a position, snapped to a fine grid so that positions which differ by rounding error share a key.
+     */
+    private static long getPositionKey(IVector3 pos) {
+        return quantize(pos.x()) << 42 | quantize(pos.y()) << 21 | quantize(pos.z());
+    }
+
+    private static long quantize(double value) {
+        return Math.round(value * POSITION_PRECISION) & 0x1FFFFF;
     }
 
     public AABB getBoxForOffset(int x, int y, int z) {
+        return this.setBoxForOffset(new FlatAABB.Mutable(), x, y, z).toAABB();
+    }
+
+    /**
+     * Sets the given box to the bounds of the voxel at the given offset, so loops over many voxels can reuse a single box.
+     *
+     * @return The given box.
+     */
+    private FlatAABB.Mutable setBoxForOffset(FlatAABB.Mutable box, int x, int y, int z) {
         double bX = x * this.resolution;
         double bY = y * this.resolution;
         double bZ = z * this.resolution;
-        return new AABB(bX, bY, bZ, bX + this.resolution, bY + this.resolution, bZ + this.resolution);
-    }
-
-    private int totalVoxels() {
-        return this.voxels.length * this.voxels[0].length * this.voxels[0][0].length;
+        return box.set(bX, bY, bZ, bX + this.resolution, bY + this.resolution, bZ + this.resolution);
     }
 
-    private boolean isBoxValidVoxel(AABB box) {
-        return this.doesBoxIntersect(box) || this.isPointInsideMesh(box.center());
+    private boolean isBoxValidVoxel(IAABB box, FlatAABB.Mutable scratch) {
+        return this.doesBoxIntersect(box, scratch) || this.isPointInsideMesh(IVector3.ofImmutable(box.centerX(), box.centerY(), box.centerZ()));
     }
 
     /**
      * Checks if the given box intersects with the mesh.
      *
-     * @param box The box to check.
+     * @param box     The box to check.
+     * @param scratch A box to hold the bounds used to search the mesh, overwritten by the check.
      * @return True if the box intersects with the mesh, false otherwise.
      */
-    private boolean doesBoxIntersect(AABB box) {
-        return this.mesh.searchStream(box.deflate(1D / (this.blockResolution * 32))).anyMatch(p -> p.intersect(box));
+    private boolean doesBoxIntersect(IAABB box, FlatAABB.Mutable scratch) {
+        return this.mesh.anyIntersecting(scratch.set(box).deflate(1D / (this.blockResolution * 32)), p -> p.intersect(box));
     }
 
     /**
-     * Checks if the given point is inside the mesh.
+     * Checks if the given point is inside the mesh, using the winding number of the mesh at the point.
      *
      * @param point The point to check.
      * @return True if the point is inside the mesh, false otherwise.
      */
     private boolean isPointInsideMesh(IVector3 point) {
-        var meshBounds = this.mesh.getBounds();
-        var fromPoint = IVector3.ofImmutable(meshBounds.minX() - 1, point.y(), point.z());
-        var toPoint = IVector3.ofImmutable(meshBounds.maxX() + 1, point.y(), point.z());
-        var rayDirection = IVector3.ofImmutable(1, 0, 0);
-        var ray = new Ray(fromPoint, rayDirection);
-
-        List<ObjectDoubleImmutablePair<Ray.Hit>> hits = ray.intersect(this.mesh).map(h -> {
-            var hit = h.rounded();
-            return ObjectDoubleImmutablePair.of(hit, hit.distanceTo(point));
-        }).toList();
-
-        if (hits.isEmpty())
-            return false;
-
-        // We have to collect all the closest points, so we can choose an option if there are multiple.
-        // This is a safeguard against any bad geometry that might be present in the mesh.
-        var closestHits = Lists.newArrayList(hits.get(0));
-        for (var i = 1; i < hits.size(); i++) {
-            var hitData = hits.get(i);
-            if (Double.compare(hitData.rightDouble(), closestHits.get(0).rightDouble()) < 0) {
-                closestHits.clear();
-                closestHits.add(hitData);
-            } else if (Double.compare(hitData.rightDouble(), closestHits.get(0).rightDouble()) == 0) {
-                closestHits.add(hitData);
-            }
+        return this.windingNumber.get().isInside(point);
+    }
+
+    /**
+     * The algorithms available to determine which voxels are occupied.
+     */
+    public enum Mode {
+        /**
+         * Tests every voxel independently, finding the winding number of the mesh for each voxel that doesn't intersect its surface.
+         */
+        PER_VOXEL,
+        /**
+         * Casts a single ray per (y, z) column and only finds the winding number at the two ends of each stretch of the column
+         * between two crossings, surface voxels are still found with the polygon/box intersection test.
+         */
+        COLUMN,
+        /**
+         * Tests progressively smaller cells of the grid against the mesh, cells that no polygon touches are classified
+         * as a whole with a single inside test and only cells on the surface are subdivided down to single voxels.
+         * <p>
+         * Matches the other modes for closed meshes, but a mesh with holes may classify a whole cell differently
+         * to how its individual voxels would have been.
+         */
+        OCTREE
+    }
+
+    /**
+     * A cell of the octree used by {@link Mode#OCTREE}, covering voxels from its minimum coordinates (inclusive)
+     * to its maximum coordinates (exclusive).
+     */
+    private class OctreeCell extends RecursiveTask<BitSet> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The number of voxels below which children are processed on the current thread instead of being forked.
+         */
+        private static final int FORK_THRESHOLD = 512;
+
+        private final VoxelGrid grid;
+        private final int generation;
+        private final int x0, y0, z0, x1, y1, z1;
+
+        private OctreeCell(VoxelGrid grid, int generation, int x0, int y0, int z0, int x1, int y1, int z1) {
+            this.grid = grid;
+            this.generation = generation;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.z0 = z0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.z1 = z1;
         }
 
-        for (var closestHit : closestHits) {
-            if (closestHit.left().poly().isFacing(point)) {
-                return true;
+        @Override
+        protected BitSet compute() {
+            VoxelizerPool.checkCancelled(this.generation);
+            var bits = new BitSet();
+            var volume = (this.x1 - this.x0) * (this.y1 - this.y0) * (this.z1 - this.z0);
+            if (volume == 1) {
+                var box = Voxelizer.this.setBoxForOffset(new FlatAABB.Mutable(), this.x0, this.y0, this.z0);
+                if (Voxelizer.this.isBoxValidVoxel(box, new FlatAABB.Mutable())) {
+                    bits.set(this.grid.getIndex(this.x0, this.y0, this.z0));
+                }
+                return bits;
+            }
+
+            var res = Voxelizer.this.resolution;
+            var cellBox = new FlatAABB(this.x0 * res, this.y0 * res, this.z0 * res, this.x1 * res, this.y1 * res, this.z1 * res);
+            var scratch = new FlatAABB.Mutable();
+            if (!Voxelizer.this.doesBoxIntersect(cellBox, scratch)) {
+                // Nothing passes through the cell, so every voxel in it is on the same side of the surface as any one of them.
+                var sample = Voxelizer.this.setBoxForOffset(scratch, Math.floorDiv(this.x0 + this.x1, 2), Math.floorDiv(this.y0 + this.y1, 2), Math.floorDiv(this.z0 + this.z1, 2));
+                if (Voxelizer.this.isPointInsideMesh(IVector3.ofImmutable(sample.centerX(), sample.centerY(), sample.centerZ()))) {
+                    for (var z = this.z0; z < this.z1; z++) {
+                        for (var y = this.y0; y < this.y1; y++) {
+                            bits.set(this.grid.getIndex(this.x0, y, z), this.grid.getIndex(this.x1 - 1, y, z) + 1);
+                        }
+                    }
+                }
+                return bits;
             }
-        }
 
-        return false;
+            // Split every axis that's wider than a single voxel in half.
+            var xMid = this.x1 - this.x0 > 1 ? Math.floorDiv(this.x0 + this.x1, 2) : this.x1;
+            var yMid = this.y1 - this.y0 > 1 ? Math.floorDiv(this.y0 + this.y1, 2) : this.y1;
+            var zMid = this.z1 - this.z0 > 1 ? Math.floorDiv(this.z0 + this.z1, 2) : this.z1;
+            var children = new ArrayList<OctreeCell>(8);
+            for (var xs : new int[][]{{this.x0, xMid}, {xMid, this.x1}}) {
+                for (var ys : new int[][]{{this.y0, yMid}, {yMid, this.y1}}) {
+                    for (var zs : new int[][]{{this.z0, zMid}, {zMid, this.z1}}) {
+                        if (xs[0] < xs[1] && ys[0] < ys[1] && zs[0] < zs[1]) {
+                            children.add(new OctreeCell(this.grid, this.generation, xs[0], ys[0], zs[0], xs[1], ys[1], zs[1]));
+                        }
+                    }
+                }
+            }
+
+            if (volume > FORK_THRESHOLD) {
+                invokeAll(children);
+                children.forEach(c -> bits.or(c.join()));
+            } else {
+                children.forEach(c -> bits.or(c.compute()));
+            }
+            return bits;
+        }
     }
 
 
@@ -0,0 +1,95 @@
+package com.tridevmc.architecture.core.model;
+
+import com.tridevmc.architecture.core.ArchitectureLog;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The pool voxelization work is run on, kept separate from the common pool so voxelizing doesn't compete with everything else
+ * for every core the machine has.
+ * <p>
+ * The number of threads defaults to half of the available processors and can be set with the
+ * <code>architecturecraft.voxelizerThreads</code> system property or {@link #setParallelism(int)}.
+ */
+public class VoxelizerPool {
+
+    private static final String THREADS_PROPERTY = "architecturecraft.voxelizerThreads";
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    private static int parallelism = Integer.getInteger(THREADS_PROPERTY, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static ForkJoinPool pool;
+    private static volatile int generation;
+
+    /**
+     * Gets the pool, creating it if it hasn't been created yet or was shut down by {@link #cancel()}.
+     *
+     * @return The pool to run voxelization tasks on.
+     */
+    public static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism, p -> {
+                var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("ArchitectureCraft Voxelizer " + THREAD_ID.incrementAndGet());
+                // Worker threads don't inherit a context class loader from the mod loader, so give them ours.
+                thread.setContextClassLoader(VoxelizerPool.class.getClassLoader());
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    /**
+     * Sets the number of threads used for voxelization, tasks already running on the current pool are allowed to finish.
+     *
+     * @param threads The number of threads to use, must be at least 1.
+     */
+    public static synchronized void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Voxelizer pool needs at least one thread, got " + threads);
+        }
+        parallelism = threads;
+        if (pool != null && pool.getParallelism() != threads) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Cancels all running voxelization tasks, any voxelizer waiting on them will throw a {@link CancellationException}, or a
+     * {@link java.util.concurrent.RejectedExecutionException} if it was just about to submit to the pool being shut down.
+     * <p>
+     * Used when resources are reloaded, as whatever was being voxelized may no longer be relevant. Callers that still need the
+     * result should catch both and voxelize again, {@link #getPool()} will have created a new pool by then.
+     */
+    public static synchronized void cancel() {
+        generation++;
+        if (pool != null) {
+            ArchitectureLog.debug("Cancelling {} queued voxelization tasks", pool.getQueuedTaskCount());
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
+    /**
+     * Gets the current generation of the pool, which changes whenever running tasks are cancelled.
+     *
+     * @return The current generation.
+     */
+    public static int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Throws if tasks started in the given generation have since been cancelled.
+     *
+     * @param startGeneration The generation the task was started in.
+     * @throws CancellationException If the task has been cancelled.
+     */
+    public static void checkCancelled(int startGeneration) {
+        if (generation != startGeneration) {
+            throw new CancellationException("Voxelization was cancelled");
+        }
+    }
+}
@@ -0,0 +1,864 @@
+package com.tridevmc.architecture.core.model.mesh;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.tridevmc.architecture.core.math.ITrans3;
+import com.tridevmc.architecture.core.math.IVector2;
+import com.tridevmc.architecture.core.math.IVector3;
+import com.tridevmc.architecture.core.math.IVector3Immutable;
+import com.tridevmc.architecture.core.physics.AABB;
+import com.tridevmc.architecture.core.physics.AABBList;
+import com.tridevmc.architecture.core.physics.AABBTreeSelector;
+import com.tridevmc.architecture.core.physics.IAABB;
+import com.tridevmc.architecture.core.physics.IAABBTree;
+import com.tridevmc.architecture.core.physics.PackedBVHTree;
+import com.tridevmc.architecture.core.physics.PhysicsHelper;
+import com.tridevmc.architecture.core.physics.Ray;
+import com.tridevmc.architecture.core.physics.TwoLevelBVHTree;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * An implementation of {@link IMesh} stored in a handful of flat arrays instead of a graph of vertex, polygon, face and part objects.
+ * <p>
+ * Vertex positions are kept in a double buffer so transforming a mesh rounds exactly like {@link Mesh} does, normals and UVs
+ * are kept in float buffers. Each polygon is a range of an index buffer pointing into them, so a vertex can be shared by any
+ * number of polygons. Faces are ranges of polygons and parts are ranges of faces, both
+ * stored as the index each range starts at. The data of each polygon is interned, so polygons with equal data share an instance.
+ * <p>
+ * Callers still see the usual {@link IPolygon} and {@link IVertex} interfaces, polygons are small views holding an index into
+ * the arrays and vertices are views created whenever a polygon is asked for them. The ray and box tests of a polygon read the
+ * buffers directly without creating any vertices. Faces and parts are plain {@link Face} and {@link Part} instances over the views.
+ *
+ * @param <I> The type of data used to identify the parts of the mesh.
+ * @param <D> The type of data that is stored on the polygons.
+ */
+public class CompactMesh<I, D extends IPolygonData<D>> implements IMesh<I, D> {
+
+    private final double[] positions;
+    private final float[] normals;
+    private final float[] uvs;
+    // The vertices of polygon p are found at indices[polygonStarts[p]] up to indices[polygonStarts[p + 1]].
+    private final int[] indices;
+    private final int[] polygonStarts;
+    private final Object[] polygonData;
+    // Face f is made of polygons faceStarts[f] up to faceStarts[f + 1], and part p of faces partStarts[p] up to partStarts[p + 1].
+    private final int[] faceStarts;
+    private final int[] partStarts;
+    private final Object[] partIds;
+
+    private final ImmutableMap<I, IPart<I, D>> parts;
+    private final ImmutableList<IFace<D>> faces;
+    private final IAABBTree<IPolygon<D>> aabbTree;
+    private final Supplier<TwoLevelBVHTree<I, IPolygon<D>>> partTree;
+
+    private CompactMesh(double[] positions, float[] normals, float[] uvs, int[] indices, int[] polygonStarts, Object[] polygonData,
+                        int[] faceStarts, int[] partStarts, Object[] partIds, @Nullable CompactMesh<I, D> source) {
+        this.positions = positions;
+        this.normals = normals;
+        this.uvs = uvs;
+        this.indices = indices;
+        this.polygonStarts = polygonStarts;
+        this.polygonData = polygonData;
+        this.faceStarts = faceStarts;
+        this.partStarts = partStarts;
+        this.partIds = partIds;
+
+        var polygons = new ArrayList<IPolygon<D>>(polygonData.length);
+        for (var p = 0; p < polygonData.length; p++) {
+            polygons.add(new PolygonView<>(this, p));
+        }
+        var faces = new ArrayList<IFace<D>>(faceStarts.length - 1);
+        for (var f = 0; f < faceStarts.length - 1; f++) {
+            faces.add(new Face<>(ImmutableList.copyOf(polygons.subList(faceStarts[f], faceStarts[f + 1]))));
+        }
+        var parts = ImmutableMap.<I, IPart<I, D>>builder();
+        for (var p = 0; p < partIds.length; p++) {
+            @SuppressWarnings("unchecked")
+            var id = (I) partIds[p];
+            parts.put(id, new Part<>(id, ImmutableList.copyOf(faces.subList(partStarts[p], partStarts[p + 1])),
+                    this.getBounds(this.polygonStarts[this.faceStarts[partStarts[p]]], this.polygonStarts[this.faceStarts[partStarts[p + 1]]])));
+        }
+        this.faces = ImmutableList.copyOf(faces);
+        this.parts = parts.build();
+        // A transformed mesh has the same polygons in the same order, so a tree from the source only needs refitting.
+        if (source != null && source.aabbTree instanceof PackedBVHTree<IPolygon<D>> sourceTree) {
+            this.aabbTree = sourceTree.refit(p -> polygons.get(((PolygonView<D>) p).index), IPolygon::getAABB);
+        } else if (source != null && source.aabbTree instanceof AABBList<IPolygon<D>> sourceList) {
+            this.aabbTree = sourceList.refit(p -> polygons.get(((PolygonView<D>) p).index), IPolygon::getAABB);
+        } else {
+            this.aabbTree = AABBTreeSelector.build(polygons, IPolygon::getAABB);
+        }
+        // Built on first use, refitting the source's would keep the source alive until then. Parts are small so building is cheap.
+        this.partTree = Suppliers.memoize(IMesh.super::getPartTree);
+    }
+
+    /**
+     * Copies the given mesh into a new compact mesh, keeping the order of its parts, faces, polygons and vertices.
+     *
+     * @param mesh The mesh to copy.
+     * @return The compact copy of the mesh.
+     */
+    public static <I, D extends IPolygonData<D>> CompactMesh<I, D> copyOf(@NotNull IMesh<I, D> mesh) {
+        if (mesh instanceof CompactMesh<I, D> compact) {
+            return compact;
+        }
+        var builder = new Builder<I, D>();
+        for (var part : mesh.getParts().values()) {
+            for (var face : part.getFaces()) {
+                for (var polygon : face.getPolygons()) {
+                    var vertices = polygon.getVertices();
+                    var indices = new int[vertices.size()];
+                    for (var v = 0; v < indices.length; v++) {
+                        var vertex = vertices.get(v);
+                        indices[v] = builder.addVertex(vertex.getX(), vertex.getY(), vertex.getZ(),
+                                vertex.getNormalX(), vertex.getNormalY(), vertex.getNormalZ(), vertex.getU(), vertex.getV());
+                    }
+                    builder.addPolygon(polygon.getPolygonData(), indices);
+                }
+                builder.endFace();
+            }
+            builder.endPart(part.getId());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the number of vertices stored in this mesh, vertices shared between polygons are only counted once.
+     *
+     * @return The number of vertices.
+     */
+    public int getVertexCount() {
+        return this.positions.length / 3;
+    }
+
+    /**
+     * Gets the number of polygons in this mesh.
+     *
+     * @return The number of polygons.
+     */
+    public int getPolygonCount() {
+        return this.polygonData.length;
+    }
+
+    /**
+     * Gets the number of vertex references made by the polygons of this mesh, the sum of the vertex counts of every polygon.
+     *
+     * @return The number of vertex references.
+     */
+    public int getIndexCount() {
+        return this.indices.length;
+    }
+
+    @Override
+    public @NotNull ImmutableMap<I, IPart<I, D>> getParts() {
+        return this.parts;
+    }
+
+    @Override
+    public @NotNull IPart<I, D> getPart(I id) {
+        return this.parts.get(id);
+    }
+
+    @Override
+    public @NotNull ImmutableList<IFace<D>> getFaces() {
+        return this.faces;
+    }
+
+    @Override
+    public @NotNull IAABBTree<IPolygon<D>> getAABBTree() {
+        return this.aabbTree;
+    }
+
+    @Override
+    public @NotNull TwoLevelBVHTree<I, IPolygon<D>> getPartTree() {
+        return this.partTree.get();
+    }
+
+    @Override
+    @NotNull
+    public IMesh<I, D> transform(@NotNull ITrans3 trans, boolean transformUVs) {
+        return new TransformedMesh<>(this, trans, transformUVs);
+    }
+
+    /**
+     * Creates a copy of this mesh with the given transformation applied to its buffers, used by {@link TransformedMesh} once
+     * something needs the transformed polygons.
+     * <p>
+     * The indices and ranges are shared with this mesh, and the tree of this mesh is refitted rather than built again.
+     *
+     * @param trans        The transformation to apply.
+     * @param transformUVs Whether to transform the UVs of the mesh.
+     * @return The transformed mesh.
+     */
+    @NotNull
+    CompactMesh<I, D> transformBuffers(@NotNull ITrans3 trans, boolean transformUVs) {
+        var positions = new double[this.positions.length];
+        var normals = new float[this.normals.length];
+        var uvs = transformUVs ? new float[this.uvs.length] : this.uvs;
+        var vector = IVector3.ofMutable(0, 0, 0);
+        for (var v = 0; v < this.getVertexCount(); v++) {
+            trans.transformPos(vector.set(this.positions[v * 3], this.positions[v * 3 + 1], this.positions[v * 3 + 2]));
+            positions[v * 3] = vector.x();
+            positions[v * 3 + 1] = vector.y();
+            positions[v * 3 + 2] = vector.z();
+            trans.transformNormal(vector.set(this.normals[v * 3], this.normals[v * 3 + 1], this.normals[v * 3 + 2]));
+            normals[v * 3] = (float) vector.x();
+            normals[v * 3 + 1] = (float) vector.y();
+            normals[v * 3 + 2] = (float) vector.z();
+        }
+        if (transformUVs) {
+            var uv = IVector2.ofMutable(0, 0);
+            for (var v = 0; v < this.getVertexCount(); v++) {
+                trans.transformUV(uv.set(this.uvs[v * 2], this.uvs[v * 2 + 1]));
+                uvs[v * 2] = (float) uv.u();
+                uvs[v * 2 + 1] = (float) uv.v();
+            }
+        }
+
+        var interned = new HashMap<D, D>();
+        var transformed = new IdentityHashMap<D, D>();
+        var polygonData = new Object[this.polygonData.length];
+        for (var p = 0; p < polygonData.length; p++) {
+            polygonData[p] = transformed.computeIfAbsent(this.getPolygonData(p), d -> interned.computeIfAbsent(d.transform(trans), t -> t));
+        }
+        return new CompactMesh<>(positions, normals, uvs, this.indices, this.polygonStarts, polygonData,
+                this.faceStarts, this.partStarts, this.partIds, this);
+    }
+
+    @SuppressWarnings("unchecked")
+    private D getPolygonData(int polygon) {
+        return (D) this.polygonData[polygon];
+    }
+
+    private double getX(int vertex) {
+        return this.positions[vertex * 3];
+    }
+
+    private double getY(int vertex) {
+        return this.positions[vertex * 3 + 1];
+    }
+
+    private double getZ(int vertex) {
+        return this.positions[vertex * 3 + 2];
+    }
+
+    private AABB getBounds(int fromIndex, int toIndex) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (var i = fromIndex; i < toIndex; i++) {
+            var vertex = this.indices[i];
+            minX = Math.min(minX, this.getX(vertex));
+            minY = Math.min(minY, this.getY(vertex));
+            minZ = Math.min(minZ, this.getZ(vertex));
+            maxX = Math.max(maxX, this.getX(vertex));
+            maxY = Math.max(maxY, this.getY(vertex));
+            maxZ = Math.max(maxZ, this.getZ(vertex));
+        }
+        return new AABB(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompactMesh<?, ?> mesh)) return false;
+        return Objects.equals(this.getParts(), mesh.getParts());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.getParts());
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("parts", this.parts.keySet())
+                .add("vertices", this.getVertexCount())
+                .add("polygons", this.getPolygonCount())
+                .add("aabbTree", this.aabbTree)
+                .toString();
+    }
+
+    /**
+     * A polygon of a {@link CompactMesh}, read straight from the buffers of the mesh.
+     * <p>
+     * Tris and quads give the same answers as a {@link Tri} or {@link Quad} with the same vertices, without creating either.
+     *
+     * @param <D> The type of data that is stored on the polygon.
+     */
+    public static final class PolygonView<D extends IPolygonData<D>> implements IPolygon<D> {
+        private final CompactMesh<?, D> mesh;
+        private final int index;
+
+        private PolygonView(CompactMesh<?, D> mesh, int index) {
+            this.mesh = mesh;
+            this.index = index;
+        }
+
+        @Override
+        public int getVertexCount() {
+            return this.mesh.polygonStarts[this.index + 1] - this.mesh.polygonStarts[this.index];
+        }
+
+        private int getVertex(int corner) {
+            return this.mesh.indices[this.mesh.polygonStarts[this.index] + corner];
+        }
+
+        @Override
+        @NotNull
+        public D getPolygonData() {
+            return this.mesh.getPolygonData(this.index);
+        }
+
+        @Override
+        public @NotNull ImmutableList<IVertex> getVertices() {
+            var vertices = new IVertex[this.getVertexCount()];
+            for (var v = 0; v < vertices.length; v++) {
+                vertices[v] = new VertexView(this.mesh, this.getVertex(v));
+            }
+            return ImmutableList.copyOf(vertices);
+        }
+
+        @Override
+        @NotNull
+        public IVector3Immutable getNormal() {
+            // Found the same way as the builders of Tri and Quad do.
+            var v0 = this.getVertex(0);
+            var v1 = this.getVertex(1);
+            var v2 = this.getVertex(2);
+            var v1SubV0 = IVector3.ofMutable(this.mesh.getX(v1), this.mesh.getY(v1), this.mesh.getZ(v1))
+                    .sub(this.mesh.getX(v0), this.mesh.getY(v0), this.mesh.getZ(v0));
+            var v2SubV0 = IVector3.ofMutable(this.mesh.getX(v2), this.mesh.getY(v2), this.mesh.getZ(v2))
+                    .sub(this.mesh.getX(v0), this.mesh.getY(v0), this.mesh.getZ(v0));
+            return v1SubV0.cross(v2SubV0).normalize().asImmutable();
+        }
+
+        @Override
+        @NotNull
+        public AABB getAABB() {
+            return this.mesh.getBounds(this.mesh.polygonStarts[this.index], this.mesh.polygonStarts[this.index + 1]);
+        }
+
+        @Override
+        @Nullable
+        public IVector3 intersect(Ray ray) {
+            var origin = ray.origin();
+            var direction = ray.direction();
+            var mesh = this.mesh;
+            var v0 = this.getVertex(0);
+            var x0 = mesh.getX(v0);
+            var y0 = mesh.getY(v0);
+            var z0 = mesh.getZ(v0);
+            // Tris are a single triangle, quads are a fan of two around their first vertex.
+            var t = Double.NaN;
+            for (var corner = 2; corner < this.getVertexCount() && Double.isNaN(t); corner++) {
+                var a = this.getVertex(corner - 1);
+                var b = this.getVertex(corner);
+                t = PhysicsHelper.intersectRayTriangle(origin.x(), origin.y(), origin.z(), direction.x(), direction.y(), direction.z(),
+                        x0, y0, z0, mesh.getX(a) - x0, mesh.getY(a) - y0, mesh.getZ(a) - z0, mesh.getX(b) - x0, mesh.getY(b) - y0, mesh.getZ(b) - z0);
+            }
+            return Double.isNaN(t) ? null : ray.getPoint(t);
+        }
+
+        @Override
+        public boolean intersect(IAABB box) {
+            var mesh = this.mesh;
+            var v0 = this.getVertex(0);
+            var v1 = this.getVertex(1);
+            var v2 = this.getVertex(2);
+            double x0 = mesh.getX(v0), y0 = mesh.getY(v0), z0 = mesh.getZ(v0);
+            double x1 = mesh.getX(v1), y1 = mesh.getY(v1), z1 = mesh.getZ(v1);
+            double x2 = mesh.getX(v2), y2 = mesh.getY(v2), z2 = mesh.getZ(v2);
+            if (this.getVertexCount() == 4) {
+                var v3 = this.getVertex(3);
+                double x3 = mesh.getX(v3), y3 = mesh.getY(v3), z3 = mesh.getZ(v3);
+                var axes = PhysicsHelper.getQuadAxes(x0, y0, z0, x1, y1, z1, x2, y2, z2, x3, y3, z3, new double[30], 0);
+                return PhysicsHelper.intersectsQuad(box, x0, y0, z0, x1, y1, z1, x2, y2, z2, x3, y3, z3, axes, 0,
+                        Math.min(Math.min(x0, x1), Math.min(x2, x3)), Math.min(Math.min(y0, y1), Math.min(y2, y3)),
+                        Math.min(Math.min(z0, z1), Math.min(z2, z3)), Math.max(Math.max(x0, x1), Math.max(x2, x3)),
+                        Math.max(Math.max(y0, y1), Math.max(y2, y3)), Math.max(Math.max(z0, z1), Math.max(z2, z3)));
+            }
+            if (box.contains(x0, y0, z0) || box.contains(x1, y1, z1) || box.contains(x2, y2, z2)) {
+                return true;
+            }
+
+            var centerX = box.centerX();
+            var centerY = box.centerY();
+            var centerZ = box.centerZ();
+            var halfX = box.getXSize() * 0.5D;
+            var halfY = box.getYSize() * 0.5D;
+            var halfZ = box.getZSize() * 0.5D;
+            if (Math.max(centerX - Math.max(x0, Math.max(x1, x2)), Math.min(x0, Math.min(x1, x2)) - centerX) > halfX
+                    | Math.max(centerY - Math.max(y0, Math.max(y1, y2)), Math.min(y0, Math.min(y1, y2)) - centerY) > halfY
+                    | Math.max(centerZ - Math.max(z0, Math.max(z1, z2)), Math.min(z0, Math.min(z1, z2)) - centerZ) > halfZ) {
+                return false;
+            }
+            var edges = PhysicsHelper.getTriangleEdges(x0, y0, z0, x1, y1, z1, x2, y2, z2, new double[12], 0);
+            return !PhysicsHelper.isTriangleSeparatedByEdgesOrNormal(x0, y0, z0, x1, y1, z1, x2, y2, z2,
+                    edges, 0, centerX, centerY, centerZ, halfX, halfY, halfZ);
+        }
+
+        @Override
+        public boolean isFacing(@NotNull IVector3 point) {
+            var v0 = this.getVertex(0);
+            return this.getNormal().dot(point.x() - this.mesh.getX(v0), point.y() - this.mesh.getY(v0), point.z() - this.mesh.getZ(v0)) < 0;
+        }
+
+        @Override
+        public double distanceSquaredTo(double x, double y, double z) {
+            var mesh = this.mesh;
+            var v0 = this.getVertex(0);
+            var distance = Double.POSITIVE_INFINITY;
+            for (var corner = 2; corner < this.getVertexCount(); corner++) {
+                var v1 = this.getVertex(corner - 1);
+                var v2 = this.getVertex(corner);
+                distance = Math.min(distance, PhysicsHelper.distanceSquaredToTriangle(x, y, z,
+                        mesh.getX(v0), mesh.getY(v0), mesh.getZ(v0), mesh.getX(v1), mesh.getY(v1), mesh.getZ(v1),
+                        mesh.getX(v2), mesh.getY(v2), mesh.getZ(v2)));
+            }
+            return distance;
+        }
+
+        @Override
+        public @NotNull IPolygon<D> transform(@NotNull ITrans3 trans, boolean transformUVs) {
+            var vertices = this.getVertices();
+            var data = this.getPolygonData().transform(trans);
+            if (vertices.size() == 3) {
+                var builder = new Tri.Builder<D>().setData(data);
+                vertices.forEach(v -> builder.addVertex(v.transform(trans, transformUVs)));
+                return builder.build();
+            }
+            var builder = new Quad.Builder<D>().setData(data);
+            vertices.forEach(v -> builder.addVertex(v.transform(trans, transformUVs)));
+            return builder.build();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PolygonView<?> other)) return false;
+            return this.getPolygonData().equals(other.getPolygonData()) && this.getVertices().equals(other.getVertices());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.getPolygonData(), this.getVertices());
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("data", this.getPolygonData())
+                    .add("vertices", this.getVertices())
+                    .toString();
+        }
+    }
+
+    /**
+     * A vertex of a {@link CompactMesh}, read straight from the buffers of the mesh.
+     */
+    public static final class VertexView implements IVertex {
+        private final CompactMesh<?, ?> mesh;
+        private final int index;
+
+        private VertexView(CompactMesh<?, ?> mesh, int index) {
+            this.mesh = mesh;
+            this.index = index;
+        }
+
+        @Override
+        public @NotNull IVector3 getPos() {
+            return IVector3.ofImmutable(this.getX(), this.getY(), this.getZ());
+        }
+
+        @Override
+        public @NotNull IVector3 getNormal() {
+            return IVector3.ofImmutable(this.getNormalX(), this.getNormalY(), this.getNormalZ());
+        }
+
+        @Override
+        public @NotNull IVertex transform(@NotNull ITrans3 trans, boolean transformUVs) {
+            var builder = new Vertex.Builder()
+                    .setPos(this.getX(), this.getY(), this.getZ())
+                    .setNormal(this.getNormalX(), this.getNormalY(), this.getNormalZ())
+                    .setUV(this.getU(), this.getV());
+            trans.transformPos(builder.getPos());
+            trans.transformNormal(builder.getNormal());
+            if (transformUVs) {
+                trans.transformUV(builder.getUV());
+            }
+            return builder.build();
+        }
+
+        @Override
+        public double getX() {
+            return this.mesh.positions[this.index * 3];
+        }
+
+        @Override
+        public double getY() {
+            return this.mesh.positions[this.index * 3 + 1];
+        }
+
+        @Override
+        public double getZ() {
+            return this.mesh.positions[this.index * 3 + 2];
+        }
+
+        @Override
+        public double getNormalX() {
+            return this.mesh.normals[this.index * 3];
+        }
+
+        @Override
+        public double getNormalY() {
+            return this.mesh.normals[this.index * 3 + 1];
+        }
+
+        @Override
+        public double getNormalZ() {
+            return this.mesh.normals[this.index * 3 + 2];
+        }
+
+        @Override
+        public double getU() {
+            return this.mesh.uvs[this.index * 2];
+        }
+
+        @Override
+        public double getV() {
+            return this.mesh.uvs[this.index * 2 + 1];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof VertexView other)) return false;
+            return this.getX() == other.getX() && this.getY() == other.getY() && this.getZ() == other.getZ()
+                    && this.getNormalX() == other.getNormalX() && this.getNormalY() == other.getNormalY() && this.getNormalZ() == other.getNormalZ()
+                    && this.getU() == other.getU() && this.getV() == other.getV();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.getX(), this.getY(), this.getZ(), this.getNormalX(), this.getNormalY(), this.getNormalZ(), this.getU(), this.getV());
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("pos", this.getPos())
+                    .add("normal", this.getNormal())
+                    .add("uv", "(%s, %s)".formatted(this.getU(), this.getV()))
+                    .toString();
+        }
+    }
+
+    /**
+     * The tolerances used to weld vertices together as they're added to a {@link Builder}.
+     * <p>
+     * A vertex is welded into the first vertex added before it whose position, normal and UVs each differ by no more than their
+     * tolerance along every axis. The welded vertex takes the values of the vertex it was welded into, so its position can move
+     * by up to the position tolerance along each axis. A tolerance of zero only welds vertices with exactly the same value for
+     * that attribute, so {@link #EXACT} never moves a vertex.
+     *
+     * @param position The tolerance of the position of a vertex, in blocks.
+     * @param normal   The tolerance of each component of the normal of a vertex.
+     * @param uv       The tolerance of the UVs of a vertex.
+     */
+    public record Welding(double position, double normal, double uv) {
+
+        /**
+         * Welds vertices whose position, normal and UVs are all within 1/4096th of each other, moving a welded vertex by at
+         * most 1/256th of a voxel of a 16^3 block.
+         */
+        public static final Welding DEFAULT = new Welding(1D / 4096D, 1D / 4096D, 1D / 4096D);
+
+        /**
+         * Only welds vertices that are exactly the same.
+         */
+        public static final Welding EXACT = new Welding(0, 0, 0);
+
+        public Welding {
+            if (!(position >= 0) || !(normal >= 0) || !(uv >= 0)) {
+                throw new IllegalArgumentException("Welding tolerances must be zero or positive, got %s, %s, %s".formatted(position, normal, uv));
+            }
+        }
+
+        /**
+         * Gets the cell of the grid used to look up vertices that a coordinate falls into, a vertex can only be welded into
+         * vertices in the same cell or the cells next to it.
+         */
+        private long getCell(double value) {
+            // Adding zero turns -0 into 0, so they land in the same cell like any other equal values.
+            return this.position == 0 ? Double.doubleToLongBits(value + 0D) : (long) Math.floor(value / this.position);
+        }
+
+        /**
+         * Gets how many cells away from its own a vertex can be welded into along each axis.
+         */
+        private int getCellReach() {
+            return this.position == 0 ? 0 : 1;
+        }
+
+        private static boolean matches(double a, double b, double tolerance) {
+            return Math.abs(a - b) <= tolerance;
+        }
+    }
+
+    /**
+     * Builder for {@link CompactMesh} instances.
+     * <p>
+     * Vertices are added on their own and referred to by index, polygons are added to the current face until it's ended with
+     * {@link #endFace()}, and faces are added to the current part until it's ended with {@link #endPart(Object)}.
+     * <p>
+     * Vertices are only welded together if the builder is given a {@link Welding}, otherwise every vertex added is kept.
+     *
+     * @param <I> The type of data used to identify the parts of the mesh.
+     * @param <D> The type of data that is stored on the polygons.
+     */
+    public static class Builder<I, D extends IPolygonData<D>> {
+        private double[] positions = new double[3 * 64];
+        private float[] normals = new float[3 * 64];
+        private float[] uvs = new float[2 * 64];
+        private int vertexCount = 0;
+        private final IntArrayList indices = new IntArrayList();
+        private final IntArrayList polygonStarts = IntArrayList.of(0);
+        private final List<D> polygonData = new ArrayList<>();
+        private final Map<D, D> internedData = new HashMap<>();
+        private final IntArrayList faceStarts = IntArrayList.of(0);
+        private final IntArrayList partStarts = IntArrayList.of(0);
+        private final List<I> partIds = new ArrayList<>();
+        private Welding welding;
+        private Long2ObjectOpenHashMap<IntArrayList> weldingCells;
+        private int addedVertexCount = 0;
+        private int collapsedPolygonCount = 0;
+
+        /**
+         * Sets the tolerances used to weld vertices together as they're added, vertices that were already added aren't welded.
+         *
+         * @param welding The tolerances to weld with, or null to stop welding.
+         * @return This builder.
+         */
+        public Builder<I, D> setWelding(@Nullable Welding welding) {
+            this.welding = welding;
+            this.weldingCells = welding == null ? null : new Long2ObjectOpenHashMap<>();
+            return this;
+        }
+
+        /**
+         * Gets the number of times {@link #addVertex} has been called, including calls that were welded into an existing vertex.
+         *
+         * @return The number of vertices added.
+         */
+        public int getAddedVertexCount() {
+            return this.addedVertexCount;
+        }
+
+        /**
+         * Gets the number of polygons that were dropped because welding collapsed them.
+         *
+         * @return The number of polygons dropped.
+         */
+        public int getCollapsedPolygonCount() {
+            return this.collapsedPolygonCount;
+        }
+
+        /**
+         * Gets the number of vertices that will be stored in the mesh, after welding.
+         *
+         * @return The number of vertices.
+         */
+        public int getVertexCount() {
+            return this.vertexCount;
+        }
+
+        /**
+         * Adds a vertex to the mesh.
+         *
+         * @param x  The X coordinate of the vertex.
+         * @param y  The Y coordinate of the vertex.
+         * @param z  The Z coordinate of the vertex.
+         * @param nX The X component of the vertex normal.
+         * @param nY The Y component of the vertex normal.
+         * @param nZ The Z component of the vertex normal.
+         * @param u  The U coordinate of the vertex.
+         * @param v  The V coordinate of the vertex.
+         * @return The index of the new vertex, or of the vertex it was welded into, used to refer to it when adding polygons.
+         */
+        public int addVertex(double x, double y, double z, double nX, double nY, double nZ, double u, double v) {
+            this.addedVertexCount++;
+            if (this.welding != null) {
+                var existing = this.findWeldedVertex(x, y, z, nX, nY, nZ, u, v);
+                if (existing != -1) {
+                    return existing;
+                }
+            }
+            if (this.vertexCount * 3 == this.positions.length) {
+                this.positions = Arrays.copyOf(this.positions, this.positions.length * 2);
+                this.normals = Arrays.copyOf(this.normals, this.normals.length * 2);
+                this.uvs = Arrays.copyOf(this.uvs, this.uvs.length * 2);
+            }
+            var i = this.vertexCount;
+            this.positions[i * 3] = x;
+            this.positions[i * 3 + 1] = y;
+            this.positions[i * 3 + 2] = z;
+            this.normals[i * 3] = (float) nX;
+            this.normals[i * 3 + 1] = (float) nY;
+            this.normals[i * 3 + 2] = (float) nZ;
+            this.uvs[i * 2] = (float) u;
+            this.uvs[i * 2 + 1] = (float) v;
+            this.vertexCount++;
+            if (this.welding != null) {
+                var cell = getCellKey(this.welding.getCell(x), this.welding.getCell(y), this.welding.getCell(z));
+                this.weldingCells.computeIfAbsent(cell, c -> new IntArrayList(1)).add(i);
+            }
+            return i;
+        }
+
+        /**
+         * Adds a polygon to the current face. When welding, a polygon with two corners welded into the same vertex is dropped.
+         *
+         * @param data     The data of the polygon.
+         * @param vertices The indices of the vertices of the polygon, as returned by {@link #addVertex}.
+         * @return This builder.
+         */
+        public Builder<I, D> addPolygon(@NotNull D data, int... vertices) {
+            if (vertices.length != 3 && vertices.length != 4) {
+                throw new IllegalArgumentException("Polygons must have 3 or 4 vertices, got %s".formatted(vertices.length));
+            }
+            for (var vertex : vertices) {
+                if (vertex < 0 || vertex >= this.vertexCount) {
+                    throw new IllegalArgumentException("Vertex %s has not been added to the mesh".formatted(vertex));
+                }
+            }
+            if (this.welding != null && isCollapsed(vertices)) {
+                // Welding can pull corners of a small polygon together, leaving nothing worth keeping.
+                this.collapsedPolygonCount++;
+                return this;
+            }
+            this.indices.addElements(this.indices.size(), vertices);
+            this.polygonStarts.add(this.indices.size());
+            this.polygonData.add(this.internedData.computeIfAbsent(data, d -> d));
+            return this;
+        }
+
+        private int findWeldedVertex(double x, double y, double z, double nX, double nY, double nZ, double u, double v) {
+            // Vertices within the tolerance of each other can straddle the edge of a cell, so the cells around it are searched too.
+            var welding = this.welding;
+            var reach = welding.getCellReach();
+            var cellX = welding.getCell(x);
+            var cellY = welding.getCell(y);
+            var cellZ = welding.getCell(z);
+            var found = -1;
+            for (var dX = -reach; dX <= reach; dX++) {
+                for (var dY = -reach; dY <= reach; dY++) {
+                    for (var dZ = -reach; dZ <= reach; dZ++) {
+                        var candidates = this.weldingCells.get(getCellKey(cellX + dX, cellY + dY, cellZ + dZ));
+                        if (candidates == null) {
+                            continue;
+                        }
+                        for (var j = 0; j < candidates.size(); j++) {
+                            var i = candidates.getInt(j);
+                            // Keys of different cells can collide, the tolerances are always checked so that only costs a few comparisons.
+                            if ((found == -1 || i < found)
+                                    && Welding.matches(this.positions[i * 3], x, welding.position)
+                                    && Welding.matches(this.positions[i * 3 + 1], y, welding.position)
+                                    && Welding.matches(this.positions[i * 3 + 2], z, welding.position)
+                                    && Welding.matches(this.normals[i * 3], (float) nX, welding.normal)
+                                    && Welding.matches(this.normals[i * 3 + 1], (float) nY, welding.normal)
+                                    && Welding.matches(this.normals[i * 3 + 2], (float) nZ, welding.normal)
+                                    && Welding.matches(this.uvs[i * 2], (float) u, welding.uv)
+                                    && Welding.matches(this.uvs[i * 2 + 1], (float) v, welding.uv)) {
+                                found = i;
+                            }
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+
+        private static long getCellKey(long x, long y, long z) {
+            return (x * 0x9E3779B97F4A7C15L) ^ (y * 0xC2B2AE3D27D4EB4FL) ^ (z * 0x165667B19E3779F9L);
+        }
+
+        private static boolean isCollapsed(int[] vertices) {
+            for (var i = 0; i < vertices.length; i++) {
+                for (var j = i + 1; j < vertices.length; j++) {
+                    if (vertices[i] == vertices[j]) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Ends the current face, the polygons added since the last face was ended make up the face. When welding, a face left
+         * without any polygons because they all collapsed is dropped.
+         *
+         * @return This builder.
+         */
+        public Builder<I, D> endFace() {
+            if (this.welding != null && this.faceStarts.getInt(this.faceStarts.size() - 1) == this.polygonData.size()) {
+                return this;
+            }
+            this.faceStarts.add(this.polygonData.size());
+            return this;
+        }
+
+        /**
+         * Ends the current part, the faces ended since the last part was ended make up the part. When welding, a part left without
+         * any faces because they were all dropped is dropped too, it would have no polygons to take its bounds from.
+         *
+         * @param id The identifier of the part.
+         * @return This builder.
+         */
+        public Builder<I, D> endPart(@NotNull I id) {
+            if (this.faceStarts.getInt(this.faceStarts.size() - 1) != this.polygonData.size()) {
+                throw new IllegalStateException("The last face of a part must be ended before the part");
+            }
+            if (this.partIds.contains(id)) {
+                throw new IllegalArgumentException("Part %s has already been added to the mesh".formatted(id));
+            }
+            if (this.welding != null && this.partStarts.getInt(this.partStarts.size() - 1) == this.faceStarts.size() - 1) {
+                return this;
+            }
+            this.partStarts.add(this.faceStarts.size() - 1);
+            this.partIds.add(id);
+            return this;
+        }
+
+        /**
+         * Builds a new {@link CompactMesh} instance.
+         *
+         * @return The new mesh.
+         */
+        public CompactMesh<I, D> build() {
+            if (this.partStarts.getInt(this.partStarts.size() - 1) != this.faceStarts.size() - 1) {
+                throw new IllegalStateException("The last part of a mesh must be ended before building it");
+            }
+            return new CompactMesh<>(
+                    Arrays.copyOf(this.positions, this.vertexCount * 3),
+                    Arrays.copyOf(this.normals, this.vertexCount * 3),
+                    Arrays.copyOf(this.uvs, this.vertexCount * 2),
+                    this.indices.toIntArray(),
+                    this.polygonStarts.toIntArray(),
+                    this.polygonData.toArray(),
+                    this.faceStarts.toIntArray(),
+                    this.partStarts.toIntArray(),
+                    this.partIds.toArray(),
+                    null
+            );
+        }
+    }
+}
@@ -28,7 +28,10 @@ public enum CullFace {
 
     static {
         for (CullFace face : values()) {
-            FACES_BY_INDEX[face.getIndex()] = face;
+            // NONE has an index of -1, storing it made the class fail to initialize.
+            if (face != NONE) {
+                FACES_BY_INDEX[face.getIndex()] = face;
+            }
         }
     }
 
@@ -44,6 +47,18 @@ public enum CullFace {
         return FACES_BY_INDEX[direction.ordinal()];
     }
 
+    /**
+     * Gets the cull face with the given index, as returned by {@link #getIndex()}.
+     *
+     * @param index The index of the cull face, -1 for none.
+     * @return The cull face with the given index.
+     */
+    @NotNull
+    public static CullFace fromIndex(int index) {
+        if (index < 0 || index >= FACES_BY_INDEX.length) return NONE;
+        return FACES_BY_INDEX[index];
+    }
+
     private final int index;
 
     CullFace(int index) {
@@ -4,10 +4,14 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.tridevmc.architecture.core.math.ITrans3;
 import com.tridevmc.architecture.core.physics.AABB;
+import com.tridevmc.architecture.core.physics.IAABB;
 import com.tridevmc.architecture.core.physics.IAABBTree;
+import com.tridevmc.architecture.core.physics.TwoLevelBVHTree;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
@@ -49,6 +53,23 @@ public interface IMesh<I, D extends IPolygonData<D>> {
     @NotNull
     IAABBTree<IPolygon<D>> getAABBTree();
 
+    /**
+     * Gets the polygons of this mesh grouped by part, each part has a tree of its own under a tree of the bounds of the parts.
+     * <p>
+     * Queries skip whole parts that can't match, and parts can be hidden or replaced without rebuilding the trees of the others,
+     * see {@link TwoLevelBVHTree}. Implementations should build it once and keep it, this default builds a new one every call.
+     *
+     * @return The tree containing all the polygons of this mesh, grouped by part.
+     */
+    @NotNull
+    default TwoLevelBVHTree<I, IPolygon<D>> getPartTree() {
+        var groups = new LinkedHashMap<I, List<IPolygon<D>>>();
+        for (var part : this.getParts().values()) {
+            groups.put(part.getId(), part.getFaces().stream().flatMap(IFace::getPolygonStream).toList());
+        }
+        return TwoLevelBVHTree.build(groups, IPolygon::getAABB);
+    }
+
     /**
      * Applies the given transformation to this mesh, returning a new mesh with the transformed parts and faces.
      *
@@ -92,6 +113,17 @@ public interface IMesh<I, D extends IPolygonData<D>> {
         return this.getAABBTree().searchStream(box);
     }
 
+    /**
+     * Checks if any polygon in the mesh that intersects the given AABB matches the given predicate, stopping at the first match.
+     *
+     * @param box       The AABB to test against.
+     * @param predicate The predicate to test each polygon against.
+     * @return True if a polygon matched the predicate, false otherwise.
+     */
+    default boolean anyIntersecting(@NotNull IAABB box, @NotNull Predicate<? super IPolygon<D>> predicate) {
+        return this.getAABBTree().anyIntersecting(box, predicate);
+    }
+
     /**
      * Gets the bounds of this mesh using the AABBTree.
      *
@@ -5,6 +5,8 @@ import com.tridevmc.architecture.core.math.ITrans3;
 import com.tridevmc.architecture.core.math.IVector3;
 import com.tridevmc.architecture.core.math.IVector3Immutable;
 import com.tridevmc.architecture.core.physics.AABB;
+import com.tridevmc.architecture.core.physics.IAABB;
+import com.tridevmc.architecture.core.physics.PhysicsHelper;
 import com.tridevmc.architecture.core.physics.Ray;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -35,6 +37,15 @@ public interface IPolygon<D extends IPolygonData<D>> {
     @NotNull
     ImmutableList<IVertex> getVertices();
 
+    /**
+     * Gets the number of vertices this polygon has, without going through the list of vertices where the implementation can.
+     *
+     * @return The number of vertices of this polygon.
+     */
+    default int getVertexCount() {
+        return this.getVertices().size();
+    }
+
     /**
      * Gets the normal of this polygon.
      *
@@ -66,7 +77,7 @@ public interface IPolygon<D extends IPolygonData<D>> {
      * @param box the AABB to test against.
      * @return true if this polygon intersects with the given AABB, false otherwise.
      */
-    boolean intersect(AABB box);
+    boolean intersect(IAABB box);
 
     /**
      * Applies the given transformation to this polygon, returning a new polygon with the transformed vertices.
@@ -102,6 +113,28 @@ public interface IPolygon<D extends IPolygonData<D>> {
         return this.getNormal().dot(point.x() - v0.x(), point.y() - v0.y(), point.z() - v0.z()) < 0;
     }
 
+    /**
+     * Gets the squared distance from a point to the closest point on this polygon, polygons with more than three vertices are
+     * measured as a fan of triangles around their first vertex.
+     *
+     * @param x the X coordinate of the point.
+     * @param y the Y coordinate of the point.
+     * @param z the Z coordinate of the point.
+     * @return the squared distance from the point to this polygon.
+     */
+    default double distanceSquaredTo(double x, double y, double z) {
+        var vertices = this.getVertices();
+        var v0 = vertices.get(0).getPos();
+        var distance = Double.POSITIVE_INFINITY;
+        for (var i = 2; i < vertices.size(); i++) {
+            var v1 = vertices.get(i - 1).getPos();
+            var v2 = vertices.get(i).getPos();
+            distance = Math.min(distance, PhysicsHelper.distanceSquaredToTriangle(x, y, z,
+                    v0.x(), v0.y(), v0.z(), v1.x(), v1.y(), v1.z(), v2.x(), v2.y(), v2.z()));
+        }
+        return distance;
+    }
+
     /**
      * Gets a stream of the vertices of this polygon.
      *
@@ -1,11 +1,14 @@
 package com.tridevmc.architecture.core.model.mesh;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.tridevmc.architecture.core.math.ITrans3;
-import com.tridevmc.architecture.core.physics.AABBTree;
+import com.tridevmc.architecture.core.physics.AABBTreeSelector;
 import com.tridevmc.architecture.core.physics.IAABBTree;
+import com.tridevmc.architecture.core.physics.TwoLevelBVHTree;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
@@ -17,22 +20,38 @@ public class Mesh<I, D extends IPolygonData<D>> implements IMesh<I, D> {
 
     private final ImmutableMap<I, IPart<I, D>> parts;
     private final ImmutableList<IFace<D>> faces;
-    private final AABBTree<IPolygon<D>> aabbTree;
+    private final IAABBTree<IPolygon<D>> aabbTree;
+    private final Supplier<TwoLevelBVHTree<I, IPolygon<D>>> partTree = Suppliers.memoize(IMesh.super::getPartTree);
 
     /**
      * Creates a new mesh with the given faces.
      *
+     * @param parts The parts of the mesh.
      * @param faces The faces of the mesh.
      */
     public Mesh(@NotNull ImmutableMap<I, IPart<I, D>> parts, @NotNull ImmutableList<IFace<D>> faces) {
         this.parts = parts;
         this.faces = faces;
-        this.aabbTree = new AABBTree<>(
+        // Small meshes get a plain list instead of a tree, see AABBTreeSelector.
+        this.aabbTree = AABBTreeSelector.build(
                 this.getFaceStream().flatMap(IFace::getPolygonStream).toList(),
                 IPolygon::getAABB
         );
     }
 
+    /**
+     * Creates a new mesh with the given faces, using a tree that has already been built for its polygons.
+     *
+     * @param parts    The parts of the mesh.
+     * @param faces    The faces of the mesh.
+     * @param aabbTree A tree containing every polygon of the given faces.
+     */
+    Mesh(@NotNull ImmutableMap<I, IPart<I, D>> parts, @NotNull ImmutableList<IFace<D>> faces, @NotNull IAABBTree<IPolygon<D>> aabbTree) {
+        this.parts = parts;
+        this.faces = faces;
+        this.aabbTree = aabbTree;
+    }
+
     @Override
     public @NotNull ImmutableMap<I, IPart<I, D>> getParts() {
         return this.parts;
@@ -53,14 +72,16 @@ public class Mesh<I, D extends IPolygonData<D>> implements IMesh<I, D> {
         return this.aabbTree;
     }
 
+    @Override
+    public @NotNull TwoLevelBVHTree<I, IPolygon<D>> getPartTree() {
+        return this.partTree.get();
+    }
+
     @Override
     @NotNull
     public IMesh<I, D> transform(@NotNull ITrans3 trans, boolean transformUVs) {
-        var builder = new Builder<I, D>();
-        for (var p : this.getParts().values()) {
-            builder.addPart(p.transform(trans, transformUVs));
-        }
-        return builder.build();
+        // The transformed polygons are created on demand and reuse the shape of our tree, see TransformedMesh.
+        return new TransformedMesh<>(this, trans, transformUVs);
     }
 
     @Override
@@ -115,5 +136,15 @@ public class Mesh<I, D extends IPolygonData<D>> implements IMesh<I, D> {
         public Mesh<I, D> build() {
             return new Mesh<>(ImmutableMap.copyOf(this.parts), ImmutableList.copyOf(this.faces));
         }
+
+        /**
+         * Builds a new {@link Mesh} instance around a tree that has already been built for the polygons added to this builder.
+         *
+         * @param aabbTree A tree containing every polygon of the mesh.
+         * @return The new mesh.
+         */
+        Mesh<I, D> build(IAABBTree<IPolygon<D>> aabbTree) {
+            return new Mesh<>(ImmutableMap.copyOf(this.parts), ImmutableList.copyOf(this.faces), aabbTree);
+        }
     }
 }
@@ -5,27 +5,94 @@ import com.tridevmc.architecture.core.math.ITrans3;
 import com.tridevmc.architecture.core.math.IVector3;
 import com.tridevmc.architecture.core.math.IVector3Immutable;
 import com.tridevmc.architecture.core.physics.AABB;
+import com.tridevmc.architecture.core.physics.IAABB;
 import com.tridevmc.architecture.core.physics.PhysicsHelper;
 import com.tridevmc.architecture.core.physics.Ray;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Objects;
+
 /**
  * Default implementation of {@link IPolygon} for quads.
- *
- * @param data     The data associated with this quad.
- * @param vertices The vertices that make up this quad.
+ * <p>
+ * The positions of the vertices, the edges and diagonals between them, the bounds of the vertices and the normals formed by
+ * neighbouring edges are found once when it's created and kept as plain doubles. Rays are tested against the two triangles
+ * either side of the diagonal from the first vertex to the third.
  */
-public record Quad<D extends IPolygonData<D>>(@NotNull D data, @NotNull ImmutableList<IVertex> vertices,
-                                           @NotNull IVector3Immutable normal,
-                                           @NotNull AABB aabb) implements IPolygon<D> {
+public final class Quad<D extends IPolygonData<D>> implements IPolygon<D> {
+
+    private final D data;
+    private final ImmutableList<IVertex> vertices;
+    private final IVector3Immutable normal;
+    private final AABB aabb;
 
-    private static final double EPSILON = 1e-8;
+    private final double x0, y0, z0, x1, y1, z1, x2, y2, z2, x3, y3, z3;
+    // The edges, diagonals and edge normals of the quad, see PhysicsHelper.getQuadAxes.
+    private final double[] axes;
+    private final double minX, minY, minZ, maxX, maxY, maxZ;
 
-    public Quad {
+    /**
+     * Creates a new quad.
+     *
+     * @param data     The data associated with this quad.
+     * @param vertices The vertices that make up this quad.
+     * @param normal   The normal of this quad.
+     * @param aabb     The bounds of this quad.
+     */
+    public Quad(@NotNull D data, @NotNull ImmutableList<IVertex> vertices, @NotNull IVector3Immutable normal, @NotNull AABB aabb) {
         if (vertices.size() != 4) {
             throw new IllegalArgumentException("Quads must have 4 vertices");
         }
+        this.data = data;
+        this.vertices = vertices;
+        this.normal = normal;
+        this.aabb = aabb;
+
+        var p0 = vertices.get(0).getPos();
+        var p1 = vertices.get(1).getPos();
+        var p2 = vertices.get(2).getPos();
+        var p3 = vertices.get(3).getPos();
+        this.x0 = p0.x();
+        this.y0 = p0.y();
+        this.z0 = p0.z();
+        this.x1 = p1.x();
+        this.y1 = p1.y();
+        this.z1 = p1.z();
+        this.x2 = p2.x();
+        this.y2 = p2.y();
+        this.z2 = p2.z();
+        this.x3 = p3.x();
+        this.y3 = p3.y();
+        this.z3 = p3.z();
+        this.minX = Math.min(Math.min(this.x0, this.x1), Math.min(this.x2, this.x3));
+        this.minY = Math.min(Math.min(this.y0, this.y1), Math.min(this.y2, this.y3));
+        this.minZ = Math.min(Math.min(this.z0, this.z1), Math.min(this.z2, this.z3));
+        this.maxX = Math.max(Math.max(this.x0, this.x1), Math.max(this.x2, this.x3));
+        this.maxY = Math.max(Math.max(this.y0, this.y1), Math.max(this.y2, this.y3));
+        this.maxZ = Math.max(Math.max(this.z0, this.z1), Math.max(this.z2, this.z3));
+        this.axes = PhysicsHelper.getQuadAxes(this.x0, this.y0, this.z0, this.x1, this.y1, this.z1,
+                this.x2, this.y2, this.z2, this.x3, this.y3, this.z3, new double[30], 0);
+    }
+
+    @NotNull
+    public D data() {
+        return this.data;
+    }
+
+    @NotNull
+    public ImmutableList<IVertex> vertices() {
+        return this.vertices;
+    }
+
+    @NotNull
+    public IVector3Immutable normal() {
+        return this.normal;
+    }
+
+    @NotNull
+    public AABB aabb() {
+        return this.aabb;
     }
 
     @Override
@@ -39,6 +106,11 @@ public record Quad<D extends IPolygonData<D>>(@NotNull D data, @NotNull Immutabl
         return this.vertices;
     }
 
+    @Override
+    public int getVertexCount() {
+        return 4;
+    }
+
     @Override
     @NotNull
     public IVector3Immutable getNormal() {
@@ -53,162 +125,41 @@ public record Quad<D extends IPolygonData<D>>(@NotNull D data, @NotNull Immutabl
     @Override
     @Nullable
     public IVector3 intersect(Ray ray) {
-        // Vertices of the quadrilateral
-        var v0 = this.vertices.get(0).getPos().asImmutable();
-        var v1 = this.vertices.get(1).getPos().asImmutable();
-        var v2 = this.vertices.get(2).getPos().asImmutable();
-        var v3 = this.vertices.get(3).getPos().asImmutable();
-
-        // Compute vectors for two of the quadrilateral's edges
-        var e1 = v1.sub(v0);
-        var e2 = v2.sub(v0);
-        var e3 = v3.sub(v0);
-
-        // Compute the cross product of the ray direction and edge 2
-        var p = ray.direction().asMutable().cross(e2);
-
-        // Compute the determinant
-        var det = e1.dot(p);
-        if (det > -EPSILON && det < EPSILON) {
-            // Ray is parallel to the quadrilateral
-            return null;
-        }
-
-        var invDet = 1 / det;
-        var t = ray.origin().asMutable().sub(v0).mul(invDet);
-        var q = t.asMutable().cross(e1);
-
-        // Compute the barycentric coordinates
-        var u = t.dot(p);
-        if (u < 0 || u > 1) {
-            return null;
-        }
-        var v = ray.direction().dot(q);
-        if (v < 0 || u + v > 1) {
-            // Check for intersection with the second triangle of the quad
-            p.set(ray.direction()).cross(e3);
-            det = e1.dot(p);
-            if (det > -EPSILON && det < EPSILON) {
-                return null;
-            }
-            invDet = 1 / det;
-            t.set(ray.origin()).sub(v0).mul(invDet);
-            q.set(t).cross(e1);
-            u = t.dot(p);
-            if (u < 0 || u > 1) {
-                return null;
-            }
-            v = ray.direction().dot(q);
-            if (v < 0 || u + v > 1) {
-                return null;
-            }
-        }
-
-        // Compute the distance from the ray origin to the quadrilateral
-        var t2 = e2.dot(q);
-        if (t2 > EPSILON) {
-            // Ray intersects the quadrilateral
-            return ray.getPoint(t2);
+        var origin = ray.origin();
+        var direction = ray.direction();
+        // The first triangle is made of the first three vertices, the second of the first, third and fourth.
+        var axes = this.axes;
+        var t = PhysicsHelper.intersectRayTriangle(origin.x(), origin.y(), origin.z(), direction.x(), direction.y(), direction.z(),
+                this.x0, this.y0, this.z0, axes[0], axes[1], axes[2], axes[12], axes[13], axes[14]);
+        if (Double.isNaN(t)) {
+            t = PhysicsHelper.intersectRayTriangle(origin.x(), origin.y(), origin.z(), direction.x(), direction.y(), direction.z(),
+                    this.x0, this.y0, this.z0, axes[12], axes[13], axes[14], -axes[9], -axes[10], -axes[11]);
         }
-
-        // Ray does not intersect the quadrilateral
-        return null;
+        return Double.isNaN(t) ? null : ray.getPoint(t);
     }
 
     @Override
-    public boolean intersect(AABB box) {
-        // Check if any of the vertices are inside the box, if so, we intersect.
-        for (var vertex : this.vertices) {
-            if (box.contains(vertex.getPos())) {
-                return true;
-            }
-        }
-
-        // Check if any of the edges intersect the box, if so, we intersect.
-        for (var i = 0; i < 4; i++) {
-            var v1 = this.vertices.get(i).getPos().asImmutable();
-            var v2 = this.vertices.get((i + 1) % 4).getPos().asImmutable();
-            var ray = new Ray(v1, v2.sub(v1));
-            if (box.intersects(ray).findAny().isPresent()) {
-                return true;
-            }
-        }
-
-        // We've exhausted all of our quick checks, so we move on to the SAT test.
-        // This is similar to what we do with Tris, but we add a few more axes to check against.
-        var v0 = this.vertices.get(0).getPos().asMutable();
-        var v1 = this.vertices.get(1).getPos().asMutable();
-        var v2 = this.vertices.get(2).getPos().asMutable();
-        var v3 = this.vertices.get(3).getPos().asMutable();
-
-        var aabbCenter = box.center();
-        var aabbSize = box.size().asImmutable().mul(0.5);
-        v0 = v0.sub(aabbCenter);
-        v1 = v1.sub(aabbCenter);
-        v2 = v2.sub(aabbCenter);
-        v3 = v3.sub(aabbCenter);
-
-        // Check against the X, Y, and Z axes first, since they're the most likely to fail.
-        // Also saves some allocations if the tests fail.
-        if (PhysicsHelper.testSeparatingAxis(v0, v1, v2, v3, IVector3.UNIT_X, aabbSize) ||
-                PhysicsHelper.testSeparatingAxis(v0, v1, v2, v3, IVector3.UNIT_Y, aabbSize) ||
-                PhysicsHelper.testSeparatingAxis(v0, v1, v2, v3, IVector3.UNIT_Z, aabbSize)) {
-            return false;
-        }
-
-        var edges = new IVector3[]{
-                v1.asMutable().sub(v0),
-                v2.asMutable().sub(v1),
-                v3.asMutable().sub(v2),
-                v0.asMutable().sub(v3)
-        };
-        var diagonals = new IVector3[]{
-                v2.asMutable().sub(v0),
-                v3.asMutable().sub(v1)
-        };
-
-        var axis = IVector3.ofMutable(0, 0, 0);
-        for (var i = 0; i < 4; i++) {
-            axis.set(IVector3.UNIT_X);
-            axis.cross(edges[i]);
-            if (PhysicsHelper.testSeparatingAxis(v0, v1, v2, v3, axis, aabbSize)) {
-                return false;
-            }
-        }
-
-        for (var i = 0; i < 4; i++) {
-            axis.set(IVector3.UNIT_Y);
-            axis.cross(edges[i]);
-            if (PhysicsHelper.testSeparatingAxis(v0, v1, v2, v3, axis, aabbSize)) {
-                return false;
-            }
-        }
-
-        for (var i = 0; i < 4; i++) {
-            axis.set(IVector3.UNIT_Z);
-            axis.cross(edges[i]);
-            if (PhysicsHelper.testSeparatingAxis(v0, v1, v2, v3, axis, aabbSize)) {
-                return false;
-            }
-        }
+    public boolean intersect(IAABB box) {
+        return PhysicsHelper.intersectsQuad(box, this.x0, this.y0, this.z0, this.x1, this.y1, this.z1,
+                this.x2, this.y2, this.z2, this.x3, this.y3, this.z3, this.axes, 0, this.minX, this.minY, this.minZ, this.maxX, this.maxY, this.maxZ);
+    }
 
-        for (var i = 0; i < 2; i++) {
-            axis.set(diagonals[i]);
-            if (PhysicsHelper.testSeparatingAxis(v0, v1, v2, v3, axis, aabbSize)) {
-                return false;
-            }
-        }
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Quad<?> quad)) return false;
+        return this.data.equals(quad.data) && this.vertices.equals(quad.vertices)
+                && this.normal.equals(quad.normal) && this.aabb.equals(quad.aabb);
+    }
 
-        for (var i = 0; i < 4; i++) {
-            axis.set(edges[i]);
-            // Cross it by its neighbouring element, ie 0 -> 1, 1 -> 2, 2 -> 3, 3 -> 0
-            axis.cross(edges[(i + 1) % 4]);
-            if (PhysicsHelper.testSeparatingAxis(v0, v1, v2, v3, axis, aabbSize)) {
-                return false;
-            }
-        }
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.data, this.vertices, this.normal, this.aabb);
+    }
 
-        return true;
+    @Override
+    public String toString() {
+        return "Quad[data=%s, vertices=%s, normal=%s, aabb=%s]".formatted(this.data, this.vertices, this.normal, this.aabb);
     }
 
     @Override
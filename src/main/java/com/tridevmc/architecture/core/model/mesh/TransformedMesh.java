@@ -0,0 +1,207 @@
+package com.tridevmc.architecture.core.model.mesh;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.tridevmc.architecture.core.math.ITrans3;
+import com.tridevmc.architecture.core.math.ITrans3Immutable;
+import com.tridevmc.architecture.core.math.IVector3;
+import com.tridevmc.architecture.core.physics.AABB;
+import com.tridevmc.architecture.core.physics.AABBList;
+import com.tridevmc.architecture.core.physics.IAABBTree;
+import com.tridevmc.architecture.core.physics.PackedBVHTree;
+import com.tridevmc.architecture.core.physics.TwoLevelBVHTree;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.IdentityHashMap;
+import java.util.Objects;
+
+/**
+ * A view of another mesh with a transformation applied, the transformed parts, faces and polygons are only created the first
+ * time something asks for them.
+ * <p>
+ * Once created the polygons are placed into a tree with the same shape as the tree of the original mesh, refitted around the
+ * transformed polygons instead of being built from scratch. Views of a {@link CompactMesh} transform its buffers as a whole
+ * and keep the result compact. The bounds of the mesh are found from the transformed vertex
+ * positions directly, so code that only needs them never creates any polygons.
+ */
+public class TransformedMesh<I, D extends IPolygonData<D>> implements IMesh<I, D> {
+
+    private final IMesh<I, D> source;
+    private final ITrans3Immutable trans;
+    private final boolean transformUVs;
+    private final Supplier<AABB> bounds = Suppliers.memoize(this::computeBounds);
+    private volatile IMesh<I, D> mesh;
+
+    /**
+     * Creates a new view of the given mesh.
+     *
+     * @param source       The mesh to transform.
+     * @param trans        The transformation to apply, copied if it's mutable.
+     * @param transformUVs Whether to transform the UVs of the mesh.
+     */
+    public TransformedMesh(@NotNull IMesh<I, D> source, @NotNull ITrans3 trans, boolean transformUVs) {
+        this.source = source;
+        this.trans = trans.asImmutable();
+        this.transformUVs = transformUVs;
+    }
+
+    /**
+     * Gets the mesh this view transforms.
+     *
+     * @return The untransformed mesh.
+     */
+    public IMesh<I, D> getSource() {
+        return this.source;
+    }
+
+    /**
+     * Gets the transformation this view applies.
+     *
+     * @return The transformation.
+     */
+    public ITrans3Immutable getTrans() {
+        return this.trans;
+    }
+
+    /**
+     * Checks if the transformed polygons have been created yet.
+     *
+     * @return True if the polygons exist, false if nothing has needed them so far.
+     */
+    public boolean isMaterialized() {
+        return this.mesh != null;
+    }
+
+    /**
+     * Gets the transformed mesh, creating it if this is the first time it's needed.
+     * <p>
+     * Meshes are shared between the threads of the voxelizer, so creation is locked to make sure it only happens once.
+     *
+     * @return The transformed mesh.
+     */
+    private IMesh<I, D> getMesh() {
+        var mesh = this.mesh;
+        if (mesh == null) {
+            synchronized (this) {
+                mesh = this.mesh;
+                if (mesh == null) {
+                    mesh = this.materialize();
+                    this.mesh = mesh;
+                }
+            }
+        }
+        return mesh;
+    }
+
+    private IMesh<I, D> materialize() {
+        if (this.source instanceof CompactMesh<I, D> compact) {
+            return compact.transformBuffers(this.trans, this.transformUVs);
+        }
+
+        var builder = new Mesh.Builder<I, D>();
+        var transformed = new IdentityHashMap<IPolygon<D>, IPolygon<D>>();
+        for (var part : this.source.getParts().values()) {
+            var transformedPart = part.transform(this.trans, this.transformUVs);
+            builder.addPart(transformedPart);
+            // Transforming keeps the order of faces and polygons, so each transformed polygon lines up with its original.
+            for (var f = 0; f < part.getFaces().size(); f++) {
+                var polygons = part.getFaces().get(f).getPolygons();
+                var transformedPolygons = transformedPart.getFaces().get(f).getPolygons();
+                for (var p = 0; p < polygons.size(); p++) {
+                    transformed.put(polygons.get(p), transformedPolygons.get(p));
+                }
+            }
+        }
+
+        if (this.source.getAABBTree() instanceof PackedBVHTree<IPolygon<D>> sourceTree) {
+            return builder.build(sourceTree.refit(transformed::get, IPolygon::getAABB));
+        } else if (this.source.getAABBTree() instanceof AABBList<IPolygon<D>> sourceList) {
+            return builder.build(sourceList.refit(transformed::get, IPolygon::getAABB));
+        }
+        return builder.build();
+    }
+
+    private AABB computeBounds() {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        var pos = IVector3.ofMutable(0, 0, 0);
+        for (var face : this.source.getFaces()) {
+            for (var polygon : face.getPolygons()) {
+                for (var vertex : polygon.getVertices()) {
+                    this.trans.transformPos(pos.set(vertex.getPos()));
+                    minX = Math.min(minX, pos.x());
+                    minY = Math.min(minY, pos.y());
+                    minZ = Math.min(minZ, pos.z());
+                    maxX = Math.max(maxX, pos.x());
+                    maxY = Math.max(maxY, pos.y());
+                    maxZ = Math.max(maxZ, pos.z());
+                }
+            }
+        }
+        if (minX > maxX) {
+            throw new IllegalStateException("Cannot get the bounds of an empty mesh");
+        }
+        return new AABB(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    @Override
+    public @NotNull ImmutableMap<I, IPart<I, D>> getParts() {
+        return this.getMesh().getParts();
+    }
+
+    @Override
+    public @NotNull IPart<I, D> getPart(I id) {
+        return this.getMesh().getPart(id);
+    }
+
+    @Override
+    public @NotNull ImmutableList<IFace<D>> getFaces() {
+        return this.getMesh().getFaces();
+    }
+
+    @Override
+    public @NotNull IAABBTree<IPolygon<D>> getAABBTree() {
+        return this.getMesh().getAABBTree();
+    }
+
+    @Override
+    public @NotNull TwoLevelBVHTree<I, IPolygon<D>> getPartTree() {
+        return this.getMesh().getPartTree();
+    }
+
+    @Override
+    public @NotNull AABB getBounds() {
+        return this.bounds.get();
+    }
+
+    @Override
+    @NotNull
+    public IMesh<I, D> transform(@NotNull ITrans3 trans, boolean transformUVs) {
+        return new TransformedMesh<>(this, trans, transformUVs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TransformedMesh<?, ?> mesh)) return false;
+        // Comparing what the view is made from rather than its parts means neither view has to be materialized.
+        return this.transformUVs == mesh.transformUVs && this.source.equals(mesh.source) && this.trans.equals(mesh.trans);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.source, this.trans, this.transformUVs);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("source", this.source)
+                .add("trans", this.trans)
+                .add("transformUVs", this.transformUVs)
+                .toString();
+    }
+}
@@ -5,27 +5,88 @@ import com.tridevmc.architecture.core.math.ITrans3;
 import com.tridevmc.architecture.core.math.IVector3;
 import com.tridevmc.architecture.core.math.IVector3Immutable;
 import com.tridevmc.architecture.core.physics.AABB;
+import com.tridevmc.architecture.core.physics.IAABB;
 import com.tridevmc.architecture.core.physics.PhysicsHelper;
 import com.tridevmc.architecture.core.physics.Ray;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Objects;
+
 /**
  * Default implementation of {@link IPolygon} for tris.
- *
- * @param data     The data associated with this tri.
- * @param vertices The vertices that make up this tri.
+ * <p>
+ * The positions of the vertices, the edges between them, the bounds of the vertices and the normal of the tri are found once
+ * when it's created and kept as plain doubles, so the ray and box tests never have to go back through the vertex objects.
  */
-public record Tri<D extends IPolygonData<D>>(@NotNull D data, ImmutableList<IVertex> vertices,
-                                             @NotNull IVector3Immutable normal,
-                                             @NotNull AABB aabb) implements IPolygon<D> {
+public final class Tri<D extends IPolygonData<D>> implements IPolygon<D> {
+
+    private final D data;
+    private final ImmutableList<IVertex> vertices;
+    private final IVector3Immutable normal;
+    private final AABB aabb;
 
-    private static final double EPSILON = 1e-8;
+    private final double x0, y0, z0, x1, y1, z1, x2, y2, z2;
+    private final double minX, minY, minZ, maxX, maxY, maxZ;
+    // The edges of the tri and the unnormalized normal of its plane, see PhysicsHelper.getTriangleEdges.
+    private final double[] edges;
 
-    public Tri {
+    /**
+     * Creates a new tri.
+     *
+     * @param data     The data associated with this tri.
+     * @param vertices The vertices that make up this tri.
+     * @param normal   The normal of this tri.
+     * @param aabb     The bounds of this tri.
+     */
+    public Tri(@NotNull D data, ImmutableList<IVertex> vertices, @NotNull IVector3Immutable normal, @NotNull AABB aabb) {
         if (vertices.size() != 3) {
             throw new IllegalArgumentException("Tris must have 3 vertices");
         }
+        this.data = data;
+        this.vertices = vertices;
+        this.normal = normal;
+        this.aabb = aabb;
+
+        var p0 = vertices.get(0).getPos();
+        var p1 = vertices.get(1).getPos();
+        var p2 = vertices.get(2).getPos();
+        this.x0 = p0.x();
+        this.y0 = p0.y();
+        this.z0 = p0.z();
+        this.x1 = p1.x();
+        this.y1 = p1.y();
+        this.z1 = p1.z();
+        this.x2 = p2.x();
+        this.y2 = p2.y();
+        this.z2 = p2.z();
+        this.minX = Math.min(p0.x(), Math.min(p1.x(), p2.x()));
+        this.minY = Math.min(p0.y(), Math.min(p1.y(), p2.y()));
+        this.minZ = Math.min(p0.z(), Math.min(p1.z(), p2.z()));
+        this.maxX = Math.max(p0.x(), Math.max(p1.x(), p2.x()));
+        this.maxY = Math.max(p0.y(), Math.max(p1.y(), p2.y()));
+        this.maxZ = Math.max(p0.z(), Math.max(p1.z(), p2.z()));
+        this.edges = PhysicsHelper.getTriangleEdges(this.x0, this.y0, this.z0, this.x1, this.y1, this.z1, this.x2, this.y2, this.z2,
+                new double[12], 0);
+    }
+
+    @NotNull
+    public D data() {
+        return this.data;
+    }
+
+    public ImmutableList<IVertex> vertices() {
+        return this.vertices;
+    }
+
+    @NotNull
+    public IVector3Immutable normal() {
+        return this.normal;
+    }
+
+    @NotNull
+    public AABB aabb() {
+        return this.aabb;
     }
 
     @Override
@@ -39,6 +100,11 @@ public record Tri<D extends IPolygonData<D>>(@NotNull D data, ImmutableList<IVer
         return this.vertices;
     }
 
+    @Override
+    public int getVertexCount() {
+        return 3;
+    }
+
     @Override
     @NotNull
     public IVector3Immutable getNormal() {
@@ -54,107 +120,56 @@ public record Tri<D extends IPolygonData<D>>(@NotNull D data, ImmutableList<IVer
     @Override
     @Nullable
     public IVector3 intersect(Ray ray) {
-        // Vertices of the triangle
-        var v0 = this.vertices.get(0).getPos().asImmutable();
-        var v1 = this.vertices.get(1).getPos().asImmutable();
-        var v2 = this.vertices.get(2).getPos().asImmutable();
-
-        // Compute vectors for two of the triangle's edges
-        var e1 = v1.sub(v0);
-        var e2 = v2.sub(v0);
-
-        // Compute the cross product of the ray direction and edge 2
-        var p = ray.direction().cross(e2);
-
-        // Compute the determinant
-        var det = e1.dot(p);
-        if (det > -EPSILON && det < EPSILON) {
-            // Ray is parallel to the triangle
-            return null;
-        }
-
-        var invDet = 1 / det;
-        var t = ray.origin().sub(v0).mul(invDet);
-        var q = t.cross(e1);
-
-        // Compute the barycentric coordinates
-        var u = t.dot(p);
-        if (u < 0 || u > 1) {
-            return null;
-        }
-        var v = ray.direction().dot(q);
-        if (v < 0 || u + v > 1) {
-            return null;
-        }
-
-        // Compute the distance from the ray origin to the triangle
-        var t2 = e2.dot(q);
-        if (t2 > EPSILON) {
-            // Ray intersects the triangle
-            return ray.getPoint(t2);
-        }
-
-        // Ray does not intersect the triangle
-        return null;
+        var origin = ray.origin();
+        var direction = ray.direction();
+        var t = PhysicsHelper.intersectRayTriangle(origin.x(), origin.y(), origin.z(), direction.x(), direction.y(), direction.z(),
+                this.x0, this.y0, this.z0, this.edges[0], this.edges[1], this.edges[2], this.edges[6], this.edges[7], this.edges[8]);
+        return Double.isNaN(t) ? null : ray.getPoint(t);
     }
 
-
     @Override
-    public boolean intersect(AABB box) {
+    public boolean intersect(IAABB box) {
         // We need to use the separating axis theorem to determine if the box intersects with the triangle.
-        var v0 = this.vertices.get(0).getPos().asMutable();
-        var v1 = this.vertices.get(1).getPos().asMutable();
-        var v2 = this.vertices.get(2).getPos().asMutable();
-
         // Check if any of the triangle's vertices are inside the box, if so we can exit early.
-        if (box.contains(v0) || box.contains(v1) || box.contains(v2)) {
+        if (box.contains(this.x0, this.y0, this.z0)
+                || box.contains(this.x1, this.y1, this.z1)
+                || box.contains(this.x2, this.y2, this.z2)) {
             return true;
         }
 
-        var aabbCenter = box.center();
-        var aabbSize = box.size().asImmutable().mul(0.5D);
-        v0 = v0.sub(aabbCenter);
-        v1 = v1.sub(aabbCenter);
-        v2 = v2.sub(aabbCenter);
-
-        // Check against the X, Y, and Z axes first, since they are the most likely to fail.
-        if (PhysicsHelper.testSeparatingAxis(v0, v1, v2, IVector3.UNIT_X, aabbSize) ||
-                PhysicsHelper.testSeparatingAxis(v0, v1, v2, IVector3.UNIT_Y, aabbSize) ||
-                PhysicsHelper.testSeparatingAxis(v0, v1, v2, IVector3.UNIT_Z, aabbSize)) {
+        var centerX = box.centerX();
+        var centerY = box.centerY();
+        var centerZ = box.centerZ();
+        var halfX = box.getXSize() * 0.5D;
+        var halfY = box.getYSize() * 0.5D;
+        var halfZ = box.getZSize() * 0.5D;
+
+        // The X, Y and Z axes only need the bounds of the vertices, and they're the most likely to fail.
+        if (Math.max(centerX - this.maxX, this.minX - centerX) > halfX
+                | Math.max(centerY - this.maxY, this.minY - centerY) > halfY
+                | Math.max(centerZ - this.maxZ, this.minZ - centerZ) > halfZ) {
             return false;
         }
+        return !PhysicsHelper.isTriangleSeparatedByEdgesOrNormal(this.x0, this.y0, this.z0, this.x1, this.y1, this.z1, this.x2, this.y2, this.z2,
+                this.edges, 0, centerX, centerY, centerZ, halfX, halfY, halfZ);
+    }
 
-        // Should be slightly more efficient than creating a new array with every value calculated.
-        // Plus it saves us a lot of allocations for the vectors.
-        // The previous implementation allocated one array containing 13 vectors, this only allocates the one array and a total of 4 vectors.
-        var edges = new IVector3[]{v1.asMutable().sub(v0), v2.asMutable().sub(v1), v0.asMutable().sub(v2)};
-
-        var axis = IVector3.ofMutable(0, 0, 0);
-        for (var i = 0; i < 3; i++) {
-            axis.set(IVector3.UNIT_X);
-            axis.cross(edges[i]);
-            if (PhysicsHelper.testSeparatingAxis(v0, v1, v2, axis, aabbSize)) {
-                return false;
-            }
-        }
-
-        for (var i = 0; i < 3; i++) {
-            axis.set(IVector3.UNIT_Y);
-            axis.cross(edges[i]);
-            if (PhysicsHelper.testSeparatingAxis(v0, v1, v2, axis, aabbSize)) {
-                return false;
-            }
-        }
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Tri<?> tri)) return false;
+        return this.data.equals(tri.data) && this.vertices.equals(tri.vertices)
+                && this.normal.equals(tri.normal) && this.aabb.equals(tri.aabb);
+    }
 
-        for (var i = 0; i < 3; i++) {
-            axis.set(IVector3.UNIT_Z);
-            axis.cross(edges[i]);
-            if (PhysicsHelper.testSeparatingAxis(v0, v1, v2, axis, aabbSize)) {
-                return false;
-            }
-        }
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.data, this.vertices, this.normal, this.aabb);
+    }
 
-        return !PhysicsHelper.testSeparatingAxis(v0, v1, v2, edges[0].asMutable().cross(edges[1]), aabbSize);
+    @Override
+    public String toString() {
+        return "Tri[data=%s, vertices=%s, normal=%s, aabb=%s]".formatted(this.data, this.vertices, this.normal, this.aabb);
     }
 
     @Override
@@ -1,13 +1,19 @@
 package com.tridevmc.architecture.core.model.objson;
 
+import com.tridevmc.architecture.core.ArchitectureLog;
 import com.tridevmc.architecture.core.math.ITrans3;
+import com.tridevmc.architecture.core.model.SignedDistanceField;
 import com.tridevmc.architecture.core.model.Voxelizer;
 import com.tridevmc.architecture.core.model.mesh.*;
 import com.tridevmc.architecture.core.physics.AABB;
+import com.tridevmc.architecture.core.physics.AABBTreeSelector;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.minecraft.resources.ResourceLocation;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public record OBJSON(OBJSONData data, IMesh<String, PolygonData> mesh, Voxelizer voxelizer) {
@@ -21,7 +27,19 @@ public record OBJSON(OBJSONData data, IMesh<String, PolygonData> mesh, Voxelizer
     }
 
     public OBJSON(OBJSONData data, @NotNull ITrans3 trans, int blockResolution) {
-        this(data, createMesh(data).transform(trans), blockResolution);
+        this(data, createMesh(data, CompactMesh.Welding.DEFAULT).transform(trans), blockResolution);
+    }
+
+    public OBJSON(OBJSONData data, @NotNull ITrans3 trans, int blockResolution, @NotNull Voxelizer.Mode mode) {
+        this(data, createMesh(data, CompactMesh.Welding.DEFAULT).transform(trans), blockResolution, mode);
+    }
+
+    public OBJSON(OBJSONData data, @NotNull ITrans3 trans, int blockResolution, @NotNull Voxelizer.Mode mode, @Nullable CompactMesh.Welding welding) {
+        this(data, createMesh(data, welding).transform(trans), blockResolution, mode);
+    }
+
+    private OBJSON(OBJSONData data, IMesh<String, PolygonData> mesh, int blockResolution, Voxelizer.Mode mode) {
+        this(data, mesh, new Voxelizer(mesh, blockResolution, mode));
     }
 
     public OBJSON(OBJSONData data, @NotNull ITrans3 trans) {
@@ -40,6 +58,10 @@ public record OBJSON(OBJSONData data, IMesh<String, PolygonData> mesh, Voxelizer
         return new OBJSON(OBJSONData.fromResource(location), trans, blockResolution);
     }
 
+    public static OBJSON fromResource(ResourceLocation location, ITrans3 trans, int blockResolution, Voxelizer.Mode mode) {
+        return new OBJSON(OBJSONData.fromResource(location), trans, blockResolution, mode);
+    }
+
     public String name() {
         return this.data.name();
     }
@@ -48,36 +70,66 @@ public record OBJSON(OBJSONData data, IMesh<String, PolygonData> mesh, Voxelizer
         return this.voxelizer.voxelize();
     }
 
-    private static IMesh<String, PolygonData> createMesh(OBJSONData data) {
+    /**
+     * Gets the signed distance field of the mesh of this model, see {@link SignedDistanceField#of(IMesh, int)}.
+     * <p>
+     * The field is only built for callers that ask for it, voxelizing the model never touches it.
+     *
+     * @param resolution The number of samples per 1 unit of length.
+     * @return The signed distance field of the mesh.
+     */
+    public SignedDistanceField getSignedDistanceField(int resolution) {
+        return SignedDistanceField.of(this.mesh, resolution);
+    }
+
+    private static IMesh<String, PolygonData> createMesh(OBJSONData data, @Nullable CompactMesh.Welding welding) {
         // OBJSON stores parts and faces in a slightly different way to how our mesh implementation, so we'll need to convert as we build.
-        var builder = new Mesh.Builder<String, PolygonData>();
+        // Triangles are grouped by face first, faces of a compact mesh have to be added one after the other.
+        // OBJSON also stores vertices per face, so corners shared between faces are duplicated until they're welded back together.
+        var builder = new CompactMesh.Builder<String, PolygonData>().setWelding(welding);
 
         for (var partData : data.parts()) {
-            var part = new Part.Builder<String, PolygonData>().setId(partData.name());
-            var faceMap = new Int2ObjectOpenHashMap<Face.Builder<PolygonData>>();
-
+            var faceMap = new Int2ObjectOpenHashMap<List<OBJSONData.TriangleData>>();
             for (OBJSONData.TriangleData triData : partData.triangles()) {
-                // OBJSON doesn't currently support tinting, so we'll just use the default value of -1.
-                var tri = new Tri.Builder<PolygonData>().setData(new PolygonData(triData.texture(), -1, triData.cullFace()));
-                var faceData = data.faces()[triData.face()];
-                var face = faceMap.computeIfAbsent(triData.face(), i -> new Face.Builder<>());
-
-                for (int vertIndex : triData.vertices()) {
-                    var vertData = faceData.vertices()[vertIndex];
-                    tri.addVertex(new Vertex(vertData.pos(), vertData.normal(), vertData.uv()));
-                }
-
-                face.addPolygon(tri.build());
+                faceMap.computeIfAbsent(triData.face(), i -> new ArrayList<>()).add(triData);
             }
 
-            for (var face : faceMap.values()) {
-                part.addFace(face.build());
+            for (var faceEntry : faceMap.int2ObjectEntrySet()) {
+                var faceData = data.faces()[faceEntry.getIntKey()];
+                // Each vertex of the face is only added once, however many of the face's triangles use it.
+                var vertices = new int[faceData.vertices().length];
+                Arrays.fill(vertices, -1);
+
+                for (var triData : faceEntry.getValue()) {
+                    var tri = new int[triData.vertices().length];
+                    for (var i = 0; i < tri.length; i++) {
+                        var vertIndex = triData.vertices()[i];
+                        if (vertices[vertIndex] == -1) {
+                            var vertData = faceData.vertices()[vertIndex];
+                            vertices[vertIndex] = builder.addVertex(vertData.pos()[0], vertData.pos()[1], vertData.pos()[2],
+                                    vertData.normal()[0], vertData.normal()[1], vertData.normal()[2], vertData.uv()[0], vertData.uv()[1]);
+                        }
+                        tri[i] = vertices[vertIndex];
+                    }
+                    // OBJSON doesn't currently support tinting, so we'll just use the default value of -1.
+                    builder.addPolygon(new PolygonData(triData.texture(), -1, triData.cullFace()), tri);
+                }
+                builder.endFace();
             }
 
-            builder.addPart(part.build());
+            builder.endPart(partData.name());
         }
 
-        return builder.build();
+        var mesh = builder.build();
+        if (welding != null) {
+            ArchitectureLog.debug("Welded {} vertices of '{}' into {} ({}% fewer), dropping {} collapsed polygons",
+                    builder.getAddedVertexCount(), data.name(), builder.getVertexCount(),
+                    "%.1f".formatted(100D - 100D * builder.getVertexCount() / Math.max(builder.getAddedVertexCount(), 1)),
+                    builder.getCollapsedPolygonCount());
+        }
+        // Transforming the mesh refits its structure rather than picking again, so this holds for every OBJSON made from the data.
+        ArchitectureLog.debug("Indexed the polygons of '{}' with a {}", data.name(), AABBTreeSelector.choose(mesh.getPolygonCount()));
+        return mesh;
     }
 
 }
@@ -0,0 +1,128 @@
+package com.tridevmc.architecture.core.model.objson;
+
+import com.tridevmc.architecture.core.model.mesh.CullFace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the compact binary form of an OBJSON model produced by the <code>compileObjson</code> Gradle task.
+ * <p>
+ * The JSON files remain the source format, the binary form only exists in the built jar and trades
+ * the pretty-printed doubles for compact tables and 16-bit index buffers. Not every value survives the trip exactly:
+ * <ul>
+ *     <li>Vertex positions are stored as doubles and read back exactly, rounding them to floats changed the voxels of some models.</li>
+ *     <li>Vertex normals are stored as snorm16, each component is within 1/65534 of the source.</li>
+ *     <li>UVs, face normals, bounds and boxes are stored as floats, rounded to the nearest float.</li>
+ * </ul>
+ * <p>
+ * Layout, all values big endian:
+ * <pre>
+ * int     magic ('OBJB')
+ * byte    version
+ * utf     name
+ * float*6 bounds
+ * int     face count
+ *   float*3 normal
+ *   int     vertex count
+ *     double*3 pos, short*3 normal (snorm16), float*2 uv
+ * int     part count
+ *   utf     name
+ *   float*6 bounds
+ *   int     box count, float*6 per box
+ *   int     triangle count
+ *     int face, byte cull face, byte texture, ushort*3 vertices
+ * </pre>
+ */
+public class OBJSONBinary {
+
+    /**
+     * The extension appended to the source path of a model to find its compiled form.
+     */
+    public static final String EXTENSION_SUFFIX = "b";
+    public static final int MAGIC = 0x4F424A42;
+    public static final int VERSION = 2;
+
+    private static final float NORMAL_SCALE = 1F / Short.MAX_VALUE;
+
+    /**
+     * Gets the path of the compiled form of the model at the given source path.
+     *
+     * @param sourcePath The path of the OBJSON source file.
+     * @return The path of the compiled model.
+     */
+    public static String getCompiledPath(String sourcePath) {
+        return sourcePath + EXTENSION_SUFFIX;
+    }
+
+    /**
+     * Reads a compiled OBJSON model from the given stream, the stream is not closed.
+     *
+     * @param in The stream to read from.
+     * @return The raw model data, equivalent to what would have been deserialized from the JSON source.
+     * @throws IOException If the stream could not be read or does not contain a compiled model.
+     */
+    public static OBJSONData read(InputStream in) throws IOException {
+        var data = new DataInputStream(new BufferedInputStream(in));
+        var magic = data.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("Invalid compiled OBJSON header 0x%08X".formatted(magic));
+        }
+        var version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported compiled OBJSON version %d, expected %d".formatted(version, VERSION));
+        }
+
+        var name = data.readUTF();
+        var bounds = readBounds(data);
+
+        var faces = new OBJSONData.FaceData[data.readInt()];
+        for (var i = 0; i < faces.length; i++) {
+            var normal = new double[]{data.readFloat(), data.readFloat(), data.readFloat()};
+            var vertices = new OBJSONData.VertexData[data.readInt()];
+            for (var v = 0; v < vertices.length; v++) {
+                var pos = new double[]{data.readDouble(), data.readDouble(), data.readDouble()};
+                var vertNormal = new double[]{
+                        data.readShort() * NORMAL_SCALE,
+                        data.readShort() * NORMAL_SCALE,
+                        data.readShort() * NORMAL_SCALE
+                };
+                var uv = new double[]{data.readFloat(), data.readFloat()};
+                vertices[v] = new OBJSONData.VertexData(pos, vertNormal, uv);
+            }
+            faces[i] = new OBJSONData.FaceData(vertices, normal);
+        }
+
+        var parts = new OBJSONData.PartData[data.readInt()];
+        for (var i = 0; i < parts.length; i++) {
+            var partName = data.readUTF();
+            var partBounds = readBounds(data);
+            var boxes = new double[data.readInt()][];
+            for (var b = 0; b < boxes.length; b++) {
+                boxes[b] = readBounds(data);
+            }
+            var triangles = new OBJSONData.TriangleData[data.readInt()];
+            for (var t = 0; t < triangles.length; t++) {
+                var face = data.readInt();
+                var cullFace = CullFace.fromIndex(data.readByte());
+                var texture = data.readUnsignedByte();
+                var vertices = new int[]{data.readUnsignedShort(), data.readUnsignedShort(), data.readUnsignedShort()};
+                triangles[t] = new OBJSONData.TriangleData(face, cullFace, texture, vertices);
+            }
+            parts[i] = new OBJSONData.PartData(partName, partBounds, boxes, triangles);
+        }
+
+        return new OBJSONData(name, bounds, faces, parts);
+    }
+
+    private static double[] readBounds(DataInputStream data) throws IOException {
+        var out = new double[6];
+        for (var i = 0; i < out.length; i++) {
+            out[i] = data.readFloat();
+        }
+        return out;
+    }
+
+}
@@ -4,7 +4,9 @@ import com.google.gson.Gson;
 import com.tridevmc.architecture.core.model.mesh.CullFace;
 import net.minecraft.resources.ResourceLocation;
 
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.util.Objects;
 
 /**
@@ -22,7 +24,7 @@ public record OBJSONData(String name, double[] bounds, FaceData[] faces, PartDat
      * @param boxes     The boxes of the part.
      * @param triangles The triangles of the part.
      */
-    record PartData(String name, double[] bounds, double[][] boxes, TriangleData[] triangles) {
+    public record PartData(String name, double[] bounds, double[][] boxes, TriangleData[] triangles) {
     }
 
     /**
@@ -31,7 +33,7 @@ public record OBJSONData(String name, double[] bounds, FaceData[] faces, PartDat
      * @param vertices The vertices of the face.
      * @param normal   The normal of the face.
      */
-    record FaceData(VertexData[] vertices, double[] normal) {
+    public record FaceData(VertexData[] vertices, double[] normal) {
     }
 
     /**
@@ -41,7 +43,7 @@ public record OBJSONData(String name, double[] bounds, FaceData[] faces, PartDat
      * @param normal The normal of the vertex.
      * @param uv     The UV coordinates of the vertex.
      */
-    record VertexData(double[] pos, double[] normal, double[] uv) {
+    public record VertexData(double[] pos, double[] normal, double[] uv) {
     }
 
     /**
@@ -52,11 +54,13 @@ public record OBJSONData(String name, double[] bounds, FaceData[] faces, PartDat
      * @param texture  The texture of the triangle.
      * @param vertices The vertices of the triangle.
      */
-    record TriangleData(int face, CullFace cullFace, int texture, int[] vertices) {
+    public record TriangleData(int face, CullFace cullFace, int texture, int[] vertices) {
     }
 
     /**
      * Loads an OBJSON model from the given resource location.
+     * <p>
+     * Prefers the compiled form of the model produced at build time, falling back to the JSON source if it is missing.
      *
      * @param location The resource location of the model.
      * @return The loaded model.
@@ -64,6 +68,14 @@ public record OBJSONData(String name, double[] bounds, FaceData[] faces, PartDat
      */
     public static OBJSONData fromResource(ResourceLocation location) {
         var path = String.format("/data/%s/objson/%s", location.getNamespace(), location.getPath());
+        var compiled = OBJSONData.class.getResourceAsStream(OBJSONBinary.getCompiledPath(path));
+        if (compiled != null) {
+            try (compiled) {
+                return OBJSONBinary.read(compiled);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read compiled OBJSON \"%s\"".formatted(path), e);
+            }
+        }
         var in = OBJSONData.class.getResourceAsStream(path);
         return GSON.fromJson(new InputStreamReader(Objects.requireNonNull(in, "Failed to obtain input stream for resource \"%s\"".formatted(path))), OBJSONData.class);
     }
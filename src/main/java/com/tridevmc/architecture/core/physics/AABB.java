@@ -16,7 +16,7 @@ import java.util.stream.Stream;
  * @param min The minimum point of the box.
  * @param max The maximum point of the box.
  */
-public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable max) {
+public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable max) implements IAABB {
 
     public AABB {
         if (min.x() > max.x() || min.y() > max.y() || min.z() > max.z()) {
@@ -70,11 +70,17 @@ public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable ma
         );
     }
 
+    @Override
+    public AABB toAABB() {
+        return this;
+    }
+
     /**
      * Gets the minimum point of the box on the X axis.
      *
      * @return The minimum point of the box on the X axis.
      */
+    @Override
     public double minX() {
         return this.min.x();
     }
@@ -84,6 +90,7 @@ public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable ma
      *
      * @return The minimum point of the box on the Y axis.
      */
+    @Override
     public double minY() {
         return this.min.y();
 
@@ -94,6 +101,7 @@ public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable ma
      *
      * @return The minimum point of the box on the Z axis.
      */
+    @Override
     public double minZ() {
         return this.min.z();
     }
@@ -103,6 +111,7 @@ public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable ma
      *
      * @return The maximum point of the box on the X axis.
      */
+    @Override
     public double maxX() {
         return this.max.x();
     }
@@ -112,6 +121,7 @@ public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable ma
      *
      * @return The maximum point of the box on the Y axis.
      */
+    @Override
     public double maxY() {
         return this.max.y();
     }
@@ -121,22 +131,11 @@ public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable ma
      *
      * @return The maximum point of the box on the Z axis.
      */
+    @Override
     public double maxZ() {
         return this.max.z();
     }
 
-    /**
-     * Checks if this box intersects with another.
-     *
-     * @param other The other box to check.
-     * @return True if the boxes intersect, false otherwise.
-     */
-    public boolean intersects(AABB other) {
-        return this.maxX() >= other.minX() && this.minX() <= other.maxX() &&
-                this.maxY() >= other.minY() && this.minY() <= other.maxY() &&
-                this.maxZ() >= other.minZ() && this.minZ() <= other.maxZ();
-    }
-
     public Stream<IVector3> intersects(Ray ray) {
         // We can implement this using the slab method described here: https://tavianator.com/fast-branchless-raybounding-box-intersections/
         var tMin = Double.NEGATIVE_INFINITY;
@@ -159,42 +158,6 @@ public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable ma
         return Stream.of(ray.getPoint(tMin), ray.getPoint(tMax));
     }
 
-    /**
-     * Checks if this box contains another.
-     *
-     * @param other The other box to check.
-     * @return True if this box contains the other, false otherwise.
-     */
-    public boolean contains(AABB other) {
-        return this.maxX() >= other.maxX() && this.minX() <= other.minX() &&
-                this.maxY() >= other.maxY() && this.minY() <= other.minY() &&
-                this.maxZ() >= other.maxZ() && this.minZ() <= other.minZ();
-    }
-
-    /**
-     * Checks if this box contains a point.
-     *
-     * @param point The point to check.
-     * @return True if this box contains the point, false otherwise.
-     */
-    public boolean contains(IVector3 point) {
-        return this.contains(point.x(), point.y(), point.z());
-    }
-
-    /**
-     * Checks if this box contains a point.
-     *
-     * @param x The X coordinate of the point.
-     * @param y The Y coordinate of the point.
-     * @param z The Z coordinate of the point.
-     * @return True if this box contains the point, false otherwise.
-     */
-    public boolean contains(double x, double y, double z) {
-        return this.maxX() >= x && this.minX() <= x &&
-                this.maxY() >= y && this.minY() <= y &&
-                this.maxZ() >= z && this.minZ() <= z;
-    }
-
     /**
      * Checks if this box is adjacent to another.
      *
@@ -353,53 +316,6 @@ public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable ma
         return this.max().sub(this.min());
     }
 
-    /**
-     * Gets the size of this box along the X axis.
-     *
-     * @return The size of the box along the X axis.
-     */
-    public double getXSize() {
-        return this.maxX() - this.minX();
-    }
-
-    /**
-     * Gets the size of this box along the Y axis.
-     *
-     * @return The size of the box along the Y axis.
-     */
-    public double getYSize() {
-        return this.maxY() - this.minY();
-    }
-
-    /**
-     * Gets the size of this box along the Z axis.
-     *
-     * @return The size of the box along the Z axis.
-     */
-    public double getZSize() {
-        return this.maxZ() - this.minZ();
-    }
-
-    /**
-     * Gets the minimum point of the box on the given axis.
-     *
-     * @param axis The axis to get the minimum point on, 0 for X, 1 for Y, 2 for Z.
-     * @return The minimum point on the given axis.
-     */
-    public double min(int axis) {
-        return this.min().getComponent(axis);
-    }
-
-    /**
-     * Gets the maximum point of the box on the given axis.
-     *
-     * @param axis The axis to get the maximum point on, 0 for X, 1 for Y, 2 for Z.
-     * @return The maximum point on the given axis.
-     */
-    public double max(int axis) {
-        return this.max().getComponent(axis);
-    }
-
     /**
      * Converts this box to an equivalent {@link net.minecraft.world.phys.AABB}.
      *
@@ -416,6 +332,16 @@ public record AABB(@NotNull IVector3Immutable min, @NotNull IVector3Immutable ma
         );
     }
 
+    /**
+     * Creates a box equivalent to the given {@link net.minecraft.world.phys.AABB}.
+     *
+     * @param box The box to convert.
+     * @return The equivalent box.
+     */
+    public static AABB fromMC(net.minecraft.world.phys.AABB box) {
+        return new AABB(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,198 @@
+package com.tridevmc.architecture.core.physics;
+
+import com.google.common.base.MoreObjects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * An {@link IAABBTree} that doesn't index its items at all, every query tests the bounds of every item.
+ * <p>
+ * For a handful of items a flat scan over their bounds is cheaper than any structure built to skip some of them.
+ * See {@link AABBTreeSelector} for how the choice is made.
+ *
+ * @param <T> The type of data stored in the list.
+ */
+public class AABBList<T> implements IAABBTree<T> {
+
+    private final Object[] items;
+    private final double[] itemBounds;
+    private final AABB bounds;
+
+    private AABBList(Object[] items, double[] itemBounds, AABB bounds) {
+        this.items = items;
+        this.itemBounds = itemBounds;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Creates a list containing all the given items.
+     *
+     * @param items     The items to store in the list.
+     * @param boxGetter Gets the bounds of an item, called once per item.
+     * @param <T>       The type of data stored in the list.
+     * @return The new list.
+     */
+    public static <T> AABBList<T> build(@NotNull Collection<T> items, @NotNull Function<T, ? extends IAABB> boxGetter) {
+        var itemArray = items.toArray();
+        var itemBounds = new double[itemArray.length * 6];
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (var i = 0; i < itemArray.length; i++) {
+            @SuppressWarnings("unchecked")
+            var box = boxGetter.apply((T) itemArray[i]);
+            itemBounds[i * 6] = box.minX();
+            itemBounds[i * 6 + 1] = box.minY();
+            itemBounds[i * 6 + 2] = box.minZ();
+            itemBounds[i * 6 + 3] = box.maxX();
+            itemBounds[i * 6 + 4] = box.maxY();
+            itemBounds[i * 6 + 5] = box.maxZ();
+            minX = Math.min(minX, box.minX());
+            minY = Math.min(minY, box.minY());
+            minZ = Math.min(minZ, box.minZ());
+            maxX = Math.max(maxX, box.maxX());
+            maxY = Math.max(maxY, box.maxY());
+            maxZ = Math.max(maxZ, box.maxZ());
+        }
+        var bounds = itemArray.length == 0 ? null : new AABB(minX, minY, minZ, maxX, maxY, maxZ);
+        return new AABBList<>(itemArray, itemBounds, bounds);
+    }
+
+    /**
+     * Creates a list holding the given replacement for each item, in the same order, see {@link PackedBVHTree#refit(Function, Function)}.
+     *
+     * @param mapper    Gets the replacement for an item, called once per item.
+     * @param boxGetter Gets the bounds of a replacement item, called once per item.
+     * @param <U>       The type of data stored in the new list.
+     * @return The new list.
+     */
+    @SuppressWarnings("unchecked")
+    public <U> AABBList<U> refit(@NotNull Function<? super T, ? extends U> mapper, @NotNull Function<? super U, ? extends IAABB> boxGetter) {
+        var newItems = new ArrayList<U>(this.items.length);
+        for (var item : this.items) {
+            newItems.add(mapper.apply((T) item));
+        }
+        return build(newItems, boxGetter::apply);
+    }
+
+    private boolean intersects(int item, IAABB box) {
+        var o = item * 6;
+        return this.itemBounds[o + 3] >= box.minX() && this.itemBounds[o] <= box.maxX()
+                && this.itemBounds[o + 4] >= box.minY() && this.itemBounds[o + 1] <= box.maxY()
+                && this.itemBounds[o + 5] >= box.minZ() && this.itemBounds[o + 2] <= box.maxZ();
+    }
+
+    /**
+     * Gets the number of items stored in the list.
+     *
+     * @return The number of items.
+     */
+    public int size() {
+        return this.items.length;
+    }
+
+    @Override
+    @NotNull
+    public Stream<T> searchStream(@NotNull AABB box) {
+        return this.search(box).stream();
+    }
+
+    @Override
+    @NotNull
+    public List<T> search(@NotNull AABB box) {
+        var out = new ArrayList<T>();
+        this.forEachIntersecting(box, out::add);
+        return out;
+    }
+
+    @Override
+    public void forEachIntersecting(@NotNull IAABB box, @NotNull Consumer<? super T> action) {
+        this.anyIntersecting(box, item -> {
+            action.accept(item);
+            return false;
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean anyIntersecting(@NotNull IAABB box, @NotNull Predicate<? super T> predicate) {
+        for (var i = 0; i < this.items.length; i++) {
+            if (this.intersects(i, box) && predicate.test((T) this.items[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachAlongRay(@NotNull Ray ray, @NotNull Consumer<? super T> action) {
+        var ox = ray.origin().x();
+        var oy = ray.origin().y();
+        var oz = ray.origin().z();
+        var inverseX = 1 / ray.direction().x();
+        var inverseY = 1 / ray.direction().y();
+        var inverseZ = 1 / ray.direction().z();
+        for (var i = 0; i < this.items.length; i++) {
+            var o = i * 6;
+            if (!Double.isNaN(PhysicsHelper.enterBox(this.itemBounds[o], this.itemBounds[o + 1], this.itemBounds[o + 2],
+                    this.itemBounds[o + 3], this.itemBounds[o + 4], this.itemBounds[o + 5], ox, oy, oz, inverseX, inverseY, inverseZ, 1))) {
+                action.accept((T) this.items[i]);
+            }
+        }
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T findNearest(double x, double y, double z, @NotNull ToDoubleFunction<? super T> distanceSquared) {
+        T nearest = null;
+        var nearestDistance = Double.POSITIVE_INFINITY;
+        for (var i = 0; i < this.items.length; i++) {
+            // The bounds of an item are never farther away than the item itself, so they're a cheap way to skip it.
+            if (this.distanceSquaredToBounds(i, x, y, z) < nearestDistance) {
+                var distance = distanceSquared.applyAsDouble((T) this.items[i]);
+                if (distance < nearestDistance) {
+                    nearest = (T) this.items[i];
+                    nearestDistance = distance;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Gets the squared distance from a point to the bounds of the item at the given index, zero if the point is inside them.
+     */
+    private double distanceSquaredToBounds(int item, double x, double y, double z) {
+        var o = item * 6;
+        var dx = Math.max(0, Math.max(this.itemBounds[o] - x, x - this.itemBounds[o + 3]));
+        var dy = Math.max(0, Math.max(this.itemBounds[o + 1] - y, y - this.itemBounds[o + 4]));
+        var dz = Math.max(0, Math.max(this.itemBounds[o + 2] - z, z - this.itemBounds[o + 5]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    @Override
+    @NotNull
+    public AABB getBounds() {
+        if (this.bounds == null) {
+            throw new IllegalStateException("Cannot get the bounds of an empty list");
+        }
+        return this.bounds;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("size", this.items.length)
+                .toString();
+    }
+}
@@ -3,11 +3,15 @@ package com.tridevmc.architecture.core.physics;
 import com.google.common.collect.Lists;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class AABBTree<T> implements IAABBTree<T> {
 
@@ -101,19 +105,27 @@ public class AABBTree<T> implements IAABBTree<T> {
     @Override
     @NotNull
     public Stream<T> searchStream(@NotNull AABB box) {
-        List<Node> queue = Lists.newArrayList(this.theNode);
-        return Stream.generate(() -> {
-            Node node = queue.remove(0);
-            if (box.intersects(node.getValue())) {
-                if (node.item == null) {
-                    queue.add(node.left);
-                    queue.add(node.right);
-                } else {
-                    return node.item;
+        var queue = new ArrayDeque<Node>();
+        queue.add(this.theNode);
+        // Walk the tree lazily so short-circuiting operations like anyMatch can stop early, ending once the queue is exhausted.
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                while (!queue.isEmpty()) {
+                    Node node = queue.poll();
+                    if (box.intersects(node.getValue())) {
+                        if (node.item == null) {
+                            queue.add(node.left);
+                            queue.add(node.right);
+                        } else {
+                            action.accept(node.item);
+                            return true;
+                        }
+                    }
                 }
+                return false;
             }
-            return null;
-        }).filter(Objects::nonNull);
+        }, false);
     }
 
     @NotNull
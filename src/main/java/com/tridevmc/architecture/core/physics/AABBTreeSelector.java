@@ -0,0 +1,92 @@
+package com.tridevmc.architecture.core.physics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Picks the kind of {@link IAABBTree} to store a set of items in from how many items there are.
+ * <p>
+ * A handful of items are kept in an {@link AABBList}, walking a tree costs more than testing them all. Anything else goes into a
+ * {@link PackedBVHTree}.
+ * <p>
+ * The limit was picked by running <code>OBJSONSpatialIndexBenchmark</code> over the bundled models, which is also the place to
+ * check it again after changing either structure.
+ */
+public final class AABBTreeSelector {
+
+    /**
+     * The most items kept in a list, a tree is used for anything larger.
+     */
+    public static final int MAX_LIST_SIZE = 8;
+
+    private AABBTreeSelector() {
+    }
+
+    /**
+     * The kinds of structure that can be picked.
+     */
+    public enum Kind {
+        LIST,
+        BVH
+    }
+
+    /**
+     * The structure picked for a set of items.
+     *
+     * @param kind The kind of structure to use.
+     * @param size The number of items.
+     */
+    public record Choice(Kind kind, int size) {
+
+        @Override
+        public String toString() {
+            return switch (this.kind) {
+                case LIST -> "list of %s".formatted(this.size);
+                case BVH -> "BVH of %s".formatted(this.size);
+            };
+        }
+    }
+
+    /**
+     * Picks the kind of structure to store the given number of items in.
+     *
+     * @param size The number of items.
+     * @return The structure to use.
+     */
+    @NotNull
+    public static Choice choose(int size) {
+        return new Choice(size <= MAX_LIST_SIZE ? Kind.LIST : Kind.BVH, size);
+    }
+
+    /**
+     * Stores the given items in the structure picked for them by {@link #choose(int)}.
+     *
+     * @param items     The items to store.
+     * @param boxGetter Gets the bounds of an item, called once per item.
+     * @param <T>       The type of data stored.
+     * @return The structure containing the items.
+     */
+    @NotNull
+    public static <T> IAABBTree<T> build(@NotNull Collection<T> items, @NotNull Function<T, AABB> boxGetter) {
+        return build(items, boxGetter, choose(items.size()).kind());
+    }
+
+    /**
+     * Stores the given items in the given kind of structure, regardless of what {@link #choose(int)} would pick.
+     *
+     * @param items     The items to store.
+     * @param boxGetter Gets the bounds of an item, called once per item.
+     * @param kind      The kind of structure to use.
+     * @param <T>       The type of data stored.
+     * @return The structure containing the items.
+     */
+    @NotNull
+    public static <T> IAABBTree<T> build(@NotNull Collection<T> items, @NotNull Function<T, AABB> boxGetter, @NotNull Kind kind) {
+        return switch (kind) {
+            case LIST -> AABBList.build(items, boxGetter);
+            case BVH -> PackedBVHTree.build(items, boxGetter);
+        };
+    }
+}
@@ -0,0 +1,397 @@
+package com.tridevmc.architecture.core.physics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A bounding volume hierarchy built top down in a single pass over all of its items, splitting each node where the
+ * surface area heuristic estimates queries will be cheapest.
+ * <p>
+ * Unlike {@link AABBTree} the shape of the tree doesn't depend on the order the items are given in, and leaves hold
+ * up to {@link #MAX_LEAF_SIZE} items rather than one, which keeps the tree shallow on meshes with many small polygons.
+ *
+ * @param <T> The type of data stored in the tree.
+ */
+public class BVHTree<T> implements IAABBTree<T> {
+
+    /**
+     * The largest number of items stored in a single leaf.
+     */
+    public static final int MAX_LEAF_SIZE = 4;
+
+    /**
+     * The number of buckets item centroids are sorted into along each axis when looking for the best split.
+     */
+    private static final int BIN_COUNT = 12;
+
+    /**
+     * The cost of visiting a node relative to testing a single item, used to decide when a node is worth splitting.
+     */
+    private static final double TRAVERSAL_COST = 1D;
+
+    public static class Node<T> {
+        private final AABB bounds;
+        private final Node<T> left;
+        private final Node<T> right;
+        private final List<T> items;
+        private final AABB[] itemBounds;
+
+        private Node(AABB bounds, Node<T> left, Node<T> right) {
+            this.bounds = bounds;
+            this.left = left;
+            this.right = right;
+            this.items = List.of();
+            this.itemBounds = new AABB[0];
+        }
+
+        private Node(AABB bounds, List<T> items, AABB[] itemBounds) {
+            this.bounds = bounds;
+            this.left = null;
+            this.right = null;
+            this.items = items;
+            this.itemBounds = itemBounds;
+        }
+
+        public AABB getBounds() {
+            return this.bounds;
+        }
+
+        public Node<T> getLeft() {
+            return this.left;
+        }
+
+        public Node<T> getRight() {
+            return this.right;
+        }
+
+        /**
+         * Gets the items stored in this node, only leaves hold items.
+         *
+         * @return The items in this node, empty if this isn't a leaf.
+         */
+        public List<T> getItems() {
+            return this.items;
+        }
+
+        /**
+         * Gets the bounds of the item at the given index in this leaf.
+         *
+         * @param index The index of the item in {@link #getItems()}.
+         * @return The bounds of the item.
+         */
+        public AABB getItemBounds(int index) {
+            return this.itemBounds[index];
+        }
+
+        public boolean isLeaf() {
+            return this.left == null;
+        }
+
+        private int getDepth() {
+            return this.isLeaf() ? 1 : 1 + Math.max(this.left.getDepth(), this.right.getDepth());
+        }
+
+        private int getNodeCount() {
+            return this.isLeaf() ? 1 : 1 + this.left.getNodeCount() + this.right.getNodeCount();
+        }
+    }
+
+    private final Node<T> root;
+    private final int size;
+
+    private BVHTree(Node<T> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Builds a tree containing all the given items.
+     *
+     * @param items     The items to store in the tree.
+     * @param boxGetter Gets the bounds of an item, called once per item.
+     * @param <T>       The type of data stored in the tree.
+     * @return The new tree.
+     */
+    public static <T> BVHTree<T> build(@NotNull Collection<T> items, @NotNull Function<T, AABB> boxGetter) {
+        if (items.isEmpty()) {
+            return new BVHTree<>(null, 0);
+        }
+        return new BVHTree<>(new Builder<>(items, boxGetter).build(0, items.size()), items.size());
+    }
+
+    /**
+     * Gets the root node of the tree.
+     *
+     * @return The root node, or null if the tree is empty.
+     */
+    public Node<T> getRoot() {
+        return this.root;
+    }
+
+    /**
+     * Gets the number of items stored in the tree.
+     *
+     * @return The number of items.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the number of nodes on the longest path from the root to a leaf.
+     *
+     * @return The depth of the tree, or 0 if the tree is empty.
+     */
+    public int getDepth() {
+        return this.root == null ? 0 : this.root.getDepth();
+    }
+
+    /**
+     * Gets the number of nodes in the tree, including leaves.
+     *
+     * @return The number of nodes.
+     */
+    public int getNodeCount() {
+        return this.root == null ? 0 : this.root.getNodeCount();
+    }
+
+    @Override
+    @NotNull
+    public Stream<T> searchStream(@NotNull AABB box) {
+        if (this.root == null) {
+            return Stream.empty();
+        }
+        var queue = new ArrayDeque<Node<T>>();
+        queue.add(this.root);
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.NONNULL) {
+            private Node<T> leaf;
+            private int leafIndex;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                while (true) {
+                    // Finish off the items of the current leaf before moving on to the next node.
+                    while (this.leaf != null && this.leafIndex < this.leaf.items.size()) {
+                        var index = this.leafIndex++;
+                        if (box.intersects(this.leaf.itemBounds[index])) {
+                            action.accept(this.leaf.items.get(index));
+                            return true;
+                        }
+                    }
+
+                    var node = queue.poll();
+                    if (node == null) {
+                        return false;
+                    }
+                    if (box.intersects(node.bounds)) {
+                        if (node.isLeaf()) {
+                            this.leaf = node;
+                            this.leafIndex = 0;
+                        } else {
+                            queue.add(node.left);
+                            queue.add(node.right);
+                        }
+                    }
+                }
+            }
+        }, false);
+    }
+
+    @Override
+    @NotNull
+    public AABB getBounds() {
+        if (this.root == null) {
+            throw new IllegalStateException("Cannot get the bounds of an empty tree");
+        }
+        return this.root.bounds;
+    }
+
+    /**
+     * Recursively partitions the items, keeping their boxes and centroids in flat arrays indexed through a single order array.
+     */
+    private static class Builder<T> {
+        private final Object[] items;
+        private final AABB[] boxes;
+        private final double[] centroids;
+        private final int[] order;
+
+        private Builder(Collection<T> items, Function<T, AABB> boxGetter) {
+            this.items = items.toArray();
+            this.boxes = new AABB[this.items.length];
+            this.centroids = new double[this.items.length * 3];
+            this.order = new int[this.items.length];
+            for (var i = 0; i < this.items.length; i++) {
+                @SuppressWarnings("unchecked")
+                var box = boxGetter.apply((T) this.items[i]);
+                this.boxes[i] = box;
+                for (var axis = 0; axis < 3; axis++) {
+                    this.centroids[i * 3 + axis] = (box.min(axis) + box.max(axis)) / 2;
+                }
+                this.order[i] = i;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Node<T> build(int start, int end) {
+            var bounds = this.boxes[this.order[start]];
+            var centroidMin = new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+            var centroidMax = new double[]{Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (var i = start; i < end; i++) {
+                var index = this.order[i];
+                bounds = bounds.union(this.boxes[index]);
+                for (var axis = 0; axis < 3; axis++) {
+                    centroidMin[axis] = Math.min(centroidMin[axis], this.centroids[index * 3 + axis]);
+                    centroidMax[axis] = Math.max(centroidMax[axis], this.centroids[index * 3 + axis]);
+                }
+            }
+
+            var count = end - start;
+            var split = this.findSplit(start, end, bounds, centroidMin, centroidMax);
+            if (count <= MAX_LEAF_SIZE && (split == null || split.cost >= count)) {
+                var leafItems = new Object[count];
+                var leafBounds = new AABB[count];
+                for (var i = 0; i < count; i++) {
+                    leafItems[i] = this.items[this.order[start + i]];
+                    leafBounds[i] = this.boxes[this.order[start + i]];
+                }
+                return new Node<>(bounds, (List<T>) List.of(leafItems), leafBounds);
+            }
+
+            int mid;
+            if (split == null) {
+                // Every centroid is in the same place so no split separates them, fall back to halving the items.
+                mid = start + count / 2;
+            } else {
+                mid = this.partition(start, end, split, centroidMin, centroidMax);
+            }
+            return new Node<>(bounds, this.build(start, mid), this.build(mid, end));
+        }
+
+        /**
+         * Finds the cheapest split of the given range along any axis, using the surface area heuristic over a fixed number of bins.
+         */
+        private Split findSplit(int start, int end, AABB bounds, double[] centroidMin, double[] centroidMax) {
+            Split best = null;
+            var parentArea = surfaceArea(bounds.minX(), bounds.minY(), bounds.minZ(), bounds.maxX(), bounds.maxY(), bounds.maxZ());
+            if (parentArea <= 0) {
+                return null;
+            }
+            var binCounts = new int[BIN_COUNT];
+            var binBounds = new double[BIN_COUNT * 6];
+            var rightAreas = new double[BIN_COUNT];
+            for (var axis = 0; axis < 3; axis++) {
+                var extent = centroidMax[axis] - centroidMin[axis];
+                if (extent <= 0) {
+                    continue;
+                }
+
+                Arrays.fill(binCounts, 0);
+                for (var bin = 0; bin < BIN_COUNT; bin++) {
+                    resetBounds(binBounds, bin);
+                }
+                for (var i = start; i < end; i++) {
+                    var index = this.order[i];
+                    var bin = binOf(this.centroids[index * 3 + axis], centroidMin[axis], extent);
+                    binCounts[bin]++;
+                    growBounds(binBounds, bin, this.boxes[index]);
+                }
+
+                // Sweep from the right to find the area of everything right of each split plane, then from the left to cost each plane.
+                var accumulated = new double[6];
+                resetBounds(accumulated, 0);
+                for (var bin = BIN_COUNT - 1; bin > 0; bin--) {
+                    mergeBounds(accumulated, binBounds, bin);
+                    rightAreas[bin] = boundsArea(accumulated);
+                }
+                resetBounds(accumulated, 0);
+                var leftCount = 0;
+                for (var bin = 0; bin < BIN_COUNT - 1; bin++) {
+                    mergeBounds(accumulated, binBounds, bin);
+                    leftCount += binCounts[bin];
+                    var rightCount = (end - start) - leftCount;
+                    if (leftCount == 0 || rightCount == 0) {
+                        continue;
+                    }
+                    var cost = TRAVERSAL_COST + (boundsArea(accumulated) * leftCount + rightAreas[bin + 1] * rightCount) / parentArea;
+                    if (best == null || cost < best.cost) {
+                        best = new Split(axis, bin + 1, cost);
+                    }
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Moves the items left of the split plane to the start of the range and returns the index of the first item right of it.
+         */
+        private int partition(int start, int end, Split split, double[] centroidMin, double[] centroidMax) {
+            var extent = centroidMax[split.axis] - centroidMin[split.axis];
+            var i = start;
+            var j = end - 1;
+            while (i <= j) {
+                if (binOf(this.centroids[this.order[i] * 3 + split.axis], centroidMin[split.axis], extent) < split.bin) {
+                    i++;
+                } else {
+                    var swap = this.order[i];
+                    this.order[i] = this.order[j];
+                    this.order[j] = swap;
+                    j--;
+                }
+            }
+            return i;
+        }
+
+        private static int binOf(double centroid, double min, double extent) {
+            return Math.min(BIN_COUNT - 1, (int) ((centroid - min) * BIN_COUNT / extent));
+        }
+
+        private static void resetBounds(double[] bounds, int bin) {
+            Arrays.fill(bounds, bin * 6, bin * 6 + 3, Double.POSITIVE_INFINITY);
+            Arrays.fill(bounds, bin * 6 + 3, bin * 6 + 6, Double.NEGATIVE_INFINITY);
+        }
+
+        private static void growBounds(double[] bounds, int bin, AABB box) {
+            var o = bin * 6;
+            for (var axis = 0; axis < 3; axis++) {
+                bounds[o + axis] = Math.min(bounds[o + axis], box.min(axis));
+                bounds[o + 3 + axis] = Math.max(bounds[o + 3 + axis], box.max(axis));
+            }
+        }
+
+        private static void mergeBounds(double[] into, double[] bins, int bin) {
+            var o = bin * 6;
+            for (var axis = 0; axis < 3; axis++) {
+                into[axis] = Math.min(into[axis], bins[o + axis]);
+                into[3 + axis] = Math.max(into[3 + axis], bins[o + 3 + axis]);
+            }
+        }
+
+        private static double boundsArea(double[] bounds) {
+            if (bounds[0] > bounds[3]) {
+                return 0;
+            }
+            return surfaceArea(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+        }
+
+        private static double surfaceArea(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            var dx = maxX - minX;
+            var dy = maxY - minY;
+            var dz = maxZ - minZ;
+            return 2 * (dx * dy + dy * dz + dz * dx);
+        }
+    }
+
+    private record Split(int axis, int bin, double cost) {
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.tridevmc.architecture.core.physics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An axis-aligned bounding box stored as six doubles rather than a pair of vectors, so creating one is a single allocation
+ * and reading a bound never goes through a vector.
+ * <p>
+ * Used for the boxes created in hot loops like voxelization, {@link Mutable} goes one step further and can be reused for
+ * every box a loop needs. Convert to and from {@link AABB} with {@link #toAABB()} and {@link #of(IAABB)}.
+ *
+ * @param minX The minimum point of the box on the X axis.
+ * @param minY The minimum point of the box on the Y axis.
+ * @param minZ The minimum point of the box on the Z axis.
+ * @param maxX The maximum point of the box on the X axis.
+ * @param maxY The maximum point of the box on the Y axis.
+ * @param maxZ The maximum point of the box on the Z axis.
+ */
+public record FlatAABB(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) implements IAABB {
+
+    public FlatAABB {
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            throw new IllegalArgumentException("Min must be less than max!");
+        }
+    }
+
+    /**
+     * Creates a flat copy of the given box.
+     *
+     * @param box The box to copy.
+     * @return The flat box.
+     */
+    public static FlatAABB of(@NotNull IAABB box) {
+        if (box instanceof FlatAABB flat) {
+            return flat;
+        }
+        return new FlatAABB(box.minX(), box.minY(), box.minZ(), box.maxX(), box.maxY(), box.maxZ());
+    }
+
+    /**
+     * Creates a new box that encompasses both this box and another.
+     *
+     * @param other The other box to encompass.
+     * @return The encompassing box.
+     */
+    public FlatAABB union(IAABB other) {
+        return new FlatAABB(
+                Math.min(this.minX, other.minX()), Math.min(this.minY, other.minY()), Math.min(this.minZ, other.minZ()),
+                Math.max(this.maxX, other.maxX()), Math.max(this.maxY, other.maxY()), Math.max(this.maxZ, other.maxZ())
+        );
+    }
+
+    /**
+     * Inflates this box around its center by the given amount.
+     *
+     * @param size The amount to inflate in all axes.
+     * @return The inflated box.
+     */
+    public FlatAABB inflate(double size) {
+        return new FlatAABB(
+                this.minX - size / 2, this.minY - size / 2, this.minZ - size / 2,
+                this.maxX + size / 2, this.maxY + size / 2, this.maxZ + size / 2
+        );
+    }
+
+    /**
+     * Deflates this box around its center by the given amount.
+     *
+     * @param size The amount to deflate in all axes.
+     * @return The deflated box.
+     */
+    public FlatAABB deflate(double size) {
+        return new FlatAABB(
+                this.minX + size / 2, this.minY + size / 2, this.minZ + size / 2,
+                this.maxX - size / 2, this.maxY - size / 2, this.maxZ - size / 2
+        );
+    }
+
+    /**
+     * Creates a mutable copy of this box.
+     *
+     * @return The mutable box.
+     */
+    public Mutable toMutable() {
+        return new Mutable().set(this);
+    }
+
+    /**
+     * A flat box whose bounds can be changed in place, meant to be kept as scratch space by code that would otherwise create
+     * a new box on every iteration.
+     * <p>
+     * Unlike the immutable box this doesn't check that its minimum lies below its maximum, a box that was set up inside out
+     * simply intersects nothing.
+     */
+    public static final class Mutable implements IAABB {
+        private double minX, minY, minZ;
+        private double maxX, maxY, maxZ;
+
+        @Override
+        public double minX() {
+            return this.minX;
+        }
+
+        @Override
+        public double minY() {
+            return this.minY;
+        }
+
+        @Override
+        public double minZ() {
+            return this.minZ;
+        }
+
+        @Override
+        public double maxX() {
+            return this.maxX;
+        }
+
+        @Override
+        public double maxY() {
+            return this.maxY;
+        }
+
+        @Override
+        public double maxZ() {
+            return this.maxZ;
+        }
+
+        /**
+         * Sets all six bounds of this box.
+         *
+         * @return This box.
+         */
+        public Mutable set(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of this box to those of another.
+         *
+         * @param box The box to copy.
+         * @return This box.
+         */
+        public Mutable set(IAABB box) {
+            return this.set(box.minX(), box.minY(), box.minZ(), box.maxX(), box.maxY(), box.maxZ());
+        }
+
+        /**
+         * Grows this box to encompass another.
+         *
+         * @param other The other box to encompass.
+         * @return This box.
+         */
+        public Mutable union(IAABB other) {
+            return this.set(
+                    Math.min(this.minX, other.minX()), Math.min(this.minY, other.minY()), Math.min(this.minZ, other.minZ()),
+                    Math.max(this.maxX, other.maxX()), Math.max(this.maxY, other.maxY()), Math.max(this.maxZ, other.maxZ())
+            );
+        }
+
+        /**
+         * Inflates this box around its center by the given amount.
+         *
+         * @param size The amount to inflate in all axes.
+         * @return This box.
+         */
+        public Mutable inflate(double size) {
+            return this.set(
+                    this.minX - size / 2, this.minY - size / 2, this.minZ - size / 2,
+                    this.maxX + size / 2, this.maxY + size / 2, this.maxZ + size / 2
+            );
+        }
+
+        /**
+         * Deflates this box around its center by the given amount.
+         *
+         * @param size The amount to deflate in all axes.
+         * @return This box.
+         */
+        public Mutable deflate(double size) {
+            return this.set(
+                    this.minX + size / 2, this.minY + size / 2, this.minZ + size / 2,
+                    this.maxX - size / 2, this.maxY - size / 2, this.maxZ - size / 2
+            );
+        }
+
+        /**
+         * Creates an immutable copy of the current bounds of this box.
+         *
+         * @return The immutable box.
+         */
+        public FlatAABB toImmutable() {
+            return new FlatAABB(this.minX, this.minY, this.minZ, this.maxX, this.maxY, this.maxZ);
+        }
+
+        @Override
+        public String toString() {
+            return "FlatAABB.Mutable[minX=%s, minY=%s, minZ=%s, maxX=%s, maxY=%s, maxZ=%s]"
+                    .formatted(this.minX, this.minY, this.minZ, this.maxX, this.maxY, this.maxZ);
+        }
+    }
+}
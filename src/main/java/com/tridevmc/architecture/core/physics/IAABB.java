@@ -0,0 +1,197 @@
+package com.tridevmc.architecture.core.physics;
+
+import com.tridevmc.architecture.core.math.IVector3;
+
+/**
+ * A read only view of an axis-aligned bounding box through its six bounds.
+ * <p>
+ * Implemented by {@link AABB} as well as the flat {@link FlatAABB} and {@link FlatAABB.Mutable}, so queries can be made
+ * against whichever is at hand without converting between them.
+ */
+public interface IAABB {
+
+    double minX();
+
+    double minY();
+
+    double minZ();
+
+    double maxX();
+
+    double maxY();
+
+    double maxZ();
+
+    /**
+     * Checks if this box intersects with another, boxes that only touch are considered to intersect.
+     *
+     * @param other The other box to check.
+     * @return True if the boxes intersect, false otherwise.
+     */
+    default boolean intersects(IAABB other) {
+        return this.maxX() >= other.minX() && this.minX() <= other.maxX() &&
+                this.maxY() >= other.minY() && this.minY() <= other.maxY() &&
+                this.maxZ() >= other.minZ() && this.minZ() <= other.maxZ();
+    }
+
+    /**
+     * Checks if this box contains another.
+     *
+     * @param other The other box to check.
+     * @return True if this box contains the other, false otherwise.
+     */
+    default boolean contains(IAABB other) {
+        return this.maxX() >= other.maxX() && this.minX() <= other.minX() &&
+                this.maxY() >= other.maxY() && this.minY() <= other.minY() &&
+                this.maxZ() >= other.maxZ() && this.minZ() <= other.minZ();
+    }
+
+    /**
+     * Checks if this box contains a point.
+     *
+     * @param point The point to check.
+     * @return True if this box contains the point, false otherwise.
+     */
+    default boolean contains(IVector3 point) {
+        return this.contains(point.x(), point.y(), point.z());
+    }
+
+    /**
+     * Checks if this box contains a point.
+     *
+     * @param x The X coordinate of the point.
+     * @param y The Y coordinate of the point.
+     * @param z The Z coordinate of the point.
+     * @return True if this box contains the point, false otherwise.
+     */
+    default boolean contains(double x, double y, double z) {
+        return this.maxX() >= x && this.minX() <= x &&
+                this.maxY() >= y && this.minY() <= y &&
+                this.maxZ() >= z && this.minZ() <= z;
+    }
+
+    /**
+     * Checks if the infinite line through the given point along the given direction passes through this box, using the slab method.
+     *
+     * @param originX    The X coordinate of a point on the line.
+     * @param originY    The Y coordinate of a point on the line.
+     * @param originZ    The Z coordinate of a point on the line.
+     * @param directionX The X component of the direction of the line.
+     * @param directionY The Y component of the direction of the line.
+     * @param directionZ The Z component of the direction of the line.
+     * @return True if the line passes through this box, false otherwise.
+     */
+    default boolean intersectsLine(double originX, double originY, double originZ, double directionX, double directionY, double directionZ) {
+        var tMin = Double.NEGATIVE_INFINITY;
+        var tMax = Double.POSITIVE_INFINITY;
+        for (var i = 0; i < 3; i++) {
+            var origin = i == 0 ? originX : i == 1 ? originY : originZ;
+            var direction = i == 0 ? directionX : i == 1 ? directionY : directionZ;
+            var t1 = (this.min(i) - origin) / direction;
+            var t2 = (this.max(i) - origin) / direction;
+            if (t1 > t2) {
+                var temp = t1;
+                t1 = t2;
+                t2 = temp;
+            }
+            tMin = Math.max(tMin, t1);
+            tMax = Math.min(tMax, t2);
+            if (tMin > tMax) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds where the given ray enters this box using the slab method, only the section of the ray between its origin and the end
+     * of its direction is considered.
+     *
+     * @param ray The ray to test.
+     * @return The distance along the ray at which it enters this box as a multiple of the length of its direction, zero if it
+     * starts inside the box, or NaN if the ray misses the box.
+     */
+    default double enter(Ray ray) {
+        return PhysicsHelper.enterBox(this.minX(), this.minY(), this.minZ(), this.maxX(), this.maxY(), this.maxZ(),
+                ray.origin().x(), ray.origin().y(), ray.origin().z(),
+                1 / ray.direction().x(), 1 / ray.direction().y(), 1 / ray.direction().z(), 1);
+    }
+
+    /**
+     * Gets the minimum point of the box on the given axis.
+     *
+     * @param axis The axis to get the minimum point on, 0 for X, 1 for Y, 2 for Z.
+     * @return The minimum point on the given axis.
+     */
+    default double min(int axis) {
+        return switch (axis) {
+            case 0 -> this.minX();
+            case 1 -> this.minY();
+            case 2 -> this.minZ();
+            default -> throw new IllegalArgumentException("Axis must be between 0 and 2, got %s".formatted(axis));
+        };
+    }
+
+    /**
+     * Gets the maximum point of the box on the given axis.
+     *
+     * @param axis The axis to get the maximum point on, 0 for X, 1 for Y, 2 for Z.
+     * @return The maximum point on the given axis.
+     */
+    default double max(int axis) {
+        return switch (axis) {
+            case 0 -> this.maxX();
+            case 1 -> this.maxY();
+            case 2 -> this.maxZ();
+            default -> throw new IllegalArgumentException("Axis must be between 0 and 2, got %s".formatted(axis));
+        };
+    }
+
+    default double centerX() {
+        return (this.minX() + this.maxX()) / 2;
+    }
+
+    default double centerY() {
+        return (this.minY() + this.maxY()) / 2;
+    }
+
+    default double centerZ() {
+        return (this.minZ() + this.maxZ()) / 2;
+    }
+
+    /**
+     * Gets the size of this box along the X axis.
+     *
+     * @return The size of the box along the X axis.
+     */
+    default double getXSize() {
+        return this.maxX() - this.minX();
+    }
+
+    /**
+     * Gets the size of this box along the Y axis.
+     *
+     * @return The size of the box along the Y axis.
+     */
+    default double getYSize() {
+        return this.maxY() - this.minY();
+    }
+
+    /**
+     * Gets the size of this box along the Z axis.
+     *
+     * @return The size of the box along the Z axis.
+     */
+    default double getZSize() {
+        return this.maxZ() - this.minZ();
+    }
+
+    /**
+     * Converts this box to an {@link AABB}, boxes that already are one are returned as is.
+     *
+     * @return The equivalent {@link AABB}.
+     */
+    default AABB toAABB() {
+        return new AABB(this.minX(), this.minY(), this.minZ(), this.maxX(), this.maxY(), this.maxZ());
+    }
+}
@@ -1,8 +1,13 @@
 package com.tridevmc.architecture.core.physics;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Stream;
 
 /**
@@ -40,4 +45,112 @@ public interface IAABBTree<T> {
         return this.searchStream(box).toList();
     }
 
+    /**
+     * Passes every element that intersects the given AABB to the given consumer, without collecting them first.
+     *
+     * @param box    The AABB to search for.
+     * @param action The action to perform on each element.
+     */
+    default void forEachIntersecting(@NotNull IAABB box, @NotNull Consumer<? super T> action) {
+        this.searchStream(box.toAABB()).forEach(action);
+    }
+
+    /**
+     * Checks if any element that intersects the given AABB matches the given predicate, the search stops at the first match.
+     *
+     * @param box       The AABB to search for.
+     * @param predicate The predicate to test each element against.
+     * @return True if an element matched the predicate, false otherwise.
+     */
+    default boolean anyIntersecting(@NotNull IAABB box, @NotNull Predicate<? super T> predicate) {
+        return this.searchStream(box.toAABB()).anyMatch(predicate);
+    }
+
+    /**
+     * Passes every element whose bounds the given ray passes through to the given consumer.
+     * <p>
+     * Only the section of the ray between its origin and the end of its direction is considered. Implementations may visit
+     * the elements nearest the origin first, but don't have to.
+     *
+     * @param ray    The ray to search along.
+     * @param action The action to perform on each element.
+     */
+    default void forEachAlongRay(@NotNull Ray ray, @NotNull Consumer<? super T> action) {
+        this.forEachIntersecting(ray.getBounds(), action);
+    }
+
+    /**
+     * Passes every element whose bounds a ray in the given packet passes through to the given visitor, along with the index of that ray.
+     * <p>
+     * Implementations should share as much of the work between the rays as they can, by default each ray is searched on its own.
+     *
+     * @param packet  The rays to search along.
+     * @param visitor The visitor to call for each ray and element.
+     */
+    default void forEachAlongRays(@NotNull RayPacket packet, @NotNull RayPacket.Visitor<? super T> visitor) {
+        for (var ray = 0; ray < packet.size(); ray++) {
+            var index = ray;
+            this.forEachAlongRay(packet.getRay(ray), item -> visitor.visit(index, item));
+        }
+    }
+
+    /**
+     * Finds the closest hit between the given ray and the elements of the tree.
+     *
+     * @param ray       The ray to search along, only the section between its origin and the end of its direction is considered,
+     *                  including both ends.
+     * @param intersect Intersects the ray with an element, returning null if it misses.
+     * @param distance  Gets the distance along the ray of a hit, as a multiple of the length of the ray's direction.
+     * @param <H>       The type of hit produced by the intersection.
+     * @return The hit with the smallest distance, or null if the ray hit nothing.
+     */
+    @Nullable
+    default <H> H findClosestAlongRay(@NotNull Ray ray, @NotNull Function<? super T, H> intersect, @NotNull ToDoubleFunction<? super H> distance) {
+        var closest = new Object() {
+            H hit;
+            double distance = 1;
+        };
+        this.forEachAlongRay(ray, item -> {
+            var hit = intersect.apply(item);
+            if (hit == null) {
+                return;
+            }
+            // The first hit may land right on the end of the ray, after that a hit has to be strictly closer.
+            var t = distance.applyAsDouble(hit);
+            if (closest.hit == null ? t <= closest.distance : t < closest.distance) {
+                closest.hit = hit;
+                closest.distance = t;
+            }
+        });
+        return closest.hit;
+    }
+
+    /**
+     * Finds the element nearest to the given point.
+     * <p>
+     * Implementations may skip elements whose bounds are further from the point than the nearest element found so far, so the
+     * distance given for an element must never be less than the distance from the point to its bounds.
+     *
+     * @param x               The X coordinate of the point.
+     * @param y               The Y coordinate of the point.
+     * @param z               The Z coordinate of the point.
+     * @param distanceSquared Gets the squared distance from the point to an element.
+     * @return The element with the smallest distance, or null if the tree is empty.
+     */
+    @Nullable
+    default T findNearest(double x, double y, double z, @NotNull ToDoubleFunction<? super T> distanceSquared) {
+        var nearest = new Object() {
+            T item;
+            double distance = Double.POSITIVE_INFINITY;
+        };
+        this.searchStream(this.getBounds()).forEach(item -> {
+            var distance = distanceSquared.applyAsDouble(item);
+            if (distance < nearest.distance) {
+                nearest.item = item;
+                nearest.distance = distance;
+            }
+        });
+        return nearest.item;
+    }
+
 }
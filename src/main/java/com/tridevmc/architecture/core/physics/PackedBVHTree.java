@@ -0,0 +1,630 @@
+package com.tridevmc.architecture.core.physics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link BVHTree} flattened into primitive arrays, so a query reads node bounds straight out of a <code>double[]</code>
+ * instead of following references through node objects, boxes and vectors.
+ * <p>
+ * Nodes are stored depth first, the left child of a node always directly follows it and only the index of the right child is stored.
+ * Leaves store the range of their items instead, with the items laid out in the same order as the leaves.
+ * Traversal uses an explicit stack of node indices which is reused between queries made on the same thread.
+ *
+ * @param <T> The type of data stored in the tree.
+ */
+public class PackedBVHTree<T> implements IAABBTree<T> {
+
+    /**
+     * Spare traversal stacks, taken while a query is running so a query made from within another gets a stack of its own.
+     */
+    private static final ThreadLocal<int[]> STACKS = new ThreadLocal<>();
+
+    // For node i, nodes[i * 2] is the index of its right child or its first item, and nodes[i * 2 + 1] is the number of items in it,
+    // which is zero for every node that isn't a leaf.
+    private final int[] nodes;
+    private final double[] nodeBounds;
+    private final Object[] items;
+    private final double[] itemBounds;
+    private final int depth;
+    private final AABB bounds;
+
+    private PackedBVHTree(int[] nodes, double[] nodeBounds, Object[] items, double[] itemBounds, int depth, AABB bounds) {
+        this.nodes = nodes;
+        this.nodeBounds = nodeBounds;
+        this.items = items;
+        this.itemBounds = itemBounds;
+        this.depth = depth;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Builds a tree containing all the given items, see {@link BVHTree#build(Collection, Function)}.
+     *
+     * @param items     The items to store in the tree.
+     * @param boxGetter Gets the bounds of an item, called once per item.
+     * @param <T>       The type of data stored in the tree.
+     * @return The new tree.
+     */
+    public static <T> PackedBVHTree<T> build(@NotNull Collection<T> items, @NotNull Function<T, AABB> boxGetter) {
+        return PackedBVHTree.of(BVHTree.build(items, boxGetter));
+    }
+
+    /**
+     * Flattens the given tree, the result contains the same items and has the same shape.
+     *
+     * @param tree The tree to flatten.
+     * @param <T>  The type of data stored in the tree.
+     * @return The flattened tree.
+     */
+    public static <T> PackedBVHTree<T> of(@NotNull BVHTree<T> tree) {
+        var nodeCount = tree.getNodeCount();
+        var bounds = tree.getRoot() == null ? null : tree.getBounds();
+        var packed = new PackedBVHTree<T>(new int[nodeCount * 2], new double[nodeCount * 6], new Object[tree.size()], new double[tree.size() * 6], tree.getDepth(), bounds);
+        if (tree.getRoot() != null) {
+            packed.pack(tree.getRoot(), 0, 0);
+        }
+        return packed;
+    }
+
+    /**
+     * Creates a tree with the same shape as this one holding the given replacement for each item, with the bounds of every node
+     * recomputed bottom up from the bounds of the new items rather than building the tree again.
+     * <p>
+     * Meant for moving a whole set of items at once, like transforming every polygon of a mesh. Rigid transforms keep items that
+     * were close together close together so the shape stays a good fit, other transforms give a valid but possibly looser tree.
+     * The arrays describing the shape are shared with this tree rather than copied.
+     *
+     * @param mapper    Gets the replacement for an item, called once per item.
+     * @param boxGetter Gets the bounds of a replacement item, called once per item.
+     * @param <U>       The type of data stored in the new tree.
+     * @return The refitted tree.
+     */
+    public <U> PackedBVHTree<U> refit(@NotNull Function<? super T, ? extends U> mapper, @NotNull Function<? super U, ? extends IAABB> boxGetter) {
+        var newItems = new Object[this.items.length];
+        var newItemBounds = new double[this.itemBounds.length];
+        var newNodeBounds = new double[this.nodeBounds.length];
+        for (var i = 0; i < this.items.length; i++) {
+            @SuppressWarnings("unchecked")
+            var item = mapper.apply((T) this.items[i]);
+            newItems[i] = item;
+            writeBounds(newItemBounds, i, boxGetter.apply(item));
+        }
+
+        // Children are always stored after their parent, so walking the nodes backwards visits both children before their parent.
+        for (var node = this.getNodeCount() - 1; node >= 0; node--) {
+            var count = this.nodes[node * 2 + 1];
+            if (count == 0) {
+                System.arraycopy(newNodeBounds, (node + 1) * 6, newNodeBounds, node * 6, 6);
+                unionBounds(newNodeBounds, node, newNodeBounds, this.nodes[node * 2]);
+            } else {
+                var first = this.nodes[node * 2];
+                System.arraycopy(newItemBounds, first * 6, newNodeBounds, node * 6, 6);
+                for (var i = first + 1; i < first + count; i++) {
+                    unionBounds(newNodeBounds, node, newItemBounds, i);
+                }
+            }
+        }
+
+        var newBounds = this.items.length == 0 ? null : new AABB(
+                newNodeBounds[0], newNodeBounds[1], newNodeBounds[2],
+                newNodeBounds[3], newNodeBounds[4], newNodeBounds[5]
+        );
+        return new PackedBVHTree<>(this.nodes, newNodeBounds, newItems, newItemBounds, this.depth, newBounds);
+    }
+
+    /**
+     * Grows the bounds at the given index of one array to encompass the bounds at the given index of another.
+     */
+    private static void unionBounds(double[] target, int targetIndex, double[] source, int sourceIndex) {
+        var t = targetIndex * 6;
+        var o = sourceIndex * 6;
+        for (var axis = 0; axis < 3; axis++) {
+            target[t + axis] = Math.min(target[t + axis], source[o + axis]);
+            target[t + 3 + axis] = Math.max(target[t + 3 + axis], source[o + 3 + axis]);
+        }
+    }
+
+    /**
+     * Writes the given node and its children starting at the given indices.
+     *
+     * @return The number of nodes written in the upper 32 bits and the number of items written in the lower 32 bits.
+     */
+    private long pack(BVHTree.Node<T> node, int nodeIndex, int itemIndex) {
+        writeBounds(this.nodeBounds, nodeIndex, node.getBounds());
+        if (node.isLeaf()) {
+            var leafItems = node.getItems();
+            this.nodes[nodeIndex * 2] = itemIndex;
+            this.nodes[nodeIndex * 2 + 1] = leafItems.size();
+            for (var i = 0; i < leafItems.size(); i++) {
+                this.items[itemIndex + i] = leafItems.get(i);
+                writeBounds(this.itemBounds, itemIndex + i, node.getItemBounds(i));
+            }
+            return 1L << 32 | leafItems.size();
+        }
+
+        var left = this.pack(node.getLeft(), nodeIndex + 1, itemIndex);
+        var rightIndex = nodeIndex + 1 + (int) (left >>> 32);
+        var right = this.pack(node.getRight(), rightIndex, itemIndex + (int) left);
+        this.nodes[nodeIndex * 2] = rightIndex;
+        this.nodes[nodeIndex * 2 + 1] = 0;
+        return (1L + (left >>> 32) + (right >>> 32)) << 32 | ((int) left + (int) right);
+    }
+
+    private static void writeBounds(double[] array, int index, IAABB box) {
+        var o = index * 6;
+        array[o] = box.minX();
+        array[o + 1] = box.minY();
+        array[o + 2] = box.minZ();
+        array[o + 3] = box.maxX();
+        array[o + 4] = box.maxY();
+        array[o + 5] = box.maxZ();
+    }
+
+    private static boolean intersects(double[] array, int index, IAABB box) {
+        var o = index * 6;
+        return array[o + 3] >= box.minX() && array[o] <= box.maxX()
+                && array[o + 4] >= box.minY() && array[o + 1] <= box.maxY()
+                && array[o + 5] >= box.minZ() && array[o + 2] <= box.maxZ();
+    }
+
+    /**
+     * Gets the number of items stored in the tree.
+     *
+     * @return The number of items.
+     */
+    public int size() {
+        return this.items.length;
+    }
+
+    /**
+     * Gets the number of nodes on the longest path from the root to a leaf.
+     *
+     * @return The depth of the tree, or 0 if the tree is empty.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Gets the number of nodes in the tree, including leaves.
+     *
+     * @return The number of nodes.
+     */
+    public int getNodeCount() {
+        return this.nodes.length / 2;
+    }
+
+    // The accessors below expose the layout of the tree to code in this package that keeps its own data per node, like WindingNumber.
+    // Nodes are numbered from zero with the root first, the left child of a node that isn't a leaf is always the node that follows it.
+
+    boolean isLeaf(int node) {
+        return this.nodes[node * 2 + 1] > 0;
+    }
+
+    int getRightChild(int node) {
+        return this.nodes[node * 2];
+    }
+
+    int getFirstItem(int node) {
+        return this.nodes[node * 2];
+    }
+
+    int getItemCount(int node) {
+        return this.nodes[node * 2 + 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    T getItem(int index) {
+        return (T) this.items[index];
+    }
+
+    FlatAABB getNodeBounds(int node) {
+        var o = node * 6;
+        return new FlatAABB(this.nodeBounds[o], this.nodeBounds[o + 1], this.nodeBounds[o + 2],
+                this.nodeBounds[o + 3], this.nodeBounds[o + 4], this.nodeBounds[o + 5]);
+    }
+
+    @Override
+    @NotNull
+    public Stream<T> searchStream(@NotNull AABB box) {
+        if (this.items.length == 0) {
+            return Stream.empty();
+        }
+        // The stream can be consumed at any time, possibly interleaved with other queries, so it can't share a stack with them.
+        var stack = new int[this.depth];
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.NONNULL) {
+            private int stackSize = 1;
+            private int item, itemEnd;
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean tryAdvance(Consumer<? super T> action) {
+                var tree = PackedBVHTree.this;
+                while (true) {
+                    while (this.item < this.itemEnd) {
+                        var index = this.item++;
+                        if (intersects(tree.itemBounds, index, box)) {
+                            action.accept((T) tree.items[index]);
+                            return true;
+                        }
+                    }
+                    if (this.stackSize == 0) {
+                        return false;
+                    }
+
+                    var node = stack[--this.stackSize];
+                    if (intersects(tree.nodeBounds, node, box)) {
+                        var count = tree.nodes[node * 2 + 1];
+                        if (count > 0) {
+                            this.item = tree.nodes[node * 2];
+                            this.itemEnd = this.item + count;
+                        } else {
+                            stack[this.stackSize++] = tree.nodes[node * 2];
+                            stack[this.stackSize++] = node + 1;
+                        }
+                    }
+                }
+            }
+        }, false);
+    }
+
+    @Override
+    @NotNull
+    public List<T> search(@NotNull AABB box) {
+        var out = new ArrayList<T>();
+        this.forEachIntersecting(box, out::add);
+        return out;
+    }
+
+    @Override
+    public void forEachIntersecting(@NotNull IAABB box, @NotNull Consumer<? super T> action) {
+        this.anyIntersecting(box, item -> {
+            action.accept(item);
+            return false;
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean anyIntersecting(@NotNull IAABB box, @NotNull Predicate<? super T> predicate) {
+        if (this.items.length == 0) {
+            return false;
+        }
+
+        var stack = this.acquireStack(this.depth);
+        try {
+            var stackSize = 0;
+            stack[stackSize++] = 0;
+            while (stackSize > 0) {
+                var node = stack[--stackSize];
+                if (!intersects(this.nodeBounds, node, box)) {
+                    continue;
+                }
+                var count = this.nodes[node * 2 + 1];
+                if (count == 0) {
+                    // Push the right child first so the left one is visited first.
+                    stack[stackSize++] = this.nodes[node * 2];
+                    stack[stackSize++] = node + 1;
+                    continue;
+                }
+                for (var i = this.nodes[node * 2]; i < this.nodes[node * 2] + count; i++) {
+                    if (intersects(this.itemBounds, i, box) && predicate.test((T) this.items[i])) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            STACKS.set(stack);
+        }
+    }
+
+    /**
+     * Walks the leaves whose bounds intersect the given box, stopping at the first leaf the predicate accepts. Items are not
+     * checked against the box, that's left to the predicate along with anything else it wants to do with the range.
+     *
+     * @param box       The box to search.
+     * @param predicate Given the first item and number of items of each leaf reached.
+     * @return True if the predicate accepted a leaf, false otherwise.
+     */
+    boolean anyLeafIntersecting(@NotNull IAABB box, @NotNull LeafPredicate predicate) {
+        if (this.items.length == 0) {
+            return false;
+        }
+
+        var stack = this.acquireStack(this.depth);
+        try {
+            var stackSize = 0;
+            stack[stackSize++] = 0;
+            while (stackSize > 0) {
+                var node = stack[--stackSize];
+                if (!intersects(this.nodeBounds, node, box)) {
+                    continue;
+                }
+                var count = this.nodes[node * 2 + 1];
+                if (count == 0) {
+                    stack[stackSize++] = this.nodes[node * 2];
+                    stack[stackSize++] = node + 1;
+                } else if (predicate.test(this.nodes[node * 2], count)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            STACKS.set(stack);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachAlongRay(@NotNull Ray ray, @NotNull Consumer<? super T> action) {
+        this.traverseRay(ray, (item, tMax) -> {
+            action.accept((T) item);
+            return tMax;
+        });
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <H> H findClosestAlongRay(@NotNull Ray ray, @NotNull Function<? super T, H> intersect, @NotNull ToDoubleFunction<? super H> distance) {
+        var closest = new Object[1];
+        this.traverseRay(ray, (item, tMax) -> {
+            var hit = intersect.apply((T) item);
+            if (hit != null) {
+                var t = distance.applyAsDouble(hit);
+                // Boxes are entered up to and including tMax, so a first hit at the very end of the ray counts like it does
+                // everywhere else. After that a hit has to be strictly closer, ties keep the hit found first.
+                if (closest[0] == null ? t <= tMax : t < tMax) {
+                    closest[0] = hit;
+                    return t;
+                }
+            }
+            return tMax;
+        });
+        return (H) closest[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachAlongRays(@NotNull RayPacket packet, @NotNull RayPacket.Visitor<? super T> visitor) {
+        if (this.items.length == 0 || packet.size() == 0) {
+            return;
+        }
+
+        var rayCount = packet.size();
+        var rayData = new double[rayCount * 6];
+        for (var ray = 0; ray < rayCount; ray++) {
+            rayData[ray * 6] = packet.getOriginX(ray);
+            rayData[ray * 6 + 1] = packet.getOriginY(ray);
+            rayData[ray * 6 + 2] = packet.getOriginZ(ray);
+            for (var axis = 0; axis < 3; axis++) {
+                rayData[ray * 6 + 3 + axis] = 1 / packet.getDirection().getComponent(axis);
+            }
+        }
+        var packetBounds = packet.getBounds();
+
+        // Entries are pairs of a node and the first ray that might enter it, any ray before that missed one of the node's parents.
+        var stack = this.acquireStack(this.depth * 2 + 2);
+        try {
+            var stackSize = 0;
+            stack[stackSize++] = 0;
+            stack[stackSize++] = 0;
+            while (stackSize > 0) {
+                var firstRay = stack[--stackSize];
+                var node = stack[--stackSize];
+                // Most nodes are missed by the whole packet, which a single box test catches before any ray is looked at.
+                if (!intersects(this.nodeBounds, node, packetBounds)) {
+                    continue;
+                }
+                while (firstRay < rayCount && Double.isNaN(enter(this.nodeBounds, node, rayData, firstRay, 1))) {
+                    firstRay++;
+                }
+                if (firstRay == rayCount) {
+                    continue;
+                }
+                var count = this.nodes[node * 2 + 1];
+                if (count == 0) {
+                    stack[stackSize++] = this.nodes[node * 2];
+                    stack[stackSize++] = firstRay;
+                    stack[stackSize++] = node + 1;
+                    stack[stackSize++] = firstRay;
+                    continue;
+                }
+                for (var i = this.nodes[node * 2]; i < this.nodes[node * 2] + count; i++) {
+                    if (!intersects(this.itemBounds, i, packetBounds)) {
+                        continue;
+                    }
+                    for (var ray = firstRay; ray < rayCount; ray++) {
+                        if (!Double.isNaN(enter(this.itemBounds, i, rayData, ray, 1))) {
+                            visitor.visit(ray, (T) this.items[i]);
+                        }
+                    }
+                }
+            }
+        } finally {
+            STACKS.set(stack);
+        }
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T findNearest(double x, double y, double z, @NotNull ToDoubleFunction<? super T> distanceSquared) {
+        if (this.items.length == 0) {
+            return null;
+        }
+
+        T nearest = null;
+        var nearestDistance = Double.POSITIVE_INFINITY;
+        var stack = this.acquireStack(this.depth);
+        try {
+            var stackSize = 0;
+            stack[stackSize++] = 0;
+            while (stackSize > 0) {
+                var node = stack[--stackSize];
+                // The node was closer than the nearest item when it was pushed, but a nearer one may have been found since.
+                if (distanceSquaredTo(this.nodeBounds, node, x, y, z) >= nearestDistance) {
+                    continue;
+                }
+                var count = this.nodes[node * 2 + 1];
+                if (count == 0) {
+                    var left = node + 1;
+                    var right = this.nodes[node * 2];
+                    // Push the farther child first so the nearer one is searched first and gives a tighter bound sooner.
+                    if (distanceSquaredTo(this.nodeBounds, left, x, y, z) <= distanceSquaredTo(this.nodeBounds, right, x, y, z)) {
+                        stack[stackSize++] = right;
+                        stack[stackSize++] = left;
+                    } else {
+                        stack[stackSize++] = left;
+                        stack[stackSize++] = right;
+                    }
+                    continue;
+                }
+                for (var i = this.nodes[node * 2]; i < this.nodes[node * 2] + count; i++) {
+                    if (distanceSquaredTo(this.itemBounds, i, x, y, z) < nearestDistance) {
+                        var distance = distanceSquared.applyAsDouble((T) this.items[i]);
+                        if (distance < nearestDistance) {
+                            nearest = (T) this.items[i];
+                            nearestDistance = distance;
+                        }
+                    }
+                }
+            }
+            return nearest;
+        } finally {
+            STACKS.set(stack);
+        }
+    }
+
+    /**
+     * Gets the squared distance from a point to the box at the given index, zero if the point is inside the box.
+     */
+    private static double distanceSquaredTo(double[] bounds, int index, double x, double y, double z) {
+        var o = index * 6;
+        var dx = Math.max(0, Math.max(bounds[o] - x, x - bounds[o + 3]));
+        var dy = Math.max(0, Math.max(bounds[o + 1] - y, y - bounds[o + 4]));
+        var dz = Math.max(0, Math.max(bounds[o + 2] - z, z - bounds[o + 5]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Walks the nodes the given ray passes through from front to back, skipping any node the ray only enters beyond the
+     * distance returned by the visitor so far.
+     *
+     * @param ray     The ray to walk along, only the section between its origin and the end of its direction is considered.
+     * @param visitor Visits each item whose bounds the ray passes through, returning the distance beyond which nothing is of interest.
+     */
+    private void traverseRay(Ray ray, RayVisitor visitor) {
+        if (this.items.length == 0) {
+            return;
+        }
+
+        // Origin followed by the inverse of the direction, a zero component gives an infinite inverse which the slab test handles separately.
+        var rayData = new double[6];
+        for (var axis = 0; axis < 3; axis++) {
+            rayData[axis] = ray.origin().getComponent(axis);
+            rayData[3 + axis] = 1 / ray.direction().getComponent(axis);
+        }
+
+        var tMax = 1D;
+        var stack = this.acquireStack(this.depth);
+        try {
+            var stackSize = 0;
+            stack[stackSize++] = 0;
+            while (stackSize > 0) {
+                var node = stack[--stackSize];
+                // The node was entered closer than the best distance when it was pushed, but that may have shrunk since.
+                if (Double.isNaN(enter(this.nodeBounds, node, rayData, 0, tMax))) {
+                    continue;
+                }
+                var count = this.nodes[node * 2 + 1];
+                if (count == 0) {
+                    var left = node + 1;
+                    var right = this.nodes[node * 2];
+                    var tLeft = enter(this.nodeBounds, left, rayData, 0, tMax);
+                    var tRight = enter(this.nodeBounds, right, rayData, 0, tMax);
+                    // Push the farther child first so the nearer one is visited first, NaN means the child was missed entirely.
+                    if (Double.isNaN(tLeft)) {
+                        if (!Double.isNaN(tRight)) {
+                            stack[stackSize++] = right;
+                        }
+                    } else if (Double.isNaN(tRight)) {
+                        stack[stackSize++] = left;
+                    } else if (tLeft <= tRight) {
+                        stack[stackSize++] = right;
+                        stack[stackSize++] = left;
+                    } else {
+                        stack[stackSize++] = left;
+                        stack[stackSize++] = right;
+                    }
+                    continue;
+                }
+                for (var i = this.nodes[node * 2]; i < this.nodes[node * 2] + count; i++) {
+                    if (!Double.isNaN(enter(this.itemBounds, i, rayData, 0, tMax))) {
+                        tMax = visitor.visit(this.items[i], tMax);
+                    }
+                }
+            }
+        } finally {
+            STACKS.set(stack);
+        }
+    }
+
+    /**
+     * Finds where a ray enters the box at the given index, see {@link PhysicsHelper#enterBox}.
+     * <p>
+     * Rays are stored as their origin followed by the inverse of their direction, six values per ray.
+     *
+     * @return The distance along the ray at which it enters the box, or NaN if it misses the box or only enters it beyond the given
+     * maximum distance.
+     */
+    private static double enter(double[] bounds, int index, double[] rayData, int ray, double tMax) {
+        var o = index * 6;
+        var r = ray * 6;
+        return PhysicsHelper.enterBox(bounds[o], bounds[o + 1], bounds[o + 2], bounds[o + 3], bounds[o + 4], bounds[o + 5],
+                rayData[r], rayData[r + 1], rayData[r + 2], rayData[r + 3], rayData[r + 4], rayData[r + 5], tMax);
+    }
+
+    private int[] acquireStack(int length) {
+        var stack = STACKS.get();
+        if (stack == null || stack.length < length) {
+            return new int[Math.max(length, 64)];
+        }
+        STACKS.set(null);
+        return stack;
+    }
+
+    @FunctionalInterface
+    interface LeafPredicate {
+        boolean test(int firstItem, int itemCount);
+    }
+
+    @FunctionalInterface
+    private interface RayVisitor {
+        double visit(Object item, double tMax);
+    }
+
+    @Override
+    @NotNull
+    public AABB getBounds() {
+        if (this.bounds == null) {
+            throw new IllegalStateException("Cannot get the bounds of an empty tree");
+        }
+        return this.bounds;
+    }
+
+}
@@ -4,6 +4,8 @@ import com.tridevmc.architecture.core.math.IVector3;
 
 public class PhysicsHelper {
 
+    private static final double RAY_EPSILON = 1e-8;
+
     /**
      * Tests whether the given triangle and AABB intersect using the separating axis theorem.
      *
@@ -55,4 +57,491 @@ public class PhysicsHelper {
 
         return Math.max(-maxProjection, minProjection) > r;
     }
+
+    /**
+     * Tests whether the given axis separates a triangle and an AABB centred on the origin, without creating any vectors.
+     *
+     * @param axisX The X component of the separating axis to test.
+     * @param axisY The Y component of the separating axis to test.
+     * @param axisZ The Z component of the separating axis to test.
+     * @param halfX Half the size of the AABB along the X axis.
+     * @param halfY Half the size of the AABB along the Y axis.
+     * @param halfZ Half the size of the AABB along the Z axis.
+     * @param v0x   The position of the first vertex of the triangle relative to the center of the AABB, followed by the other two.
+     * @return true if the axis separates the triangle and the AABB, false otherwise.
+     */
+    public static boolean testSeparatingAxis(double axisX, double axisY, double axisZ,
+                                             double halfX, double halfY, double halfZ,
+                                             double v0x, double v0y, double v0z,
+                                             double v1x, double v1y, double v1z,
+                                             double v2x, double v2y, double v2z) {
+        var v0Projection = v0x * axisX + v0y * axisY + v0z * axisZ;
+        var v1Projection = v1x * axisX + v1y * axisY + v1z * axisZ;
+        var v2Projection = v2x * axisX + v2y * axisY + v2z * axisZ;
+
+        var r = halfX * Math.abs(axisX) + halfY * Math.abs(axisY) + halfZ * Math.abs(axisZ);
+
+        var maxProjection = Math.max(v0Projection, Math.max(v1Projection, v2Projection));
+        var minProjection = Math.min(v0Projection, Math.min(v1Projection, v2Projection));
+
+        return Math.max(-maxProjection, minProjection) > r;
+    }
+
+    /**
+     * Tests whether the given axis separates a quad and an AABB centred on the origin, without creating any vectors.
+     *
+     * @param axisX The X component of the separating axis to test.
+     * @param axisY The Y component of the separating axis to test.
+     * @param axisZ The Z component of the separating axis to test.
+     * @param halfX Half the size of the AABB along the X axis.
+     * @param halfY Half the size of the AABB along the Y axis.
+     * @param halfZ Half the size of the AABB along the Z axis.
+     * @param v0x   The position of the first vertex of the quad relative to the center of the AABB, followed by the other three.
+     * @return true if the axis separates the quad and the AABB, false otherwise.
+     */
+    public static boolean testSeparatingAxis(double axisX, double axisY, double axisZ,
+                                             double halfX, double halfY, double halfZ,
+                                             double v0x, double v0y, double v0z,
+                                             double v1x, double v1y, double v1z,
+                                             double v2x, double v2y, double v2z,
+                                             double v3x, double v3y, double v3z) {
+        var v0Projection = v0x * axisX + v0y * axisY + v0z * axisZ;
+        var v1Projection = v1x * axisX + v1y * axisY + v1z * axisZ;
+        var v2Projection = v2x * axisX + v2y * axisY + v2z * axisZ;
+        var v3Projection = v3x * axisX + v3y * axisY + v3z * axisZ;
+
+        var r = halfX * Math.abs(axisX) + halfY * Math.abs(axisY) + halfZ * Math.abs(axisZ);
+
+        var maxProjection = Math.max(v0Projection, Math.max(v1Projection, Math.max(v2Projection, v3Projection)));
+        var minProjection = Math.min(v0Projection, Math.min(v1Projection, Math.min(v2Projection, v3Projection)));
+
+        return Math.max(-maxProjection, minProjection) > r;
+    }
+
+    /**
+     * Tests the axes of the separating axis test between a triangle and an AABB that are left once the X, Y and Z axes have
+     * been tried, those formed by crossing each of the X, Y and Z axes with each edge of the triangle, followed by its normal.
+     * <p>
+     * The edges and normal are passed in so they can be found once and kept, but they have to be found exactly as
+     * {@link #getTriangleEdges(double, double, double, double, double, double, double, double, double, double[], int)} does
+     * for every caller to get the same answer.
+     *
+     * @param x0      The position of the first vertex of the triangle, followed by the other two.
+     * @param edges   The edges and normal of the triangle.
+     * @param offset  The index of the first edge in the array.
+     * @param centerX The X coordinate of the center of the box.
+     * @param centerY The Y coordinate of the center of the box.
+     * @param centerZ The Z coordinate of the center of the box.
+     * @param halfX   Half the size of the box along the X axis.
+     * @param halfY   Half the size of the box along the Y axis.
+     * @param halfZ   Half the size of the box along the Z axis.
+     * @return True if one of the axes separates the triangle and the box, false otherwise.
+     */
+    public static boolean isTriangleSeparatedByEdgesOrNormal(double x0, double y0, double z0,
+                                                             double x1, double y1, double z1,
+                                                             double x2, double y2, double z2,
+                                                             double[] edges, int offset,
+                                                             double centerX, double centerY, double centerZ,
+                                                             double halfX, double halfY, double halfZ) {
+        var v0x = x0 - centerX;
+        var v0y = y0 - centerY;
+        var v0z = z0 - centerZ;
+        var v1x = x1 - centerX;
+        var v1y = y1 - centerY;
+        var v1z = z1 - centerZ;
+        var v2x = x2 - centerX;
+        var v2y = y2 - centerY;
+        var v2z = z2 - centerZ;
+        if (isSeparatedByEdge(edges[offset], edges[offset + 1], edges[offset + 2], halfX, halfY, halfZ, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z) ||
+                isSeparatedByEdge(edges[offset + 3], edges[offset + 4], edges[offset + 5], halfX, halfY, halfZ, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z) ||
+                isSeparatedByEdge(edges[offset + 6], edges[offset + 7], edges[offset + 8], halfX, halfY, halfZ, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z)) {
+            return true;
+        }
+
+        // Finally the normal of the triangle. Every vertex lies on its plane so the distance of the plane from the center would do,
+        // but that rounds differently to projecting the vertices and changes the answer for boxes that only touch the triangle.
+        return testSeparatingAxis(edges[offset + 9], edges[offset + 10], edges[offset + 11], halfX, halfY, halfZ, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z);
+    }
+
+    /**
+     * Finds the edges and normal of a triangle used by
+     * {@link #isTriangleSeparatedByEdgesOrNormal(double, double, double, double, double, double, double, double, double, double[], int, double, double, double, double, double, double)}.
+     * <p>
+     * These are the edge from the first vertex to the second, from the second to the third, from the first to the third, and
+     * the unnormalized cross product of the first two edges, three components each.
+     *
+     * @param x0     The position of the first vertex of the triangle, followed by the other two.
+     * @param edges  The array to store the edges and normal in.
+     * @param offset The index to store the first edge at, the 12 values are stored from there on.
+     * @return The given array.
+     */
+    public static double[] getTriangleEdges(double x0, double y0, double z0,
+                                            double x1, double y1, double z1,
+                                            double x2, double y2, double z2,
+                                            double[] edges, int offset) {
+        var e0x = x1 - x0;
+        var e0y = y1 - y0;
+        var e0z = z1 - z0;
+        var e1x = x2 - x1;
+        var e1y = y2 - y1;
+        var e1z = z2 - z1;
+        edges[offset] = e0x;
+        edges[offset + 1] = e0y;
+        edges[offset + 2] = e0z;
+        edges[offset + 3] = e1x;
+        edges[offset + 4] = e1y;
+        edges[offset + 5] = e1z;
+        edges[offset + 6] = x2 - x0;
+        edges[offset + 7] = y2 - y0;
+        edges[offset + 8] = z2 - z0;
+        edges[offset + 9] = e0y * e1z - e0z * e1y;
+        edges[offset + 10] = e0z * e1x - e0x * e1z;
+        edges[offset + 11] = e0x * e1y - e0y * e1x;
+        return edges;
+    }
+
+    /**
+     * Tests the axes formed by crossing each of the X, Y and Z axes with the given edge of a triangle.
+     */
+    private static boolean isSeparatedByEdge(double ex, double ey, double ez, double halfX, double halfY, double halfZ,
+                                             double v0x, double v0y, double v0z,
+                                             double v1x, double v1y, double v1z,
+                                             double v2x, double v2y, double v2z) {
+        return testSeparatingAxis(0, -ez, ey, halfX, halfY, halfZ, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z) ||
+                testSeparatingAxis(ez, 0, -ex, halfX, halfY, halfZ, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z) ||
+                testSeparatingAxis(-ey, ex, 0, halfX, halfY, halfZ, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z);
+    }
+
+    /**
+     * Tests if a quad and a box intersect, using the axes found by
+     * {@link #getQuadAxes(double, double, double, double, double, double, double, double, double, double, double, double, double[], int)}
+     * so they can be found once and kept, or found on the spot by callers that don't keep them.
+     * <p>
+     * Any vertex inside the box or edge crossing it is an intersection, otherwise the separating axis test is run over the X, Y
+     * and Z axes, each of them crossed with each edge, the diagonals, and the cross products of neighbouring edges.
+     *
+     * @param box    The box to test against.
+     * @param x0     The position of the first vertex of the quad, followed by the other three.
+     * @param axes   The edges, diagonals and edge normals of the quad.
+     * @param offset The index of the first edge in the array.
+     * @param minX   The bounds of the vertices of the quad.
+     * @return True if the quad and the box intersect, false otherwise.
+     */
+    public static boolean intersectsQuad(IAABB box,
+                                         double x0, double y0, double z0,
+                                         double x1, double y1, double z1,
+                                         double x2, double y2, double z2,
+                                         double x3, double y3, double z3,
+                                         double[] axes, int offset,
+                                         double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (box.contains(x0, y0, z0) || box.contains(x1, y1, z1) || box.contains(x2, y2, z2) || box.contains(x3, y3, z3)) {
+            return true;
+        }
+        if (box.intersectsLine(x0, y0, z0, axes[offset], axes[offset + 1], axes[offset + 2])
+                || box.intersectsLine(x1, y1, z1, axes[offset + 3], axes[offset + 4], axes[offset + 5])
+                || box.intersectsLine(x2, y2, z2, axes[offset + 6], axes[offset + 7], axes[offset + 8])
+                || box.intersectsLine(x3, y3, z3, axes[offset + 9], axes[offset + 10], axes[offset + 11])) {
+            return true;
+        }
+
+        var centerX = box.centerX();
+        var centerY = box.centerY();
+        var centerZ = box.centerZ();
+        var halfX = box.getXSize() * 0.5D;
+        var halfY = box.getYSize() * 0.5D;
+        var halfZ = box.getZSize() * 0.5D;
+        // The X, Y and Z axes only need the bounds of the vertices, and they're the most likely to fail.
+        if (Math.max(centerX - maxX, minX - centerX) > halfX
+                | Math.max(centerY - maxY, minY - centerY) > halfY
+                | Math.max(centerZ - maxZ, minZ - centerZ) > halfZ) {
+            return false;
+        }
+
+        var v0x = x0 - centerX;
+        var v0y = y0 - centerY;
+        var v0z = z0 - centerZ;
+        var v1x = x1 - centerX;
+        var v1y = y1 - centerY;
+        var v1z = z1 - centerZ;
+        var v2x = x2 - centerX;
+        var v2y = y2 - centerY;
+        var v2z = z2 - centerZ;
+        var v3x = x3 - centerX;
+        var v3y = y3 - centerY;
+        var v3z = z3 - centerZ;
+        for (var edge = offset; edge < offset + 12; edge += 3) {
+            if (isSeparatedByEdge(axes[edge], axes[edge + 1], axes[edge + 2], halfX, halfY, halfZ,
+                    v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, v3x, v3y, v3z)) {
+                return false;
+            }
+        }
+        // The diagonals, then each edge crossed with the edge after it.
+        for (var axis = offset + 12; axis < offset + 30; axis += 3) {
+            if (testSeparatingAxis(axes[axis], axes[axis + 1], axes[axis + 2], halfX, halfY, halfZ,
+                    v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, v3x, v3y, v3z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the axes of a quad used by
+     * {@link #intersectsQuad(IAABB, double, double, double, double, double, double, double, double, double, double, double, double, double[], int, double, double, double, double, double, double)}.
+     * <p>
+     * These are the four edges running around the quad, edge n going from vertex n to the vertex after it, the diagonals from
+     * the first vertex to the third and from the second to the fourth, and the unnormalized cross product of each edge with the
+     * edge after it, three components each.
+     *
+     * @param x0     The position of the first vertex of the quad, followed by the other three.
+     * @param axes   The array to store the axes in.
+     * @param offset The index to store the first edge at, the 30 values are stored from there on.
+     * @return The given array.
+     */
+    public static double[] getQuadAxes(double x0, double y0, double z0,
+                                       double x1, double y1, double z1,
+                                       double x2, double y2, double z2,
+                                       double x3, double y3, double z3,
+                                       double[] axes, int offset) {
+        var e0x = x1 - x0;
+        var e0y = y1 - y0;
+        var e0z = z1 - z0;
+        var e1x = x2 - x1;
+        var e1y = y2 - y1;
+        var e1z = z2 - z1;
+        var e2x = x3 - x2;
+        var e2y = y3 - y2;
+        var e2z = z3 - z2;
+        var e3x = x0 - x3;
+        var e3y = y0 - y3;
+        var e3z = z0 - z3;
+        axes[offset] = e0x;
+        axes[offset + 1] = e0y;
+        axes[offset + 2] = e0z;
+        axes[offset + 3] = e1x;
+        axes[offset + 4] = e1y;
+        axes[offset + 5] = e1z;
+        axes[offset + 6] = e2x;
+        axes[offset + 7] = e2y;
+        axes[offset + 8] = e2z;
+        axes[offset + 9] = e3x;
+        axes[offset + 10] = e3y;
+        axes[offset + 11] = e3z;
+        axes[offset + 12] = x2 - x0;
+        axes[offset + 13] = y2 - y0;
+        axes[offset + 14] = z2 - z0;
+        axes[offset + 15] = x3 - x1;
+        axes[offset + 16] = y3 - y1;
+        axes[offset + 17] = z3 - z1;
+        axes[offset + 18] = e0y * e1z - e0z * e1y;
+        axes[offset + 19] = e0z * e1x - e0x * e1z;
+        axes[offset + 20] = e0x * e1y - e0y * e1x;
+        axes[offset + 21] = e1y * e2z - e1z * e2y;
+        axes[offset + 22] = e1z * e2x - e1x * e2z;
+        axes[offset + 23] = e1x * e2y - e1y * e2x;
+        axes[offset + 24] = e2y * e3z - e2z * e3y;
+        axes[offset + 25] = e2z * e3x - e2x * e3z;
+        axes[offset + 26] = e2x * e3y - e2y * e3x;
+        axes[offset + 27] = e3y * e0z - e3z * e0y;
+        axes[offset + 28] = e3z * e0x - e3x * e0z;
+        axes[offset + 29] = e3x * e0y - e3y * e0x;
+        return axes;
+    }
+
+    /**
+     * Tests the axes formed by crossing each of the X, Y and Z axes with the given edge of a quad.
+     */
+    private static boolean isSeparatedByEdge(double ex, double ey, double ez, double halfX, double halfY, double halfZ,
+                                             double v0x, double v0y, double v0z,
+                                             double v1x, double v1y, double v1z,
+                                             double v2x, double v2y, double v2z,
+                                             double v3x, double v3y, double v3z) {
+        return testSeparatingAxis(0, -ez, ey, halfX, halfY, halfZ, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, v3x, v3y, v3z) ||
+                testSeparatingAxis(ez, 0, -ex, halfX, halfY, halfZ, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, v3x, v3y, v3z) ||
+                testSeparatingAxis(-ey, ex, 0, halfX, halfY, halfZ, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, v3x, v3y, v3z);
+    }
+
+    /**
+     * Finds where a ray crosses a triangle given as a vertex and the two edges leaving it, using the Moller-Trumbore test
+     * without creating any vectors.
+     *
+     * @param ox  The X coordinate of the origin of the ray.
+     * @param oy  The Y coordinate of the origin of the ray.
+     * @param oz  The Z coordinate of the origin of the ray.
+     * @param dx  The direction of the ray, followed by the first vertex of the triangle.
+     * @param ax  The edge from the first vertex to the second, followed by the edge from the first vertex to the third.
+     * @return The distance along the ray to the crossing as a multiple of its direction, or NaN if the ray misses the triangle,
+     * is parallel to it, or crosses it at or behind its origin.
+     */
+    public static double intersectRayTriangle(double ox, double oy, double oz,
+                                              double dx, double dy, double dz,
+                                              double v0x, double v0y, double v0z,
+                                              double ax, double ay, double az,
+                                              double bx, double by, double bz) {
+        // The cross product of the ray direction and the second edge, and the determinant of the system.
+        var px = dy * bz - dz * by;
+        var py = dz * bx - dx * bz;
+        var pz = dx * by - dy * bx;
+        var det = ax * px + ay * py + az * pz;
+        if (det > -RAY_EPSILON && det < RAY_EPSILON) {
+            return Double.NaN;
+        }
+
+        var invDet = 1 / det;
+        var tx = (ox - v0x) * invDet;
+        var ty = (oy - v0y) * invDet;
+        var tz = (oz - v0z) * invDet;
+        var u = tx * px + ty * py + tz * pz;
+        if (u < 0 || u > 1) {
+            return Double.NaN;
+        }
+
+        var qx = ty * az - tz * ay;
+        var qy = tz * ax - tx * az;
+        var qz = tx * ay - ty * ax;
+        var v = dx * qx + dy * qy + dz * qz;
+        if (v < 0 || u + v > 1) {
+            return Double.NaN;
+        }
+
+        var t = bx * qx + by * qy + bz * qz;
+        return t > RAY_EPSILON ? t : Double.NaN;
+    }
+
+    /**
+     * Finds where a ray enters a box using the slab method. Boxes are treated as closed, so a ray that only touches a box still
+     * enters it. This is the one slab test shared by every box and tree, so they all agree on which boxes a ray passes through.
+     * <p>
+     * The ray is given as its origin and the inverse of its direction. An infinite inverse means the ray runs parallel to that
+     * pair of planes.
+     *
+     * @param minX     The minimum X coordinate of the box, followed by the rest of its bounds.
+     * @param originX  The X coordinate of the origin of the ray, followed by the other two.
+     * @param inverseX The inverse of the X component of the direction of the ray, followed by the other two.
+     * @param tMax     The furthest distance along the ray to look, as a multiple of the length of its direction.
+     * @return The distance along the ray at which it enters the box, clamped to zero if it starts inside, or NaN if it misses the box
+     * or only enters it beyond the given maximum distance.
+     */
+    public static double enterBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                                  double originX, double originY, double originZ,
+                                  double inverseX, double inverseY, double inverseZ,
+                                  double tMax) {
+        var tNear = 0D;
+        var tFar = tMax;
+        if (Double.isInfinite(inverseX)) {
+            if (originX < minX || originX > maxX) {
+                return Double.NaN;
+            }
+        } else {
+            var t1 = (minX - originX) * inverseX;
+            var t2 = (maxX - originX) * inverseX;
+            tNear = Math.max(tNear, Math.min(t1, t2));
+            tFar = Math.min(tFar, Math.max(t1, t2));
+        }
+        if (Double.isInfinite(inverseY)) {
+            if (originY < minY || originY > maxY) {
+                return Double.NaN;
+            }
+        } else {
+            var t1 = (minY - originY) * inverseY;
+            var t2 = (maxY - originY) * inverseY;
+            tNear = Math.max(tNear, Math.min(t1, t2));
+            tFar = Math.min(tFar, Math.max(t1, t2));
+        }
+        if (Double.isInfinite(inverseZ)) {
+            if (originZ < minZ || originZ > maxZ) {
+                return Double.NaN;
+            }
+        } else {
+            var t1 = (minZ - originZ) * inverseZ;
+            var t2 = (maxZ - originZ) * inverseZ;
+            tNear = Math.max(tNear, Math.min(t1, t2));
+            tFar = Math.min(tFar, Math.max(t1, t2));
+        }
+        return tNear > tFar ? Double.NaN : tNear;
+    }
+
+    /**
+     * Finds the squared distance from a point to the closest point on a triangle, following the region tests described by Ericson
+     * in Real-Time Collision Detection.
+     *
+     * @param px  The X coordinate of the point.
+     * @param py  The Y coordinate of the point.
+     * @param pz  The Z coordinate of the point.
+     * @param ax  The position of the first vertex of the triangle, followed by the other two.
+     * @return The squared distance from the point to the triangle.
+     */
+    public static double distanceSquaredToTriangle(double px, double py, double pz,
+                                                   double ax, double ay, double az,
+                                                   double bx, double by, double bz,
+                                                   double cx, double cy, double cz) {
+        var abx = bx - ax;
+        var aby = by - ay;
+        var abz = bz - az;
+        var acx = cx - ax;
+        var acy = cy - ay;
+        var acz = cz - az;
+        var apx = px - ax;
+        var apy = py - ay;
+        var apz = pz - az;
+
+        // Work out which feature of the triangle is closest to the point, then measure the distance to the point on that feature.
+        var d1 = abx * apx + aby * apy + abz * apz;
+        var d2 = acx * apx + acy * apy + acz * apz;
+        if (d1 <= 0 && d2 <= 0) {
+            return distanceSquared(px, py, pz, ax, ay, az);
+        }
+
+        var bpx = px - bx;
+        var bpy = py - by;
+        var bpz = pz - bz;
+        var d3 = abx * bpx + aby * bpy + abz * bpz;
+        var d4 = acx * bpx + acy * bpy + acz * bpz;
+        if (d3 >= 0 && d4 <= d3) {
+            return distanceSquared(px, py, pz, bx, by, bz);
+        }
+
+        var vc = d1 * d4 - d3 * d2;
+        if (vc <= 0 && d1 >= 0 && d3 <= 0) {
+            var v = d1 / (d1 - d3);
+            return distanceSquared(px, py, pz, ax + v * abx, ay + v * aby, az + v * abz);
+        }
+
+        var cpx = px - cx;
+        var cpy = py - cy;
+        var cpz = pz - cz;
+        var d5 = abx * cpx + aby * cpy + abz * cpz;
+        var d6 = acx * cpx + acy * cpy + acz * cpz;
+        if (d6 >= 0 && d5 <= d6) {
+            return distanceSquared(px, py, pz, cx, cy, cz);
+        }
+
+        var vb = d5 * d2 - d1 * d6;
+        if (vb <= 0 && d2 >= 0 && d6 <= 0) {
+            var w = d2 / (d2 - d6);
+            return distanceSquared(px, py, pz, ax + w * acx, ay + w * acy, az + w * acz);
+        }
+
+        var va = d3 * d6 - d5 * d4;
+        if (va <= 0 && d4 - d3 >= 0 && d5 - d6 >= 0) {
+            var w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            return distanceSquared(px, py, pz, bx + w * (cx - bx), by + w * (cy - by), bz + w * (cz - bz));
+        }
+
+        var sum = va + vb + vc;
+        if (sum == 0) {
+            // A degenerate triangle with no area and no edge closer than its vertices, the first vertex is as close as any.
+            return distanceSquared(px, py, pz, ax, ay, az);
+        }
+        var v = vb / sum;
+        var w = vc / sum;
+        return distanceSquared(px, py, pz, ax + abx * v + acx * w, ay + aby * v + acy * w, az + abz * v + acz * w);
+    }
+
+    private static double distanceSquared(double x0, double y0, double z0, double x1, double y1, double z1) {
+        var dx = x1 - x0;
+        var dy = y1 - y0;
+        var dz = z1 - z0;
+        return dx * dx + dy * dy + dz * dz;
+    }
 }
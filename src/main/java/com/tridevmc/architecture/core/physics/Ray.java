@@ -7,6 +7,10 @@ import com.tridevmc.architecture.core.model.mesh.IMesh;
 import com.tridevmc.architecture.core.model.mesh.IPolygon;
 import com.tridevmc.architecture.core.model.mesh.IPolygonData;
 
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
@@ -43,9 +47,60 @@ public record Ray(IVector3Immutable origin, IVector3Immutable direction) {
      * @return a stream of hits or failed hits.
      */
     public <I, D extends IPolygonData<D>> Stream<Hit> intersectUnfiltered(IMesh<I, D> mesh) {
-        return mesh.getAABBTree().search(new AABB(this.origin, this.origin.add(this.direction)))
-                .stream()
-                .map(this::intersect);
+        var hits = new ArrayList<Hit>();
+        mesh.getAABBTree().forEachAlongRay(this, poly -> hits.add(this.intersect(poly)));
+        return hits.stream();
+    }
+
+    /**
+     * Finds the hit on the given mesh closest to the origin of this ray, only considering hits between the origin and the end of the direction.
+     *
+     * @param mesh the mesh to intersect with.
+     * @return the closest valid hit, or null if the ray doesn't hit the mesh.
+     */
+    @Nullable
+    public <I, D extends IPolygonData<D>> Hit closestHit(IMesh<I, D> mesh) {
+        return this.closestHit(mesh.getAABBTree());
+    }
+
+    /**
+     * Finds the hit on the given mesh closest to the origin of this ray, ignoring any part of the mesh that isn't visible.
+     * <p>
+     * Hidden parts are left out of the part tree of the mesh, see {@link IMesh#getPartTree()}, so the polygons of the visible
+     * parts are searched with the trees the mesh already has and hidden parts are never entered.
+     *
+     * @param mesh    the mesh to intersect with.
+     * @param visible decides if a part of the mesh can be hit, called once per part.
+     * @return the closest valid hit on a visible part, or null if the ray doesn't hit any visible part.
+     */
+    @Nullable
+    public <I, D extends IPolygonData<D>> Hit closestHit(IMesh<I, D> mesh, Predicate<? super I> visible) {
+        return this.closestHit(mesh.getPartTree().withVisibility(visible));
+    }
+
+    @Nullable
+    private <D extends IPolygonData<D>> Hit closestHit(IAABBTree<IPolygon<D>> tree) {
+        return tree.findClosestAlongRay(
+                this,
+                poly -> {
+                    var hit = this.intersect(poly);
+                    return hit.isValidHit() && hit.getRayDistance() <= 1 ? hit : null;
+                },
+                Hit::getRayDistance
+        );
+    }
+
+    /**
+     * Gets the bounds of the section of this ray between its origin and the end of its direction.
+     *
+     * @return the bounds of the ray.
+     */
+    public AABB getBounds() {
+        var end = this.origin.add(this.direction);
+        return new AABB(
+                Math.min(this.origin.x(), end.x()), Math.min(this.origin.y(), end.y()), Math.min(this.origin.z(), end.z()),
+                Math.max(this.origin.x(), end.x()), Math.max(this.origin.y(), end.y()), Math.max(this.origin.z(), end.z())
+        );
     }
 
     /**
@@ -87,6 +142,18 @@ public record Ray(IVector3Immutable origin, IVector3Immutable direction) {
             return point.distance(this.point);
         }
 
+        /**
+         * Gets how far along the ray the hit point is, as a multiple of the length of the ray's direction.
+         *
+         * @return the distance along the ray, 0 at the origin and 1 at the end of the direction.
+         */
+        public double getRayDistance() {
+            var origin = this.ray.origin();
+            var direction = this.ray.direction();
+            var along = direction.dot(this.point.x() - origin.x(), this.point.y() - origin.y(), this.point.z() - origin.z());
+            return along / direction.dot(direction);
+        }
+
         /**
          * Creates a copy of this hit with the point rounded to the nearest 256th on each axis.
          *
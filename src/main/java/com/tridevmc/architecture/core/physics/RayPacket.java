@@ -0,0 +1,291 @@
+package com.tridevmc.architecture.core.physics;
+
+import com.tridevmc.architecture.core.math.IVector3;
+import com.tridevmc.architecture.core.math.IVector3Immutable;
+import com.tridevmc.architecture.core.model.mesh.IMesh;
+import com.tridevmc.architecture.core.model.mesh.IPolygon;
+import com.tridevmc.architecture.core.model.mesh.IPolygonData;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A group of rays sharing a single direction, cast through a tree in one traversal so each node is only fetched once for
+ * the whole group rather than once per ray.
+ * <p>
+ * Works best when the rays are close together, like the rows of a voxel grid, as most nodes are then either hit by every
+ * ray in the packet or by none of them.
+ */
+public final class RayPacket {
+
+    private final IVector3Immutable direction;
+    private final double[] origins;
+    private final AABB bounds;
+
+    /**
+     * Creates a new packet of rays.
+     *
+     * @param direction The direction shared by every ray in the packet, rays only cover the section between their origin and the end of the direction.
+     * @param origins   The origins of the rays, packed as x, y and z for each ray in turn.
+     */
+    public RayPacket(@NotNull IVector3 direction, @NotNull double[] origins) {
+        if (origins.length % 3 != 0) {
+            throw new IllegalArgumentException("Origins must contain 3 components per ray, got %s components".formatted(origins.length));
+        }
+        this.direction = direction.asImmutable();
+        this.origins = origins.clone();
+
+        var minX = Double.POSITIVE_INFINITY;
+        var minY = Double.POSITIVE_INFINITY;
+        var minZ = Double.POSITIVE_INFINITY;
+        var maxX = Double.NEGATIVE_INFINITY;
+        var maxY = Double.NEGATIVE_INFINITY;
+        var maxZ = Double.NEGATIVE_INFINITY;
+        for (var i = 0; i < this.origins.length; i += 3) {
+            var x = this.origins[i];
+            var y = this.origins[i + 1];
+            var z = this.origins[i + 2];
+            minX = Math.min(minX, Math.min(x, x + direction.x()));
+            minY = Math.min(minY, Math.min(y, y + direction.y()));
+            minZ = Math.min(minZ, Math.min(z, z + direction.z()));
+            maxX = Math.max(maxX, Math.max(x, x + direction.x()));
+            maxY = Math.max(maxY, Math.max(y, y + direction.y()));
+            maxZ = Math.max(maxZ, Math.max(z, z + direction.z()));
+        }
+        this.bounds = this.origins.length == 0 ? null : new AABB(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Gets the number of rays in this packet.
+     *
+     * @return The number of rays.
+     */
+    public int size() {
+        return this.origins.length / 3;
+    }
+
+    public IVector3Immutable getDirection() {
+        return this.direction;
+    }
+
+    public double getOriginX(int ray) {
+        return this.origins[ray * 3];
+    }
+
+    public double getOriginY(int ray) {
+        return this.origins[ray * 3 + 1];
+    }
+
+    public double getOriginZ(int ray) {
+        return this.origins[ray * 3 + 2];
+    }
+
+    /**
+     * Creates a standalone ray matching the ray at the given index.
+     *
+     * @param ray The index of the ray.
+     * @return The ray.
+     */
+    public Ray getRay(int ray) {
+        return new Ray(IVector3.ofImmutable(this.getOriginX(ray), this.getOriginY(ray), this.getOriginZ(ray)), this.direction);
+    }
+
+    /**
+     * Gets the bounds covering the section of every ray in the packet between its origin and the end of the direction.
+     *
+     * @return The bounds of the packet.
+     * @throws IllegalStateException If the packet is empty.
+     */
+    @NotNull
+    public AABB getBounds() {
+        if (this.bounds == null) {
+            throw new IllegalStateException("Cannot get the bounds of an empty ray packet");
+        }
+        return this.bounds;
+    }
+
+    /**
+     * Intersects every ray in this packet with the given mesh in a single traversal of its tree.
+     *
+     * @param mesh The mesh to intersect with.
+     * @return The hits of each ray, ordered by distance along the ray.
+     */
+    public <I, D extends IPolygonData<D>> Hits<IPolygon<D>> intersect(IMesh<I, D> mesh) {
+        var hits = new Hits<IPolygon<D>>(this.size());
+        var rays = new Ray[this.size()];
+        mesh.getAABBTree().forEachAlongRays(this, (ray, poly) -> {
+            if (rays[ray] == null) {
+                rays[ray] = this.getRay(ray);
+            }
+            var point = poly.intersect(rays[ray]);
+            if (point != null) {
+                var t = this.direction.dot(point.x() - this.getOriginX(ray), point.y() - this.getOriginY(ray), point.z() - this.getOriginZ(ray))
+                        / this.direction.dot(this.direction);
+                if (t <= 1) {
+                    hits.add(ray, t, poly);
+                }
+            }
+        });
+        hits.sort();
+        return hits;
+    }
+
+    /**
+     * Visits the items a packet of rays passes through.
+     *
+     * @param <T> The type of item visited.
+     */
+    @FunctionalInterface
+    public interface Visitor<T> {
+        /**
+         * Called for each ray in the packet that passes through the bounds of an item.
+         *
+         * @param ray  The index of the ray in the packet.
+         * @param item The item the ray passes through.
+         */
+        void visit(int ray, T item);
+    }
+
+    /**
+     * The hits of a ray packet, stored as a distance along the ray and the index of the polygon that was hit.
+     * <p>
+     * Hits are grouped by ray, the hits of ray <code>r</code> are found at the indices from {@link #getStart(int)}
+     * up to {@link #getEnd(int)}, in order of increasing distance.
+     *
+     * @param <P> The type of polygon that was hit.
+     */
+    public static final class Hits<P> {
+        private final int[] rayStarts;
+        private final Reference2IntOpenHashMap<P> polygonIndices = new Reference2IntOpenHashMap<>();
+        private final List<P> polygons = new ArrayList<>();
+        private int[] rays = new int[16];
+        private int[] polygonHits = new int[16];
+        private double[] distances = new double[16];
+        private int size;
+
+        private Hits(int rayCount) {
+            this.rayStarts = new int[rayCount + 1];
+            this.polygonIndices.defaultReturnValue(-1);
+        }
+
+        private void add(int ray, double distance, P polygon) {
+            if (this.size == this.rays.length) {
+                this.rays = Arrays.copyOf(this.rays, this.size * 2);
+                this.polygonHits = Arrays.copyOf(this.polygonHits, this.size * 2);
+                this.distances = Arrays.copyOf(this.distances, this.size * 2);
+            }
+            var index = this.polygonIndices.getInt(polygon);
+            if (index < 0) {
+                index = this.polygons.size();
+                this.polygons.add(polygon);
+                this.polygonIndices.put(polygon, index);
+            }
+            this.rays[this.size] = ray;
+            this.polygonHits[this.size] = index;
+            this.distances[this.size] = distance;
+            this.size++;
+        }
+
+        /**
+         * Groups the hits by ray with a counting sort, then orders the hits of each ray by distance.
+         */
+        private void sort() {
+            for (var i = 0; i < this.size; i++) {
+                this.rayStarts[this.rays[i] + 1]++;
+            }
+            for (var r = 1; r < this.rayStarts.length; r++) {
+                this.rayStarts[r] += this.rayStarts[r - 1];
+            }
+
+            var next = Arrays.copyOf(this.rayStarts, this.rayStarts.length - 1);
+            var sortedPolygons = new int[this.size];
+            var sortedDistances = new double[this.size];
+            for (var i = 0; i < this.size; i++) {
+                var slot = next[this.rays[i]]++;
+                sortedPolygons[slot] = this.polygonHits[i];
+                sortedDistances[slot] = this.distances[i];
+            }
+
+            // Rays rarely hit more than a handful of polygons, so an insertion sort per ray is plenty.
+            for (var r = 0; r < this.rayStarts.length - 1; r++) {
+                for (var i = this.rayStarts[r] + 1; i < this.rayStarts[r + 1]; i++) {
+                    var polygon = sortedPolygons[i];
+                    var distance = sortedDistances[i];
+                    var j = i - 1;
+                    while (j >= this.rayStarts[r] && sortedDistances[j] > distance) {
+                        sortedPolygons[j + 1] = sortedPolygons[j];
+                        sortedDistances[j + 1] = sortedDistances[j];
+                        j--;
+                    }
+                    sortedPolygons[j + 1] = polygon;
+                    sortedDistances[j + 1] = distance;
+                }
+            }
+            this.rays = null;
+            this.polygonHits = sortedPolygons;
+            this.distances = sortedDistances;
+        }
+
+        /**
+         * Gets the total number of hits across every ray.
+         *
+         * @return The number of hits.
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * Gets the index of the first hit of the given ray.
+         *
+         * @param ray The index of the ray in the packet.
+         * @return The index of the first hit.
+         */
+        public int getStart(int ray) {
+            return this.rayStarts[ray];
+        }
+
+        /**
+         * Gets the index just past the last hit of the given ray.
+         *
+         * @param ray The index of the ray in the packet.
+         * @return The index just past the last hit.
+         */
+        public int getEnd(int ray) {
+            return this.rayStarts[ray + 1];
+        }
+
+        /**
+         * Gets how far along its ray the given hit is, as a multiple of the length of the packet's direction.
+         *
+         * @param hit The index of the hit.
+         * @return The distance along the ray.
+         */
+        public double getDistance(int hit) {
+            return this.distances[hit];
+        }
+
+        /**
+         * Gets the index of the polygon that was hit, the same polygon always has the same index within these hits.
+         *
+         * @param hit The index of the hit.
+         * @return The index of the polygon, see {@link #getPolygon(int)}.
+         */
+        public int getPolygonIndex(int hit) {
+            return this.polygonHits[hit];
+        }
+
+        /**
+         * Gets the polygon with the given index.
+         *
+         * @param index The index of the polygon, as returned by {@link #getPolygonIndex(int)}.
+         * @return The polygon.
+         */
+        public P getPolygon(int index) {
+            return this.polygons.get(index);
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.tridevmc.architecture.core.physics;
+
+import com.tridevmc.architecture.core.ArchitectureLog;
+import com.tridevmc.architecture.core.model.mesh.IFace;
+import com.tridevmc.architecture.core.model.mesh.IMesh;
+import com.tridevmc.architecture.core.model.mesh.IPolygon;
+import com.tridevmc.architecture.core.model.mesh.IPolygonData;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The polygons of a mesh laid out for testing one box against many of them at once, each coordinate of each vertex and each
+ * bound is kept in an array of its own with one entry per polygon.
+ * <p>
+ * Polygons with three vertices are tested by a kernel that gives the same answer as {@link IPolygon#intersect(IAABB)} on a tri for every polygon in a range, with
+ * the cheap part of the test done for the whole range at once and the rest only for the few triangles that need it. Any
+ * other kind of polygon is tested through its own method. The bounds of each tri are found from its vertices rather than
+ * read from the tri, which only makes a difference to a tri created with bounds that don't match its vertices.
+ * <p>
+ * Polygons are kept in the order of the leaves of the mesh's {@link PackedBVHTree}, so every leaf is a contiguous range of the arrays.
+ * Instances are immutable once created and can be queried from any number of threads at once.
+ * <p>
+ * The first pass has two kernels, see {@link Kernel}. Both give the same answer, the vector one is used whenever the JVM was
+ * started with the <code>jdk.incubator.vector</code> module.
+ */
+public final class TriangleBatch {
+
+    /**
+     * The ways the first pass of the test can be run.
+     */
+    public enum Kernel {
+        /**
+         * A plain loop over the polygons, always available.
+         */
+        SCALAR,
+        /**
+         * Runs as many polygons at once as fit in a vector register, through the incubating vector API. Only available when
+         * the JVM was started with <code>--add-modules jdk.incubator.vector</code>.
+         */
+        VECTOR;
+
+        private static final String VECTOR_MODULE = "jdk.incubator.vector";
+        private static final Kernel DEFAULT = findDefault();
+
+        /**
+         * Gets the kernel used when none is given, the vector kernel if it's available and the scalar kernel otherwise.
+         *
+         * @return The default kernel.
+         */
+        public static Kernel getDefault() {
+            return DEFAULT;
+        }
+
+        /**
+         * Checks if this kernel can be used by the running JVM.
+         *
+         * @return True if the kernel is available, false otherwise.
+         */
+        public boolean isAvailable() {
+            return this == SCALAR || DEFAULT == VECTOR;
+        }
+
+        private static Kernel findDefault() {
+            // Checked before the vector kernel is loaded, as loading it without the module would fail.
+            if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+                return SCALAR;
+            }
+            try {
+                ArchitectureLog.debug("Testing polygons {} at a time through {}", VectorKernel.getLaneCount(), VECTOR_MODULE);
+                return VECTOR;
+            } catch (LinkageError e) {
+                ArchitectureLog.warn("Found {} but could not use it, falling back to the scalar kernel", VECTOR_MODULE);
+                return SCALAR;
+            }
+        }
+    }
+
+    private static final FlatAABB EVERYWHERE = new FlatAABB(
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY
+    );
+
+    private final PackedBVHTree<? extends IPolygon<?>> tree;
+    private final int size;
+    private final double[] ax, ay, az, bx, by, bz, cx, cy, cz;
+    private final double[] minX, minY, minZ, maxX, maxY, maxZ;
+    // The edges and normal of each tri as laid out by PhysicsHelper#getTriangleEdges, 12 entries per polygon.
+    private final double[] edges;
+    private final boolean[] tri;
+    // Polygons that aren't tris, or null if there are none. Tris have a null entry.
+    private final IPolygon<?>[] others;
+
+    private TriangleBatch(PackedBVHTree<? extends IPolygon<?>> tree) {
+        this.tree = tree;
+        this.size = tree.size();
+        this.ax = new double[this.size];
+        this.ay = new double[this.size];
+        this.az = new double[this.size];
+        this.bx = new double[this.size];
+        this.by = new double[this.size];
+        this.bz = new double[this.size];
+        this.cx = new double[this.size];
+        this.cy = new double[this.size];
+        this.cz = new double[this.size];
+        this.minX = new double[this.size];
+        this.minY = new double[this.size];
+        this.minZ = new double[this.size];
+        this.maxX = new double[this.size];
+        this.maxY = new double[this.size];
+        this.maxZ = new double[this.size];
+        this.edges = new double[this.size * 12];
+        this.tri = new boolean[this.size];
+        IPolygon<?>[] others = null;
+        for (var i = 0; i < this.size; i++) {
+            IPolygon<?> polygon = tree.getItem(i);
+            if (!isTri(polygon)) {
+                var bounds = polygon.getAABB();
+                this.minX[i] = bounds.minX();
+                this.minY[i] = bounds.minY();
+                this.minZ[i] = bounds.minZ();
+                this.maxX[i] = bounds.maxX();
+                this.maxY[i] = bounds.maxY();
+                this.maxZ[i] = bounds.maxZ();
+                if (others == null) {
+                    others = new IPolygon<?>[this.size];
+                }
+                others[i] = polygon;
+                continue;
+            }
+            this.tri[i] = true;
+            var vertices = polygon.getVertices();
+            var a = vertices.get(0).getPos();
+            var b = vertices.get(1).getPos();
+            var c = vertices.get(2).getPos();
+            this.ax[i] = a.x();
+            this.ay[i] = a.y();
+            this.az[i] = a.z();
+            this.bx[i] = b.x();
+            this.by[i] = b.y();
+            this.bz[i] = b.z();
+            this.cx[i] = c.x();
+            this.cy[i] = c.y();
+            this.cz[i] = c.z();
+            // The first pass of the test needs the exact bounds of the vertices, so they're found here rather than trusting the polygon.
+            this.minX[i] = Math.min(a.x(), Math.min(b.x(), c.x()));
+            this.minY[i] = Math.min(a.y(), Math.min(b.y(), c.y()));
+            this.minZ[i] = Math.min(a.z(), Math.min(b.z(), c.z()));
+            this.maxX[i] = Math.max(a.x(), Math.max(b.x(), c.x()));
+            this.maxY[i] = Math.max(a.y(), Math.max(b.y(), c.y()));
+            this.maxZ[i] = Math.max(a.z(), Math.max(b.z(), c.z()));
+            PhysicsHelper.getTriangleEdges(a.x(), a.y(), a.z(), b.x(), b.y(), b.z(), c.x(), c.y(), c.z(), this.edges, i * 12);
+        }
+        this.others = others;
+    }
+
+    private static boolean isTri(IPolygon<?> polygon) {
+        return polygon.getVertexCount() == 3;
+    }
+
+    /**
+     * Lays out the polygons of the given mesh, reusing its tree when it has a {@link PackedBVHTree} and building a new one otherwise.
+     *
+     * @param mesh The mesh to lay out.
+     * @return The batch of the mesh's polygons.
+     */
+    public static <I, D extends IPolygonData<D>> TriangleBatch of(@NotNull IMesh<I, D> mesh) {
+        if (mesh.getAABBTree() instanceof PackedBVHTree<IPolygon<D>> tree) {
+            return new TriangleBatch(tree);
+        }
+        var polygons = mesh.getFaceStream().flatMap(IFace::getPolygonStream).toList();
+        return new TriangleBatch(PackedBVHTree.build(polygons, IPolygon::getAABB));
+    }
+
+    /**
+     * Gets the number of polygons in this batch.
+     *
+     * @return The number of polygons.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the polygon at the given index, polygons are in the same order as the items of the tree the batch was created from.
+     *
+     * @param index The index of the polygon.
+     * @return The polygon.
+     */
+    public IPolygon<?> getPolygon(int index) {
+        return this.tree.getItem(index);
+    }
+
+    /**
+     * Tests a range of polygons against the given box, giving the same answer as {@link IPolygon#intersect(IAABB)} for each of them.
+     *
+     * @param box  The box to test.
+     * @param from The index of the first polygon to test.
+     * @param to   The index after the last polygon to test.
+     * @param hits Set to whether each polygon intersects the box, starting from index zero for the first polygon in the range.
+     * @return The number of polygons in the range that intersect the box.
+     */
+    public int intersect(@NotNull IAABB box, int from, int to, boolean @NotNull [] hits) {
+        return this.intersect(box, from, to, hits, Kernel.getDefault());
+    }
+
+    /**
+     * Tests a range of polygons against the given box with the given kernel, see {@link #intersect(IAABB, int, int, boolean[])}.
+     *
+     * @param box    The box to test.
+     * @param from   The index of the first polygon to test.
+     * @param to     The index after the last polygon to test.
+     * @param hits   Set to whether each polygon intersects the box, starting from index zero for the first polygon in the range.
+     * @param kernel The kernel to run the first pass with.
+     * @return The number of polygons in the range that intersect the box.
+     */
+    public int intersect(@NotNull IAABB box, int from, int to, boolean @NotNull [] hits, @NotNull Kernel kernel) {
+        if (!kernel.isAvailable()) {
+            throw new IllegalStateException("The %s kernel is not available, the JVM needs --add-modules jdk.incubator.vector".formatted(kernel));
+        }
+        if (from < 0 || to > this.size || from > to) {
+            throw new IllegalArgumentException("Range %s to %s is outside of a batch of %s polygons".formatted(from, to, this.size));
+        }
+        if (hits.length < to - from) {
+            throw new IllegalArgumentException("Need room for %s hits, got %s".formatted(to - from, hits.length));
+        }
+        return this.countIntersecting(EVERYWHERE, box, from, to, hits, kernel);
+    }
+
+    /**
+     * Checks if any polygon whose bounds intersect the search box also intersects the given box, the batch equivalent of
+     * <code>tree.anyIntersecting(searchBox, p -> p.intersect(box))</code> on the tree of the mesh.
+     *
+     * @param searchBox The box used to find the polygons to test.
+     * @param box       The box to test the polygons against.
+     * @return True if any of the polygons intersect the box, false otherwise.
+     */
+    public boolean anyIntersecting(@NotNull IAABB searchBox, @NotNull IAABB box) {
+        var kernel = Kernel.getDefault();
+        return this.tree.anyLeafIntersecting(searchBox, (first, count) -> this.countIntersecting(searchBox, box, first, first + count, null, kernel) > 0);
+    }
+
+    /**
+     * Counts the polygons in a range whose bounds intersect the search box and which intersect the given box.
+     * <p>
+     * The test is split in two. The first pass runs the vertex containment test and the X, Y and Z axes for every polygon
+     * in the range, reading only the bounds and vertices of each one and combining the results without branching on them.
+     * The separation of a triangle along an axis depends only on its bounds along that axis, and subtracting the center of
+     * the box rounds in a way that keeps their order, so this is the same answer a tri gets from its vertices.
+     * Only the few triangles that pass without being decided go on to the edge axes and the normal in the second pass.
+     */
+    private int countIntersecting(IAABB searchBox, IAABB box, int from, int to, boolean @Nullable [] hits, Kernel kernel) {
+        var count = kernel == Kernel.VECTOR
+                ? VectorKernel.countTris(this, searchBox, box, from, to, hits)
+                : this.countTris(searchBox, box, from, to, hits, from);
+
+        if (this.others != null) {
+            // The lanes of anything other than a tri are always a miss, the polygon is tested through its own method instead.
+            for (var i = from; i < to; i++) {
+                var other = this.others[i];
+                if (other != null && this.maxX[i] >= searchBox.minX() && this.minX[i] <= searchBox.maxX()
+                        && this.maxY[i] >= searchBox.minY() && this.minY[i] <= searchBox.maxY()
+                        && this.maxZ[i] >= searchBox.minZ() && this.minZ[i] <= searchBox.maxZ() && other.intersect(box)) {
+                    if (hits != null) {
+                        hits[i - from] = true;
+                    }
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The scalar kernel, counts the tris in a range that intersect the box. Each hit is written to <code>hits</code> relative to
+     * <code>hitsOrigin</code>, so the vector kernel can hand its last few polygons over without moving them.
+     */
+    private int countTris(IAABB searchBox, IAABB box, int from, int to, boolean @Nullable [] hits, int hitsOrigin) {
+        var sMinX = searchBox.minX();
+        var sMinY = searchBox.minY();
+        var sMinZ = searchBox.minZ();
+        var sMaxX = searchBox.maxX();
+        var sMaxY = searchBox.maxY();
+        var sMaxZ = searchBox.maxZ();
+        var bMinX = box.minX();
+        var bMinY = box.minY();
+        var bMinZ = box.minZ();
+        var bMaxX = box.maxX();
+        var bMaxY = box.maxY();
+        var bMaxZ = box.maxZ();
+        var centerX = box.centerX();
+        var centerY = box.centerY();
+        var centerZ = box.centerZ();
+        var halfX = box.getXSize() * 0.5D;
+        var halfY = box.getYSize() * 0.5D;
+        var halfZ = box.getZSize() * 0.5D;
+
+        var count = 0;
+        for (var i = from; i < to; i++) {
+            var searched = this.maxX[i] >= sMinX & this.minX[i] <= sMaxX
+                    & this.maxY[i] >= sMinY & this.minY[i] <= sMaxY
+                    & this.maxZ[i] >= sMinZ & this.minZ[i] <= sMaxZ;
+            var contained = contains(bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ, this.ax[i], this.ay[i], this.az[i])
+                    | contains(bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ, this.bx[i], this.by[i], this.bz[i])
+                    | contains(bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ, this.cx[i], this.cy[i], this.cz[i]);
+            var separated = Math.max(centerX - this.maxX[i], this.minX[i] - centerX) > halfX
+                    | Math.max(centerY - this.maxY[i], this.minY[i] - centerY) > halfY
+                    | Math.max(centerZ - this.maxZ[i], this.minZ[i] - centerZ) > halfZ;
+
+            var hit = this.tri[i] & searched & contained;
+            if (this.tri[i] & searched & !contained & !separated) {
+                hit = !this.isSeparatedByEdgesOrNormal(i, centerX, centerY, centerZ, halfX, halfY, halfZ);
+            }
+            if (hits != null) {
+                hits[i - hitsOrigin] = hit;
+            }
+            count += hit ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * The second pass of {@link #countIntersecting(IAABB, IAABB, int, int, boolean[], Kernel)}, the remaining axes of the separating
+     * axis test for a single triangle, run by the same kernel as the tris of the mesh so the answer is always the same.
+     */
+    private boolean isSeparatedByEdgesOrNormal(int i, double centerX, double centerY, double centerZ, double halfX, double halfY, double halfZ) {
+        return PhysicsHelper.isTriangleSeparatedByEdgesOrNormal(this.ax[i], this.ay[i], this.az[i], this.bx[i], this.by[i], this.bz[i],
+                this.cx[i], this.cy[i], this.cz[i], this.edges, i * 12, centerX, centerY, centerZ, halfX, halfY, halfZ);
+    }
+
+    private static boolean contains(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                                    double x, double y, double z) {
+        return maxX >= x & minX <= x & maxY >= y & minY <= y & maxZ >= z & minZ <= z;
+    }
+
+    /**
+     * The vector kernel, the same first pass as {@link #countTris(IAABB, IAABB, int, int, boolean[], int)} with a whole vector of
+     * polygons in each step. Comparisons are exact and the lanewise maximum follows {@link Math#max(double, double)}, so every
+     * lane gets the answer the scalar kernel would. Whatever doesn't fill a whole vector is handed to the scalar kernel.
+     * <p>
+     * Only loaded once {@link Kernel} has found the module, so the rest of the batch works on a JVM without it.
+     */
+    private static final class VectorKernel {
+
+        private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+        private static int getLaneCount() {
+            return SPECIES.length();
+        }
+
+        private static int countTris(TriangleBatch batch, IAABB searchBox, IAABB box, int from, int to, boolean @Nullable [] hits) {
+            var species = SPECIES;
+            var upper = from + species.loopBound(to - from);
+            var sMinX = searchBox.minX();
+            var sMinY = searchBox.minY();
+            var sMinZ = searchBox.minZ();
+            var sMaxX = searchBox.maxX();
+            var sMaxY = searchBox.maxY();
+            var sMaxZ = searchBox.maxZ();
+            var bMinX = box.minX();
+            var bMinY = box.minY();
+            var bMinZ = box.minZ();
+            var bMaxX = box.maxX();
+            var bMaxY = box.maxY();
+            var bMaxZ = box.maxZ();
+            var centerX = box.centerX();
+            var centerY = box.centerY();
+            var centerZ = box.centerZ();
+            var halfX = box.getXSize() * 0.5D;
+            var halfY = box.getYSize() * 0.5D;
+            var halfZ = box.getZSize() * 0.5D;
+            var centerXs = DoubleVector.broadcast(species, centerX);
+            var centerYs = DoubleVector.broadcast(species, centerY);
+            var centerZs = DoubleVector.broadcast(species, centerZ);
+
+            var count = 0;
+            for (var i = from; i < upper; i += species.length()) {
+                var minX = DoubleVector.fromArray(species, batch.minX, i);
+                var minY = DoubleVector.fromArray(species, batch.minY, i);
+                var minZ = DoubleVector.fromArray(species, batch.minZ, i);
+                var maxX = DoubleVector.fromArray(species, batch.maxX, i);
+                var maxY = DoubleVector.fromArray(species, batch.maxY, i);
+                var maxZ = DoubleVector.fromArray(species, batch.maxZ, i);
+                var searched = maxX.compare(VectorOperators.GE, sMinX).and(minX.compare(VectorOperators.LE, sMaxX))
+                        .and(maxY.compare(VectorOperators.GE, sMinY)).and(minY.compare(VectorOperators.LE, sMaxY))
+                        .and(maxZ.compare(VectorOperators.GE, sMinZ)).and(minZ.compare(VectorOperators.LE, sMaxZ));
+                var live = VectorMask.fromArray(species, batch.tri, i).and(searched);
+                if (!live.anyTrue()) {
+                    if (hits != null) {
+                        live.intoArray(hits, i - from);
+                    }
+                    continue;
+                }
+                var contained = contains(species, batch.ax, batch.ay, batch.az, i, bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ)
+                        .or(contains(species, batch.bx, batch.by, batch.bz, i, bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ))
+                        .or(contains(species, batch.cx, batch.cy, batch.cz, i, bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ));
+                var separated = centerXs.sub(maxX).max(minX.sub(centerXs)).compare(VectorOperators.GT, halfX)
+                        .or(centerYs.sub(maxY).max(minY.sub(centerYs)).compare(VectorOperators.GT, halfY))
+                        .or(centerZs.sub(maxZ).max(minZ.sub(centerZs)).compare(VectorOperators.GT, halfZ));
+
+                var hit = live.and(contained);
+                var undecided = live.andNot(contained).andNot(separated);
+                if (hits != null) {
+                    hit.intoArray(hits, i - from);
+                }
+                count += hit.trueCount();
+                for (var lane = undecided.firstTrue(); lane < species.length(); lane++) {
+                    if (undecided.laneIsSet(lane) && !batch.isSeparatedByEdgesOrNormal(i + lane, centerX, centerY, centerZ, halfX, halfY, halfZ)) {
+                        if (hits != null) {
+                            hits[i + lane - from] = true;
+                        }
+                        count++;
+                    }
+                }
+            }
+            return count + batch.countTris(searchBox, box, upper, to, hits, from);
+        }
+
+        private static VectorMask<Double> contains(VectorSpecies<Double> species, double[] xs, double[] ys, double[] zs, int i,
+                                                   double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            var x = DoubleVector.fromArray(species, xs, i);
+            var y = DoubleVector.fromArray(species, ys, i);
+            var z = DoubleVector.fromArray(species, zs, i);
+            return x.compare(VectorOperators.LE, maxX).and(x.compare(VectorOperators.GE, minX))
+                    .and(y.compare(VectorOperators.LE, maxY)).and(y.compare(VectorOperators.GE, minY))
+                    .and(z.compare(VectorOperators.LE, maxZ)).and(z.compare(VectorOperators.GE, minZ));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.tridevmc.architecture.core.physics;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * A tree of trees, items are split into groups that each get a {@link PackedBVHTree} of their own, and a top level tree is
+ * built over the bounds of the groups. Meant for meshes, where each part of the mesh is a group of polygons.
+ * <p>
+ * Queries first walk the top level tree, so a group whose bounds are missed entirely is skipped without looking at any of its
+ * nodes. Groups can be hidden, which leaves them out of every query, and a single group can be replaced, like when only one part
+ * of a mesh moves. Both only rebuild the top level tree, which holds one item per group and is cheap to build.
+ * <p>
+ * Instances are immutable, hiding or replacing a group returns a new tree sharing the trees of every other group.
+ *
+ * @param <K> The type used to identify the groups.
+ * @param <T> The type of data stored in the tree.
+ */
+public class TwoLevelBVHTree<K, T> implements IAABBTree<T> {
+
+    private final ImmutableMap<K, PackedBVHTree<T>> branches;
+    private final ImmutableSet<K> hidden;
+    private final PackedBVHTree<Branch<K, T>> top;
+
+    private TwoLevelBVHTree(ImmutableMap<K, PackedBVHTree<T>> branches, ImmutableSet<K> hidden) {
+        this.branches = branches;
+        this.hidden = hidden;
+        var visible = new ArrayList<Branch<K, T>>(branches.size());
+        branches.forEach((key, tree) -> {
+            if (tree.size() > 0 && !hidden.contains(key)) {
+                visible.add(new Branch<>(key, tree));
+            }
+        });
+        this.top = PackedBVHTree.build(visible, branch -> branch.tree().getBounds());
+    }
+
+    /**
+     * Builds a tree containing all the given groups of items, every group gets a tree of its own.
+     *
+     * @param groups    The items to store in the tree, by the group they belong to.
+     * @param boxGetter Gets the bounds of an item, called once per item.
+     * @param <K>       The type used to identify the groups.
+     * @param <T>       The type of data stored in the tree.
+     * @return The new tree.
+     */
+    public static <K, T> TwoLevelBVHTree<K, T> build(@NotNull Map<K, ? extends Collection<T>> groups, @NotNull Function<T, AABB> boxGetter) {
+        var branches = ImmutableMap.<K, PackedBVHTree<T>>builder();
+        groups.forEach((key, items) -> branches.put(key, PackedBVHTree.build(items, boxGetter)));
+        return new TwoLevelBVHTree<>(branches.build(), ImmutableSet.of());
+    }
+
+    /**
+     * Creates a tree over the given trees, with every group visible.
+     *
+     * @param branches The tree of each group.
+     * @param <K>      The type used to identify the groups.
+     * @param <T>      The type of data stored in the tree.
+     * @return The new tree.
+     */
+    public static <K, T> TwoLevelBVHTree<K, T> of(@NotNull Map<K, PackedBVHTree<T>> branches) {
+        return new TwoLevelBVHTree<>(ImmutableMap.copyOf(branches), ImmutableSet.of());
+    }
+
+    /**
+     * Gets the tree of every group, including hidden ones.
+     *
+     * @return The trees by the group they belong to.
+     */
+    @NotNull
+    public ImmutableMap<K, PackedBVHTree<T>> getBranches() {
+        return this.branches;
+    }
+
+    /**
+     * Gets the tree of the given group, whether it's hidden or not.
+     *
+     * @param key The group to get the tree of.
+     * @return The tree of the group.
+     * @throws IllegalArgumentException If there is no group with the given key.
+     */
+    @NotNull
+    public PackedBVHTree<T> getBranch(K key) {
+        var branch = this.branches.get(key);
+        if (branch == null) {
+            throw new IllegalArgumentException("No group with key %s in the tree".formatted(key));
+        }
+        return branch;
+    }
+
+    /**
+     * Checks if the given group is included in queries made on this tree.
+     *
+     * @param key The group to check.
+     * @return True if the group exists and isn't hidden, false otherwise.
+     */
+    public boolean isVisible(K key) {
+        return this.branches.containsKey(key) && !this.hidden.contains(key);
+    }
+
+    /**
+     * Creates a tree with the same groups as this one, but only including the groups accepted by the given predicate in queries.
+     *
+     * @param visible Decides if a group is visible, called once per group.
+     * @return The new tree.
+     */
+    @NotNull
+    public TwoLevelBVHTree<K, T> withVisibility(@NotNull Predicate<? super K> visible) {
+        var hidden = ImmutableSet.<K>builder();
+        for (var key : this.branches.keySet()) {
+            if (!visible.test(key)) {
+                hidden.add(key);
+            }
+        }
+        return new TwoLevelBVHTree<>(this.branches, hidden.build());
+    }
+
+    /**
+     * Creates a tree with the same groups as this one, except for the given group which uses the given tree instead.
+     * Whether the group is visible or not is kept.
+     *
+     * @param key  The group to replace.
+     * @param tree The new tree of the group.
+     * @return The new tree.
+     * @throws IllegalArgumentException If there is no group with the given key.
+     */
+    @NotNull
+    public TwoLevelBVHTree<K, T> withBranch(K key, @NotNull PackedBVHTree<T> tree) {
+        if (!this.branches.containsKey(key)) {
+            throw new IllegalArgumentException("No group with key %s in the tree".formatted(key));
+        }
+        var branches = ImmutableMap.<K, PackedBVHTree<T>>builder();
+        this.branches.forEach((k, branch) -> branches.put(k, k.equals(key) ? tree : branch));
+        return new TwoLevelBVHTree<>(branches.build(), this.hidden);
+    }
+
+    /**
+     * Refits the tree of every group, see {@link PackedBVHTree#refit(Function, Function)}. Hidden groups stay hidden.
+     *
+     * @param mapper    Gets the replacement for an item, called once per item.
+     * @param boxGetter Gets the bounds of a replacement item, called once per item.
+     * @param <U>       The type of data stored in the new tree.
+     * @return The refitted tree.
+     */
+    @NotNull
+    public <U> TwoLevelBVHTree<K, U> refit(@NotNull Function<? super T, ? extends U> mapper, @NotNull Function<? super U, ? extends IAABB> boxGetter) {
+        var branches = ImmutableMap.<K, PackedBVHTree<U>>builder();
+        this.branches.forEach((key, branch) -> branches.put(key, branch.refit(mapper, boxGetter)));
+        return new TwoLevelBVHTree<>(branches.build(), this.hidden);
+    }
+
+    /**
+     * Gets the number of items in the visible groups of this tree.
+     *
+     * @return The number of visible items.
+     */
+    public int size() {
+        var size = 0;
+        for (var i = 0; i < this.top.size(); i++) {
+            size += this.top.getItem(i).tree().size();
+        }
+        return size;
+    }
+
+    @Override
+    @NotNull
+    public Stream<T> searchStream(@NotNull AABB box) {
+        return this.top.searchStream(box).flatMap(branch -> branch.tree().searchStream(box));
+    }
+
+    @Override
+    public void forEachIntersecting(@NotNull IAABB box, @NotNull Consumer<? super T> action) {
+        this.top.forEachIntersecting(box, branch -> branch.tree().forEachIntersecting(box, action));
+    }
+
+    @Override
+    public boolean anyIntersecting(@NotNull IAABB box, @NotNull Predicate<? super T> predicate) {
+        return this.top.anyIntersecting(box, branch -> branch.tree().anyIntersecting(box, predicate));
+    }
+
+    @Override
+    public void forEachAlongRay(@NotNull Ray ray, @NotNull Consumer<? super T> action) {
+        this.top.forEachAlongRay(ray, branch -> branch.tree().forEachAlongRay(ray, action));
+    }
+
+    @Override
+    public void forEachAlongRays(@NotNull RayPacket packet, @NotNull RayPacket.Visitor<? super T> visitor) {
+        // Each group's tree finds the rays that reach it on its own, so the packet only needs to be matched against the groups once.
+        this.top.forEachIntersecting(packet.getBounds(), branch -> branch.tree().forEachAlongRays(packet, visitor));
+    }
+
+    @Override
+    @Nullable
+    public <H> H findClosestAlongRay(@NotNull Ray ray, @NotNull Function<? super T, H> intersect, @NotNull ToDoubleFunction<? super H> distance) {
+        // Groups are visited front to back, and a group entered beyond the closest hit so far is skipped by the top level tree.
+        return this.top.findClosestAlongRay(ray, branch -> branch.tree().findClosestAlongRay(ray, intersect, distance), distance);
+    }
+
+    @Override
+    @Nullable
+    public T findNearest(double x, double y, double z, @NotNull ToDoubleFunction<? super T> distanceSquared) {
+        var nearest = new Object() {
+            T item;
+            double distance;
+        };
+        // The top level tree only asks a group for its nearest item if the group could be closer than the nearest found so far.
+        this.top.findNearest(x, y, z, branch -> {
+            var item = branch.tree().findNearest(x, y, z, distanceSquared);
+            if (item == null) {
+                return Double.POSITIVE_INFINITY;
+            }
+            var distance = distanceSquared.applyAsDouble(item);
+            if (nearest.item == null || distance < nearest.distance) {
+                nearest.item = item;
+                nearest.distance = distance;
+            }
+            return distance;
+        });
+        return nearest.item;
+    }
+
+    @Override
+    @NotNull
+    public AABB getBounds() {
+        if (this.top.size() == 0) {
+            throw new IllegalStateException("Cannot get the bounds of a tree with no visible items");
+        }
+        return this.top.getBounds();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("groups", this.branches.size())
+                .add("hidden", this.hidden)
+                .add("size", this.size())
+                .toString();
+    }
+
+    /**
+     * The tree of a single group, as stored in the top level tree.
+     */
+    private record Branch<K, T>(K key, PackedBVHTree<T> tree) {
+    }
+}
@@ -0,0 +1,314 @@
+package com.tridevmc.architecture.core.physics;
+
+import com.tridevmc.architecture.core.math.IVector3;
+import com.tridevmc.architecture.core.model.mesh.IFace;
+import com.tridevmc.architecture.core.model.mesh.IMesh;
+import com.tridevmc.architecture.core.model.mesh.IPolygon;
+import com.tridevmc.architecture.core.model.mesh.IPolygonData;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Computes the generalized winding number of a mesh, the sum of the signed solid angles its polygons cover as seen from a point
+ * divided by a full sphere. Points inside a closed mesh with outward facing polygons have a winding number of one, points outside
+ * have zero, and the value changes smoothly across holes and cracks instead of flipping like a ray crossing count would.
+ * <p>
+ * Queries walk the tree of the mesh. The polygons in a node far enough from the point are approximated as a whole, by the
+ * first two terms of a Taylor series around their area weighted center, and only nodes close to the point are summed polygon by polygon.
+ * Quads are split into two triangles, the same way the rest of the mesh code splits them.
+ * <p>
+ * Instances are immutable once created and can be queried from any number of threads at once.
+ */
+public final class WindingNumber {
+
+    /**
+     * How many times the radius of a node the point has to be from its center before the node is approximated as a whole. Larger
+     * values are more accurate and slower, at two the error of a node is a few percent of its contribution.
+     */
+    private static final double ACCURACY = 2;
+
+    private static final double FOUR_PI = 4 * Math.PI;
+    private static final int EXPANSION_SIZE = 16;
+
+    private final PackedBVHTree<? extends IPolygon<?>> tree;
+    // The vertices of each triangle, nine values per triangle, with the triangles of item i from itemTriangles[i] up to itemTriangles[i + 1].
+    private final double[] triangles;
+    private final int[] itemTriangles;
+    // For each node the center of its expansion, the sum of the area weighted normals below it, the nine second order
+    // terms and the radius of its bounds around the center.
+    private final double[] expansions;
+
+    private WindingNumber(PackedBVHTree<? extends IPolygon<?>> tree) {
+        this.tree = tree;
+        this.itemTriangles = new int[tree.size() + 1];
+        var triangles = new double[tree.size() * 9];
+        var triangleCount = 0;
+        for (var i = 0; i < tree.size(); i++) {
+            var vertices = tree.getItem(i).getVertices();
+            for (var v = 2; v < vertices.size(); v++) {
+                if (triangleCount * 9 == triangles.length) {
+                    triangles = Arrays.copyOf(triangles, triangles.length * 2);
+                }
+                writeVertex(triangles, triangleCount * 9, vertices.get(0).getPos());
+                writeVertex(triangles, triangleCount * 9 + 3, vertices.get(v - 1).getPos());
+                writeVertex(triangles, triangleCount * 9 + 6, vertices.get(v).getPos());
+                triangleCount++;
+            }
+            this.itemTriangles[i + 1] = triangleCount;
+        }
+        this.triangles = Arrays.copyOf(triangles, triangleCount * 9);
+        this.expansions = new double[tree.getNodeCount() * EXPANSION_SIZE];
+        if (tree.size() > 0) {
+            this.computeExpansions();
+        }
+    }
+
+    /**
+     * Prepares the winding number of the given mesh, reusing the shape of its tree when it has a {@link PackedBVHTree} and building
+     * a new one otherwise.
+     *
+     * @param mesh The mesh to compute the winding number of.
+     * @return The winding number of the mesh.
+     */
+    public static <I, D extends IPolygonData<D>> WindingNumber of(@NotNull IMesh<I, D> mesh) {
+        if (mesh.getAABBTree() instanceof PackedBVHTree<IPolygon<D>> tree) {
+            return new WindingNumber(tree);
+        }
+        var polygons = mesh.getFaceStream().flatMap(IFace::getPolygonStream).toList();
+        return new WindingNumber(PackedBVHTree.build(polygons, IPolygon::getAABB));
+    }
+
+    private static void writeVertex(double[] array, int offset, IVector3 pos) {
+        array[offset] = pos.x();
+        array[offset + 1] = pos.y();
+        array[offset + 2] = pos.z();
+    }
+
+    /**
+     * Fills in the expansion of every node bottom up, leaves from their triangles and other nodes from their children.
+     */
+    private void computeExpansions() {
+        // The area weighted sum of centers for each node followed by its total area, used to find the center of its parent.
+        var weightedCenters = new double[this.tree.getNodeCount() * 4];
+        var triangleCenter = new double[3];
+        for (var node = this.tree.getNodeCount() - 1; node >= 0; node--) {
+            var e = node * EXPANSION_SIZE;
+            var w = node * 4;
+            var leaf = this.tree.isLeaf(node);
+            var first = leaf ? this.itemTriangles[this.tree.getFirstItem(node)] : 0;
+            var end = leaf ? this.itemTriangles[this.tree.getFirstItem(node) + this.tree.getItemCount(node)] : 0;
+            if (leaf) {
+                for (var t = first; t < end; t++) {
+                    var area = this.getAreaNormal(t, this.expansions, e + 3);
+                    this.getCenter(t, triangleCenter);
+                    for (var axis = 0; axis < 3; axis++) {
+                        weightedCenters[w + axis] += area * triangleCenter[axis];
+                    }
+                    weightedCenters[w + 3] += area;
+                }
+            } else {
+                for (var child : new int[]{node + 1, this.tree.getRightChild(node)}) {
+                    for (var i = 0; i < 3; i++) {
+                        this.expansions[e + 3 + i] += this.expansions[child * EXPANSION_SIZE + 3 + i];
+                    }
+                    for (var i = 0; i < 4; i++) {
+                        weightedCenters[w + i] += weightedCenters[child * 4 + i];
+                    }
+                }
+            }
+
+            var bounds = this.tree.getNodeBounds(node);
+            var radiusSquared = 0D;
+            for (var axis = 0; axis < 3; axis++) {
+                // Nodes made up of degenerate triangles have no area to weight by, their center is as good as any other point.
+                var center = weightedCenters[w + 3] > 0 ? weightedCenters[w + axis] / weightedCenters[w + 3] : (bounds.min(axis) + bounds.max(axis)) / 2;
+                this.expansions[e + axis] = center;
+                var extent = Math.max(center - bounds.min(axis), bounds.max(axis) - center);
+                radiusSquared += extent * extent;
+            }
+            this.expansions[e + 15] = Math.sqrt(radiusSquared);
+
+            // The second order term sums the offset of each triangle from the center against its area weighted normal,
+            // children are moved from their own center to ours the same way.
+            if (leaf) {
+                var normal = new double[3];
+                for (var t = first; t < end; t++) {
+                    this.getAreaNormal(t, normal, 0);
+                    this.getCenter(t, triangleCenter);
+                    this.addOuterProduct(e, triangleCenter, 0, normal, 0);
+                }
+            } else {
+                for (var child : new int[]{node + 1, this.tree.getRightChild(node)}) {
+                    var c = child * EXPANSION_SIZE;
+                    for (var i = 0; i < 9; i++) {
+                        this.expansions[e + 6 + i] += this.expansions[c + 6 + i];
+                    }
+                    this.addOuterProduct(e, this.expansions, c, this.expansions, c + 3);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the outer product of the offset of a point from the center of the expansion at the given index and a normal to the second order term of that expansion.
+     */
+    private void addOuterProduct(int expansion, double[] point, int pointIndex, double[] normal, int normalIndex) {
+        for (var i = 0; i < 3; i++) {
+            var offset = point[pointIndex + i] - this.expansions[expansion + i];
+            for (var j = 0; j < 3; j++) {
+                this.expansions[expansion + 6 + i * 3 + j] += offset * normal[normalIndex + j];
+            }
+        }
+    }
+
+    /**
+     * Adds the normal of the given triangle, scaled by its area, to the three values at the given index of an array.
+     *
+     * @return The area of the triangle.
+     */
+    private double getAreaNormal(int triangle, double[] out, int index) {
+        var o = triangle * 9;
+        var e1x = this.triangles[o + 3] - this.triangles[o];
+        var e1y = this.triangles[o + 4] - this.triangles[o + 1];
+        var e1z = this.triangles[o + 5] - this.triangles[o + 2];
+        var e2x = this.triangles[o + 6] - this.triangles[o];
+        var e2y = this.triangles[o + 7] - this.triangles[o + 1];
+        var e2z = this.triangles[o + 8] - this.triangles[o + 2];
+        var nx = (e1y * e2z - e1z * e2y) / 2;
+        var ny = (e1z * e2x - e1x * e2z) / 2;
+        var nz = (e1x * e2y - e1y * e2x) / 2;
+        out[index] += nx;
+        out[index + 1] += ny;
+        out[index + 2] += nz;
+        return Math.sqrt(nx * nx + ny * ny + nz * nz);
+    }
+
+    private void getCenter(int triangle, double[] out) {
+        var o = triangle * 9;
+        for (var axis = 0; axis < 3; axis++) {
+            out[axis] = (this.triangles[o + axis] + this.triangles[o + 3 + axis] + this.triangles[o + 6 + axis]) / 3;
+        }
+    }
+
+    /**
+     * Gets the winding number of the mesh at the given point.
+     *
+     * @param x The X coordinate of the point.
+     * @param y The Y coordinate of the point.
+     * @param z The Z coordinate of the point.
+     * @return The winding number, close to one inside a closed mesh and close to zero outside of it.
+     */
+    public double at(double x, double y, double z) {
+        if (this.tree.size() == 0) {
+            return 0;
+        }
+
+        var solidAngle = 0D;
+        var stack = new int[this.tree.getDepth() + 1];
+        var stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            var node = stack[--stackSize];
+            var e = node * EXPANSION_SIZE;
+            var dx = this.expansions[e] - x;
+            var dy = this.expansions[e + 1] - y;
+            var dz = this.expansions[e + 2] - z;
+            var distanceSquared = dx * dx + dy * dy + dz * dz;
+            var radius = this.expansions[e + 15] * ACCURACY;
+            if (distanceSquared > radius * radius) {
+                solidAngle += this.farField(e, dx, dy, dz, distanceSquared);
+                continue;
+            }
+            if (!this.tree.isLeaf(node)) {
+                stack[stackSize++] = this.tree.getRightChild(node);
+                stack[stackSize++] = node + 1;
+                continue;
+            }
+            var first = this.itemTriangles[this.tree.getFirstItem(node)];
+            var end = this.itemTriangles[this.tree.getFirstItem(node) + this.tree.getItemCount(node)];
+            for (var t = first; t < end; t++) {
+                solidAngle += this.solidAngle(t, x, y, z);
+            }
+        }
+        return solidAngle / FOUR_PI;
+    }
+
+    /**
+     * Gets the winding number of the mesh at the given point.
+     *
+     * @param point The point.
+     * @return The winding number, close to one inside a closed mesh and close to zero outside of it.
+     */
+    public double at(@NotNull IVector3 point) {
+        return this.at(point.x(), point.y(), point.z());
+    }
+
+    /**
+     * Checks if the given point is inside the mesh, which is when its winding number is above one half.
+     *
+     * @param x The X coordinate of the point.
+     * @param y The Y coordinate of the point.
+     * @param z The Z coordinate of the point.
+     * @return True if the point is inside the mesh, false otherwise.
+     */
+    public boolean isInside(double x, double y, double z) {
+        return this.at(x, y, z) > 0.5;
+    }
+
+    /**
+     * Checks if the given point is inside the mesh, which is when its winding number is above one half.
+     *
+     * @param point The point.
+     * @return True if the point is inside the mesh, false otherwise.
+     */
+    public boolean isInside(@NotNull IVector3 point) {
+        return this.isInside(point.x(), point.y(), point.z());
+    }
+
+    /**
+     * Approximates the solid angle covered by the triangles below a node from the expansion at the given index, the first
+     * two terms of the Taylor series of the solid angle of each triangle around the center of the node.
+     *
+     * @param dx              The X offset from the point to the center of the node.
+     * @param dy              The Y offset from the point to the center of the node.
+     * @param dz              The Z offset from the point to the center of the node.
+     * @param distanceSquared The squared distance from the point to the center of the node.
+     */
+    private double farField(int e, double dx, double dy, double dz, double distanceSquared) {
+        var distance = Math.sqrt(distanceSquared);
+        var distanceCubed = distance * distanceSquared;
+        var firstOrder = this.expansions[e + 3] * dx + this.expansions[e + 4] * dy + this.expansions[e + 5] * dz;
+        var trace = this.expansions[e + 6] + this.expansions[e + 10] + this.expansions[e + 14];
+        var quadratic = dx * (this.expansions[e + 6] * dx + this.expansions[e + 7] * dy + this.expansions[e + 8] * dz)
+                + dy * (this.expansions[e + 9] * dx + this.expansions[e + 10] * dy + this.expansions[e + 11] * dz)
+                + dz * (this.expansions[e + 12] * dx + this.expansions[e + 13] * dy + this.expansions[e + 14] * dz);
+        return (firstOrder + trace) / distanceCubed - 3 * quadratic / (distanceCubed * distanceSquared);
+    }
+
+    /**
+     * Gets the signed solid angle the given triangle covers as seen from a point, using the formula of Van Oosterom and Strackee.
+     * The angle is positive when the point is behind the triangle, on the side its normal points away from.
+     */
+    private double solidAngle(int triangle, double x, double y, double z) {
+        var o = triangle * 9;
+        var ax = this.triangles[o] - x;
+        var ay = this.triangles[o + 1] - y;
+        var az = this.triangles[o + 2] - z;
+        var bx = this.triangles[o + 3] - x;
+        var by = this.triangles[o + 4] - y;
+        var bz = this.triangles[o + 5] - z;
+        var cx = this.triangles[o + 6] - x;
+        var cy = this.triangles[o + 7] - y;
+        var cz = this.triangles[o + 8] - z;
+        var aLength = Math.sqrt(ax * ax + ay * ay + az * az);
+        var bLength = Math.sqrt(bx * bx + by * by + bz * bz);
+        var cLength = Math.sqrt(cx * cx + cy * cy + cz * cz);
+        var determinant = ax * (by * cz - bz * cy) - ay * (bx * cz - bz * cx) + az * (bx * cy - by * cx);
+        var divisor = aLength * bLength * cLength
+                + (ax * bx + ay * by + az * bz) * cLength
+                + (bx * cx + by * cy + bz * cz) * aLength
+                + (cx * ax + cy * ay + cz * az) * bLength;
+        return 2 * Math.atan2(determinant, divisor);
+    }
+}
@@ -2,8 +2,15 @@ package com.tridevmc.architecture.legacy.client.render.model.objson;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.tridevmc.architecture.core.ArchitectureLog;
+import com.tridevmc.architecture.core.model.PrecomputedVoxels;
+import com.tridevmc.architecture.core.model.VoxelBoxes;
+import com.tridevmc.architecture.core.model.VoxelCache;
+import com.tridevmc.architecture.core.model.objson.OBJSONBinary;
+import com.tridevmc.architecture.core.model.objson.OBJSONData;
 import com.tridevmc.architecture.legacy.math.LegacyTrans3;
 import com.tridevmc.architecture.legacy.math.LegacyVector3;
 import net.minecraft.resources.ResourceLocation;
@@ -12,10 +19,16 @@ import net.minecraft.world.phys.shapes.Shapes;
 import net.minecraft.world.phys.shapes.VoxelShape;
 import net.minecraftforge.fml.loading.progress.StartupMessageManager;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public class LegacyOBJSON {
 
@@ -26,6 +39,9 @@ public class LegacyOBJSON {
     private Face[] faces;
     private OBJSONVoxelizer voxelizer;
     private VoxelShape voxelized;
+    private String path;
+    private HashCode sourceHash;
+    private boolean defaultTransform;
 
     public static LegacyOBJSON fromResource(ResourceLocation location) {
         return fromResource(location, LegacyTrans3.blockCenter);
@@ -34,8 +50,21 @@ public class LegacyOBJSON {
     public static LegacyOBJSON fromResource(ResourceLocation location, LegacyTrans3 trans) {
         // Can't use resource manager because this needs to work on the server
         var path = String.format("/data/%s/objson/%s", location.getNamespace(), location.getPath());
-        var in = LegacyOBJSON.class.getResourceAsStream(path);
-        var model = GSON.fromJson(new InputStreamReader(in), LegacyOBJSON.class);
+        var compiled = LegacyOBJSON.class.getResourceAsStream(OBJSONBinary.getCompiledPath(path));
+        var in = compiled != null ? compiled : LegacyOBJSON.class.getResourceAsStream(path);
+        Objects.requireNonNull(in, "Failed to obtain input stream for resource \"%s\"".formatted(path));
+        LegacyOBJSON model;
+        byte[] bytes;
+        try (in) {
+            bytes = in.readAllBytes();
+            model = compiled != null ? fromData(OBJSONBinary.read(new ByteArrayInputStream(bytes)))
+                    : GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes)), LegacyOBJSON.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read OBJSON \"%s\"".formatted(path), e);
+        }
+        model.path = path;
+        model.sourceHash = Hashing.sha256().hashBytes(bytes);
+        model.defaultTransform = trans.equals(LegacyTrans3.blockCenter);
         model.name = location.toString();
         model.setNormals();
 
@@ -56,6 +85,57 @@ public class LegacyOBJSON {
         return model;
     }
 
+    /**
+     * Converts the part based model data used by the compiled format into the face based layout used by the legacy model.
+     *
+     * @param data the model data to convert.
+     * @return the converted model, without any transformation applied.
+     */
+    private static LegacyOBJSON fromData(OBJSONData data) {
+        var model = new LegacyOBJSON();
+        model.bounds = data.bounds();
+
+        var boxes = new ArrayList<double[]>();
+        var trianglesByFace = new ArrayList<List<Triangle>>(Collections.nCopies(data.faces().length, null));
+        var textureByFace = new int[data.faces().length];
+        for (var part : data.parts()) {
+            boxes.addAll(Arrays.asList(part.boxes()));
+            for (var triData : part.triangles()) {
+                if (trianglesByFace.get(triData.face()) == null) {
+                    trianglesByFace.set(triData.face(), new ArrayList<>());
+                    textureByFace[triData.face()] = triData.texture();
+                }
+                var tri = model.new Triangle();
+                tri.vertices = triData.vertices();
+                trianglesByFace.get(triData.face()).add(tri);
+            }
+        }
+        model.boxes = boxes.toArray(new double[0][]);
+
+        var faces = new ArrayList<Face>(data.faces().length);
+        for (var i = 0; i < data.faces().length; i++) {
+            // Faces that no triangle refers to have nothing to render or collide with, so they're dropped.
+            if (trianglesByFace.get(i) == null)
+                continue;
+            var faceData = data.faces()[i];
+            var face = model.new Face();
+            face.texture = textureByFace[i];
+            face.triangles = trianglesByFace.get(i).toArray(new Triangle[0]);
+            face.vertices = new Vertex[faceData.vertices().length];
+            for (var v = 0; v < face.vertices.length; v++) {
+                var vertData = faceData.vertices()[v];
+                var vertex = model.new Vertex();
+                vertex.pos = vertData.pos();
+                vertex.normal = vertData.normal();
+                vertex.uv = vertData.uv();
+                face.vertices[v] = vertex;
+            }
+            faces.add(face);
+        }
+        model.faces = faces.toArray(new Face[0]);
+        return model;
+    }
+
     /**
      * Offsets the position of every vertex by the given vector and places it into a new OBJSON object.
      *
@@ -86,15 +166,52 @@ public class LegacyOBJSON {
         return this.name;
     }
 
+    /**
+     * Gets the hash of the raw model data this model was loaded from.
+     *
+     * @return the hash of the model data.
+     */
+    public HashCode getSourceHash() {
+        return this.sourceHash;
+    }
+
+    private static VoxelShape toShape(VoxelBoxes boxes) {
+        return OBJSONVoxelizer.toShape(boxes.toAABBs().stream().map(com.tridevmc.architecture.core.physics.AABB::toMC).toList());
+    }
+
     public VoxelShape getVoxelized() {
+        // Only models loaded with the default transform can be looked up by their source hash, anything else is voxelized every time.
+        HashCode cacheKey = null;
+        if (this.voxelized == null && this.defaultTransform) {
+            // Models loaded with the default transform may have had their voxels computed at build time.
+            var precomputed = PrecomputedVoxels.load(this.path, this.sourceHash, OBJSONVoxelizer.VERSION, this.voxelizer.getBlockResolution());
+            if (precomputed != null) {
+                this.voxelized = toShape(precomputed);
+                ArchitectureLog.debug("Loaded precomputed voxels for {}", this.name);
+            } else {
+                cacheKey = VoxelCache.createKey("legacy", this.sourceHash, this.voxelizer.getBlockResolution(), OBJSONVoxelizer.VERSION);
+                var cached = VoxelCache.get(cacheKey);
+                if (cached != null) {
+                    this.voxelized = toShape(cached);
+                    ArchitectureLog.debug("Loaded cached voxels for {}", this.name);
+                }
+            }
+        }
         if (this.voxelized == null) {
             String msg = String.format("Voxelizing '%s'", this.name);
             StartupMessageManager.addModMessage(msg);
             ArchitectureLog.info(msg);
             long t0 = System.nanoTime();
-            this.voxelized = this.voxelizer.voxelizeShape();
+            var boxes = this.voxelizer.voxelize();
+            this.voxelized = OBJSONVoxelizer.toShape(boxes);
             long t1 = System.nanoTime();
             ArchitectureLog.info("Voxelized {} in {} nanos", this.name, t1 - t0);
+
+            if (cacheKey != null) {
+                var builder = new VoxelBoxes.Builder(this.voxelizer.getBlockResolution());
+                boxes.forEach(box -> builder.addBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ));
+                VoxelCache.put(cacheKey, builder.build());
+            }
         }
         return this.voxelized;
     }
@@ -0,0 +1,94 @@
+package com.tridevmc.architecture.legacy.client.render.model.objson;
+
+import com.google.common.hash.Hashing;
+import com.tridevmc.architecture.common.ArchitectureMod;
+import com.tridevmc.architecture.core.ArchitectureLog;
+import com.tridevmc.architecture.core.model.PrecomputedVoxels;
+import com.tridevmc.architecture.core.model.VoxelBoxes;
+import com.tridevmc.architecture.core.model.objson.OBJSONBinary;
+import net.minecraft.Util;
+import net.minecraft.data.CachedOutput;
+import net.minecraft.data.DataProvider;
+import net.minecraft.data.PackOutput;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.fml.ModList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Data provider run by the <code>precomputeVoxels</code> Gradle task through the data run, voxelizes every compiled model
+ * the same way the game would and writes the results so they can be loaded through {@link PrecomputedVoxels}. The results
+ * are only packed into jars built with <code>-PprecomputeVoxels</code>.
+ * <p>
+ * Models are found by walking the compiled models in the resources of the mod, any model under
+ * <code>data/&lt;namespace&gt;/objson/</code> is voxelized no matter how deep it's nested.
+ */
+public class OBJSONVoxelPrecomputer implements DataProvider {
+
+    private final PackOutput output;
+
+    public OBJSONVoxelPrecomputer(PackOutput output) {
+        this.output = output;
+    }
+
+    @Override
+    public CompletableFuture<?> run(CachedOutput cache) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                this.precompute(cache);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to precompute voxels", e);
+            }
+        }, Util.backgroundExecutor());
+    }
+
+    private void precompute(CachedOutput cache) throws IOException {
+        var dataDir = ModList.get().getModFileById(ArchitectureMod.MOD_ID).getFile().findResource("data");
+        List<Path> models;
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            models = files.filter(p -> p.toString().endsWith(".objson" + OBJSONBinary.EXTENSION_SUFFIX)).sorted().toList();
+        }
+
+        var t0 = System.nanoTime();
+        var count = 0;
+        for (var compiledPath : models) {
+            // Compiled models live at data/<namespace>/objson/<path>b, where the path can have any number of directories.
+            var relative = dataDir.relativize(compiledPath);
+            if (relative.getNameCount() < 3 || !relative.getName(1).toString().equals("objson")) {
+                continue;
+            }
+            var namespace = relative.getName(0).toString();
+            var modelPath = relative.subpath(2, relative.getNameCount()).toString().replace('\\', '/');
+            modelPath = modelPath.substring(0, modelPath.length() - OBJSONBinary.EXTENSION_SUFFIX.length());
+
+            var model = LegacyOBJSON.fromResource(new ResourceLocation(namespace, modelPath));
+            var voxelizer = model.getVoxelizer();
+            var builder = new VoxelBoxes.Builder(voxelizer.getBlockResolution());
+            for (var box : voxelizer.voxelize()) {
+                builder.addBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+            }
+
+            var out = new ByteArrayOutputStream();
+            PrecomputedVoxels.write(out, model.getSourceHash(), OBJSONVoxelizer.VERSION, builder.build());
+            var bytes = out.toByteArray();
+            var sourcePath = "data/%s/objson/%s".formatted(namespace, modelPath);
+            var target = this.output.getOutputFolder().resolve(PrecomputedVoxels.getPrecomputedPath(sourcePath));
+            cache.writeIfNeeded(target, bytes, Hashing.sha1().hashBytes(bytes));
+            count++;
+        }
+        ArchitectureLog.info("Precomputed voxels for {} models in {} ms", count, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    @Override
+    public String getName() {
+        return "Precomputed OBJSON voxels";
+    }
+
+}
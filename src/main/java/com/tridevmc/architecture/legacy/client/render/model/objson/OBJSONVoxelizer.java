@@ -1,8 +1,12 @@
 package com.tridevmc.architecture.legacy.client.render.model.objson;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.tridevmc.architecture.core.ArchitectureLog;
-import com.tridevmc.architecture.legacy.common.utils.AABBTree;
+import com.tridevmc.architecture.core.math.IVector3;
+import com.tridevmc.architecture.core.model.VoxelGrid;
+import com.tridevmc.architecture.core.physics.PackedBVHTree;
 import com.tridevmc.architecture.common.utils.MiscUtils;
 import it.unimi.dsi.fastutil.Pair;
 import net.minecraft.core.Vec3i;
@@ -13,10 +17,12 @@ import net.minecraft.world.phys.shapes.Shapes;
 import net.minecraft.world.phys.shapes.VoxelShape;
 
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -27,7 +33,11 @@ import java.util.stream.Stream;
  */
 public class OBJSONVoxelizer {
 
-    private static final ExecutorService POOL = Executors.newWorkStealingPool();
+    /**
+     * The version of the voxelizer, bump this whenever a change affects the voxels produced for a model
+     * so any precomputed or cached results are invalidated.
+     */
+    public static final int VERSION = 2;
 
     private static final Vec3 xNormal = new Vec3(1, 0, 0);
     private static final Vec3 yNormal = new Vec3(0, 1, 0);
@@ -35,12 +45,19 @@ public class OBJSONVoxelizer {
 
     private final LegacyOBJSON objson;
     private final Mesh mesh;
+    private final Mode mode;
     private final int blockResolution;
     private final Vec3i min, max;
+    private long voxelizeNanos = -1;
     private List<Edge> edges;
 
     public OBJSONVoxelizer(LegacyOBJSON objson, int blockResolution) {
+        this(objson, blockResolution, Mode.COLUMN);
+    }
+
+    public OBJSONVoxelizer(LegacyOBJSON objson, int blockResolution, Mode mode) {
         this.objson = objson;
+        this.mode = mode;
         this.blockResolution = blockResolution;
         this.mesh = new Mesh(Arrays.stream(objson.getFaces())
                 .flatMap((Function<LegacyOBJSON.Face, Stream<UnpackedTri>>) face -> Arrays.stream(face.triangles)
@@ -51,6 +68,13 @@ public class OBJSONVoxelizer {
         var yEdges = MiscUtils.getEdges(this.mesh.tris.stream().flatMapToDouble(t -> Arrays.stream(t.getYs())));
         var zEdges = MiscUtils.getEdges(this.mesh.tris.stream().flatMapToDouble(t -> Arrays.stream(t.getZs())));
 
+        if (xEdges == null) {
+            // A model without any triangles has nothing to voxelize, leave the grid empty.
+            this.min = Vec3i.ZERO;
+            this.max = Vec3i.ZERO;
+            return;
+        }
+
         var resolution = 1D / blockResolution;
         int minX = (int) (((resolution * Math.round(xEdges.leftDouble() / resolution))) / resolution);
         int minY = (int) (((resolution * Math.round(yEdges.leftDouble() / resolution))) / resolution);
@@ -64,7 +88,16 @@ public class OBJSONVoxelizer {
     }
 
     public VoxelShape voxelizeShape() {
-        var aabbs = this.voxelize();
+        return toShape(this.voxelize());
+    }
+
+    /**
+     * Combines the given voxels into a single optimized shape.
+     *
+     * @param aabbs the voxels to combine.
+     * @return the combined shape.
+     */
+    public static VoxelShape toShape(List<AABB> aabbs) {
         return aabbs.stream()
                 .map(Shapes::create)
                 .reduce((a, b) -> Shapes.joinUnoptimized(a, b, BooleanOp.OR))
@@ -72,33 +105,67 @@ public class OBJSONVoxelizer {
                 .optimize();
     }
 
+    /**
+     * Voxelizes the model, merging the occupied voxels into as few boxes as possible.
+     *
+     * @return the merged boxes.
+     */
     public List<AABB> voxelize() {
+        long t0 = System.nanoTime();
         var dimensions = this.max.subtract(this.min);
-        var futures = new ArrayList<Future<AABB>>(dimensions.getX() * dimensions.getY() * dimensions.getZ());
-        for (int y = this.min.getY(); y < this.max.getY(); y++) {
-            for (int x = this.min.getX(); x < this.max.getX(); x++) {
-                for (int z = this.min.getZ(); z < this.max.getZ(); z++) {
-                    var box = this.getBoxForOffset(x, y, z);
-                    futures.add(POOL.submit(() -> {
-                        if (this.isBoxValidVoxel(box)) {
-                            return box;
-                        }
-                        return null;
-                    }));
+        var grid = new VoxelGrid(this.min.getX(), this.min.getY(), this.min.getZ(),
+                Math.max(0, dimensions.getX()), Math.max(0, dimensions.getY()), Math.max(0, dimensions.getZ()));
+        try {
+            grid.voxelize(this.mode == Mode.COLUMN ? this::voxelizeColumn : this::voxelizeRowPerVoxel);
+        } catch (CancellationException | RejectedExecutionException e) {
+            // Both mean the pool was cancelled, let the caller decide whether to try again.
+            throw e;
+        } catch (RuntimeException e) {
+            ArchitectureLog.error("Failed to voxelize model {}, throwing exception", this.objson.getName());
+            throw new RuntimeException("Failed to voxelize " + this.objson.getName(), e);
+        }
+        var boxes = grid.toBoxes(this.blockResolution).toAABBs().stream()
+                .map(com.tridevmc.architecture.core.physics.AABB::toMC)
+                .toList();
+        this.voxelizeNanos = System.nanoTime() - t0;
+        return boxes;
+    }
+
+    /**
+     * Gets the time the last call to {@link #voxelize()} took.
+     *
+     * @return the time in nanoseconds, or -1 if the model hasn't been voxelized yet.
+     */
+    public long getVoxelizeNanos() {
+        return this.voxelizeNanos;
+    }
+
+    private void voxelizeRowPerVoxel(int y, int z, IntConsumer occupied) {
+        for (int x = this.min.getX(); x < this.max.getX(); x++) {
+            if (this.isBoxValidVoxel(this.getBoxForOffset(x, y, z))) {
+                occupied.accept(x);
+            }
+        }
+    }
+
+    private void voxelizeColumn(int y, int z, IntConsumer occupied) {
+        // The whole row shares a single ray, its hits are reused for every voxel in the row.
+        List<Ray.Hit> hits = null;
+        for (int x = this.min.getX(); x < this.max.getX(); x++) {
+            var box = this.getBoxForOffset(x, y, z);
+            var inside = this.doesBoxIntersect(box);
+            if (!inside) {
+                // Surface voxels don't need the ray at all, so only cast it once we find a voxel that does.
+                var center = box.getCenter();
+                if (hits == null) {
+                    hits = this.castRay(center).toList();
                 }
+                inside = isPointWithinPolyhedron(hits, center);
+            }
+            if (inside) {
+                occupied.accept(x);
             }
         }
-        return futures.stream()
-                .map(f -> {
-                    try {
-                        return f.get();
-                    } catch (Exception e) {
-                        ArchitectureLog.error("Failed to voxelize model {}, throwing exception", this.objson.getName());
-                        throw new RuntimeException("Failed to voxelize " + this.objson.getName(), e);
-                    }
-                })
-                .filter(Objects::nonNull)
-                .toList();
     }
 
     public boolean isBoxValidVoxel(AABB box) {
@@ -118,7 +185,8 @@ public class OBJSONVoxelizer {
     }
 
     public boolean doesBoxIntersect(AABB box) {
-        return this.getIntersectingTris(box.deflate(1D / (this.blockResolution * 32))).findAny().isPresent();
+        var deflated = box.deflate(1D / (this.blockResolution * 32));
+        return this.mesh.anyIntersecting(deflated, t -> t.intersects(deflated));
     }
 
     public Stream<UnpackedTri> getIntersectingTris(AABB box) {
@@ -126,17 +194,27 @@ public class OBJSONVoxelizer {
     }
 
     private boolean isPointWithinPolyhedron(Vec3 point) {
+        return isPointWithinPolyhedron(this.castRay(point).toList(), point);
+    }
+
+    /**
+     * Casts a ray along the X axis through the given point, covering the whole mesh.
+     *
+     * @param point the point the ray should pass through.
+     * @return the hits along the ray, rounded to the nearest 256th of a block.
+     */
+    private Stream<Ray.Hit> castRay(Vec3 point) {
         var meshBounds = this.mesh.getBounds();
         var fromPoint = new Vec3(meshBounds.minX - 1, point.y, point.z);
         var toPoint = new Vec3(meshBounds.maxX + 1, point.y, point.z);
         var rayDirection = toPoint.subtract(fromPoint);
         var ray = new Ray(fromPoint, rayDirection);
+        return ray.intersect(this.mesh).map(Ray.Hit::rounded);
+    }
 
-        var hits = ray.intersect(this.mesh)
-                .map(h -> {
-                    var hit = h.rounded();
-                    return Pair.of(hit, hit.distanceTo(point));
-                })
+    private static boolean isPointWithinPolyhedron(List<Ray.Hit> rayHits, Vec3 point) {
+        var hits = rayHits.stream()
+                .map(hit -> Pair.of(hit, hit.distanceTo(point)))
                 .sorted(Comparator.comparingDouble(Pair::right))
                 .toList();
         double minDistance = hits.size() > 0 ? hits.get(0).right() : Double.MAX_VALUE;
@@ -170,6 +248,10 @@ public class OBJSONVoxelizer {
         return this.max;
     }
 
+    public Mode getMode() {
+        return this.mode;
+    }
+
     private static boolean testSeparatingAxis(Vec3 v0, Vec3 v1, Vec3 v2, Vec3 axis, Vec3 aabbSize) {
         double v0Projection = v0.dot(axis);
         double v1Projection = v1.dot(axis);
@@ -217,9 +299,9 @@ public class OBJSONVoxelizer {
          * @return a stream of hits or failed hits.
          */
         public Stream<Hit> intersectUnfiltered(Mesh mesh) {
-            return mesh.search(new AABB(this.origin, this.origin.add(this.direction)))
-                    .stream()
-                    .map(this::intersect);
+            var hits = new ArrayList<Hit>();
+            mesh.forEachAlongRay(this, tri -> hits.add(this.intersect(tri)));
+            return hits.stream();
         }
 
         /**
@@ -377,27 +459,59 @@ public class OBJSONVoxelizer {
 
     public static class Mesh {
         private final List<UnpackedTri> tris;
-        private final AABBTree<UnpackedTri> trisTree;
+        private final PackedBVHTree<UnpackedTri> trisTree;
+        // Found on first use, the tree of an empty mesh has no bounds to give.
+        private final Supplier<AABB> bounds;
 
         public Mesh(List<UnpackedTri> unpackedTris) {
             this.tris = ImmutableList.copyOf(unpackedTris);
-            this.trisTree = new AABBTree<UnpackedTri>(unpackedTris, UnpackedTri::getBox);
-        }
-
-        public AABBTree<UnpackedTri>.Node getRoot() {
-            return this.trisTree.getRoot();
+            this.trisTree = PackedBVHTree.build(unpackedTris, tri -> com.tridevmc.architecture.core.physics.AABB.fromMC(tri.getBox()));
+            this.bounds = Suppliers.memoize(() -> this.trisTree.getBounds().toMC());
         }
 
+        /**
+         * Gets the bounds of every triangle in the mesh.
+         *
+         * @return the bounds of the mesh.
+         * @throws IllegalStateException if the mesh has no triangles.
+         */
         public AABB getBounds() {
-            return this.trisTree.getBounds();
+            return this.bounds.get();
         }
 
         public List<UnpackedTri> search(AABB box) {
-            return this.trisTree.search(box);
+            return this.trisTree.search(com.tridevmc.architecture.core.physics.AABB.fromMC(box));
+        }
+
+        public boolean anyIntersecting(AABB box, Predicate<UnpackedTri> predicate) {
+            return this.trisTree.anyIntersecting(com.tridevmc.architecture.core.physics.AABB.fromMC(box), predicate);
+        }
+
+        public void forEachAlongRay(Ray ray, Consumer<UnpackedTri> action) {
+            var coreRay = new com.tridevmc.architecture.core.physics.Ray(
+                    IVector3.ofImmutable(ray.origin().x, ray.origin().y, ray.origin().z),
+                    IVector3.ofImmutable(ray.direction().x, ray.direction().y, ray.direction().z)
+            );
+            this.trisTree.forEachAlongRay(coreRay, action);
         }
     }
 
     public record Edge(Vec3 v0, Vec3 v1) {
     }
 
+    /**
+     * The algorithms available to determine which voxels are occupied, both produce the same voxels.
+     */
+    public enum Mode {
+        /**
+         * Tests every voxel independently, casting a ray through the mesh for each voxel that doesn't intersect its surface.
+         */
+        PER_VOXEL,
+        /**
+         * Casts a single ray per (y, z) column and reuses its hits for every voxel in the column,
+         * surface voxels are still found with the triangle/box intersection test.
+         */
+        COLUMN
+    }
+
 }